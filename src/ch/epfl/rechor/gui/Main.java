@@ -4,21 +4,34 @@ import ch.epfl.rechor.StopIndex;
 import ch.epfl.rechor.journey.Journey;
 import ch.epfl.rechor.journey.JourneyExtractor;
 import ch.epfl.rechor.journey.Profile;
+import ch.epfl.rechor.journey.ProfileCache;
+import ch.epfl.rechor.journey.ProfileStore;
+import ch.epfl.rechor.journey.ProfileWarmUp;
 import ch.epfl.rechor.journey.Router;
 import ch.epfl.rechor.timetable.*;
 import ch.epfl.rechor.timetable.mapped.FileTimeTable;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.beans.binding.Bindings;
-import javafx.beans.value.ObservableValue;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.scene.Scene;
 import javafx.scene.control.SplitPane;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -37,12 +50,63 @@ public final class Main extends Application {
     // Constantes pour l'UI
     private static final String DEPARTURE_STOP_FIELD_ID = "#depStop";
 
-    // Attribut de classe : liste des voyages observables
-    private ObservableValue<List<Journey>> journeyList;
+    // Taille maximale des profils gardés en cache, en octets
+    private static final long PROFILE_CACHE_MAX_BYTES = 256L * 1024 * 1024;
 
-    // Cache du profil
-    private record ProfileKey(LocalDate date, int arrivalId) {}
-    private final Map<ProfileKey, Profile> profileCache = new HashMap<>();
+    // Dossier dans lequel les profils calculés sont stockés d'une exécution à l'autre
+    private static final Path PROFILE_STORE_PATH = Path.of(System.getProperty("java.io.tmpdir"), "rechor-profiles");
+
+    // Nombre de gares d'arrivée dont les profils sont préchargés pour chaque jour, et nombre de threads utilisés
+    private static final int WARM_UP_STATIONS_COUNT = 20;
+    private static final int WARM_UP_THREADS_COUNT = 1;
+
+    // Durée sans modification de la suggestion d'arrêt d'arrivée après laquelle son profil est calculé
+    private static final Duration SPECULATION_DELAY = Duration.millis(300);
+
+    // Durée des tranches de profil dont les voyages sont affichés pendant le calcul, en minutes
+    private static final int SLICE_MINUTES = 60;
+
+    // Nombre de threads calculant les voyages des requêtes. Ce sont des threads de plateforme, qui
+    // réutilisent d'un calcul à l'autre les tampons du routeur propres à chaque thread.
+    private static final int QUERY_THREADS_COUNT = 2;
+
+    // Attribut de classe : liste des voyages observables, et vrai ssi elle est en cours de calcul
+    private final ObjectProperty<List<Journey>> journeyList = new SimpleObjectProperty<>(List.of());
+    private final BooleanProperty computingO = new SimpleBooleanProperty(false);
+
+    // Calcul des voyages de la requête actuelle, et numéro de cette requête, qui permet d'ignorer
+    // le résultat des requêtes précédentes. Ils ne sont accédés que depuis le thread JavaFX.
+    private final ExecutorService queryExecutor = Executors.newFixedThreadPool(QUERY_THREADS_COUNT, task -> {
+        Thread thread = new Thread(task, "rechor-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> query;
+    private long queryNumber;
+
+    // Cache des profils, borné en mémoire
+    private ProfileCache profileCache;
+
+    // Préchargement en arrière-plan des profils des gares les plus fréquentées
+    private ProfileWarmUp profileWarmUp;
+
+    // Calcul spéculatif du profil de l'arrêt d'arrivée suggéré pendant la saisie, et sa date et son arrêt
+    private final ExecutorService speculationExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "rechor-speculation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> speculation;
+    private LocalDate speculationDate;
+    private String speculationStop;
+
+    // Extraction des voyages des tranches de profil publiées pendant le calcul, qui est faite sur un autre
+    // thread que celui du calcul afin de ne pas le ralentir
+    private final ExecutorService sliceExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "rechor-slices");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Point d'entrée de l'application
@@ -57,8 +121,17 @@ public final class Main extends Application {
     public void start(Stage primaryStage) throws Exception {
 
         // ----------- Chargement des données horaires ---------------------
-        TimeTable timeTable = new CachedTimeTable(FileTimeTable.in(Path.of(TIME_TABLE_PATH)));
+        Path timeTablePath = Path.of(TIME_TABLE_PATH);
+        TimeTable timeTable = new CachedTimeTable(FileTimeTable.in(timeTablePath));
         Router router = new Router(timeTable);
+        profileCache = new ProfileCache(router, PROFILE_CACHE_MAX_BYTES,
+                new ProfileStore(PROFILE_STORE_PATH, timeTablePath));
+
+        // Préchargement des profils des gares les plus fréquentées, aujourd'hui puis demain
+        LocalDate today = LocalDate.now();
+        profileWarmUp = new ProfileWarmUp(profileCache, WARM_UP_THREADS_COUNT);
+        profileWarmUp.scheduleBusiestStations(timeTable, today, WARM_UP_STATIONS_COUNT);
+        profileWarmUp.scheduleBusiestStations(timeTable, today.plusDays(1), WARM_UP_STATIONS_COUNT);
 
         // Liste des arrêts
         Stations stations = timeTable.stations();
@@ -80,43 +153,30 @@ public final class Main extends Application {
         // ---------------- UI -------------------------
         QueryUI queryUI = QueryUI.create(stopIndex); // 1)
 
-        // Mise à jour de la liste des voyages
-        journeyList = Bindings.createObjectBinding(
-                ()-> {
-                    LocalDate date = queryUI.dateO().getValue();
-                    String depStop = queryUI.depStopO().getValue();
-                    String arrStop = queryUI.arrStopO().getValue();
-
-                    if (depStop.isEmpty() || arrStop.isEmpty()) {
-                        return Collections.emptyList();
-                    }
-
-                    int arrId = stationId(timeTable, arrStop);
-
-                    ProfileKey profileKey = new ProfileKey(date, arrId);
-                    Profile profile = profileCache.computeIfAbsent(
-                            profileKey,
-
-                            k -> router.profile(
-                                    date,
-                                    arrId
-                            )
-                    );
+        // Le profil ne dépendant que de la date et de l'arrêt d'arrivée, il est calculé en arrière-plan dès
+        // que l'arrêt d'arrivée est choisi, afin que les voyages soient obtenus immédiatement une fois
+        // l'arrêt de départ choisi. Pendant la saisie, seule la première suggestion est calculée, une fois
+        // que l'utilisateur a cessé de taper pendant un court instant.
+        PauseTransition speculationDelay = new PauseTransition(SPECULATION_DELAY);
+        speculationDelay.setOnFinished(e ->
+                speculate(timeTable, queryUI.dateO().getValue(), queryUI.arrStopSuggestionO().getValue()));
+        queryUI.arrStopSuggestionO().subscribe(stop -> speculationDelay.playFromStart());
+        queryUI.arrStopO().subscribe(stop -> {
+            speculationDelay.stop();
+            speculate(timeTable, queryUI.dateO().getValue(), stop);
+        });
+        queryUI.dateO().subscribe(date -> speculate(timeTable, date, queryUI.arrStopO().getValue()));
 
-                    return JourneyExtractor.journeys(
-                                profile,
-                                stationId(timeTable, queryUI.depStopO().getValue()
-                                )
-                        );
+        // Mise à jour de la liste des voyages, calculée en arrière-plan à chaque modification de la requête
+        Runnable updateJourneys = () -> updateJourneys(timeTable,
+                queryUI.dateO().getValue(), queryUI.depStopO().getValue(), queryUI.arrStopO().getValue());
+        queryUI.dateO().subscribe(updateJourneys);
+        queryUI.depStopO().subscribe(updateJourneys);
+        queryUI.arrStopO().subscribe(updateJourneys);
+        updateJourneys.run();
 
-                },
-                queryUI.dateO(),
-                queryUI.depStopO(),
-                queryUI.arrStopO()
-        );
 
-
-        SummaryUI summaryUI = SummaryUI.create(journeyList, queryUI.timeO()); // 2)
+        SummaryUI summaryUI = SummaryUI.create(journeyList, computingO, queryUI.timeO()); // 2)
         DetailUI detailUI = DetailUI.create(summaryUI.selectedJourneyO()); // 3)
 
         // SplitPane
@@ -136,10 +196,116 @@ public final class Main extends Application {
         primaryStage.setTitle(NAME);
         primaryStage.show();
 
-        if (!journeyList.getValue().isEmpty()) {
-            Platform.runLater(() -> scene.lookup(DEPARTURE_STOP_FIELD_ID).requestFocus());
+        // Le champ de l'arrêt de départ a le focus au démarrage
+        Platform.runLater(() -> scene.lookup(DEPARTURE_STOP_FIELD_ID).requestFocus());
+
+    }
+
+    @Override
+    public void stop() {
+        // Les profils qui n'ont pas encore été préchargés ne le sont plus
+        if (profileWarmUp != null) profileWarmUp.close();
+        speculationExecutor.shutdownNow();
+        sliceExecutor.shutdownNow();
+        queryExecutor.shutdownNow();
+    }
+
+    /**
+     * Méthode privée qui lance en arrière-plan le calcul des voyages de la requête donnée, en annulant
+     * celui de la requête précédente. Les voyages sont publiés sur le thread JavaFX une fois calculés,
+     * sauf si la requête a été modifiée entre-temps. Doit être appelée depuis le thread JavaFX.
+     * @param timeTable l'horaire
+     * @param date la date du voyage, ou null s'il n'y en a pas
+     * @param depStop le nom de l'arrêt de départ, qui peut être vide
+     * @param arrStop le nom de l'arrêt d'arrivée, qui peut être vide
+     */
+    private void updateJourneys(TimeTable timeTable, LocalDate date, String depStop, String arrStop) {
+        if (query != null) query.cancel(true);
+        long number = ++queryNumber;
+        journeyList.set(List.of());
+
+        if (date == null || depStop.isEmpty() || arrStop.isEmpty()) {
+            query = null;
+            computingO.set(false);
+            return;
         }
 
+        computingO.set(true);
+        query = queryExecutor.submit(() -> {
+            // Dernière tranche publiée dont les voyages n'ont pas encore été extraits, ou null
+            AtomicReference<Profile> pendingSlice = new AtomicReference<>();
+            List<Journey> journeys;
+            try {
+                int depId = stationId(timeTable, depStop);
+
+                // Si le profil doit être calculé, les voyages partant tard sont affichés sans attendre la fin
+                // du calcul, une tranche après l'autre. Seule la dernière tranche reçue est extraite, les
+                // précédentes, qu'elle contient, devenant inutiles.
+                Profile profile = profileCache.profile(date, stationId(timeTable, arrStop), SLICE_MINUTES,
+                        (partialProfile, minDepMins) -> {
+                            if (pendingSlice.getAndSet(partialProfile) != null) return;
+                            sliceExecutor.execute(() -> {
+                                Profile slice = pendingSlice.getAndSet(null);
+                                List<Journey> partialJourneys = JourneyExtractor.journeys(slice, depId);
+                                if (!partialJourneys.isEmpty()) publishJourneys(number, partialJourneys, false);
+                            });
+                        });
+
+                // La requête a pu être annulée pendant le calcul du profil
+                if (Thread.currentThread().isInterrupted()) return;
+                journeys = JourneyExtractor.journeys(profile, depId);
+            } catch (CancellationException e) {
+                // la requête a été annulée pendant le calcul du profil, qui a été abandonné
+                return;
+            } catch (NoSuchElementException | UncheckedIOException e) {
+                // arrêt inconnu ou jour absent de l'horaire : aucun voyage
+                journeys = List.of();
+            }
+            publishJourneys(number, journeys, true);
+        });
+    }
+
+    /**
+     * Méthode privée qui publie sur le thread JavaFX les voyages de la requête de numéro donné,
+     * sauf si une autre requête a été faite entre-temps, ou si les voyages sont partiels et que
+     * ceux de la requête complète ont déjà été publiés
+     * @param number le numéro de la requête
+     * @param journeys les voyages calculés
+     * @param isComplete vrai ssi le calcul des voyages est terminé
+     */
+    private void publishJourneys(long number, List<Journey> journeys, boolean isComplete) {
+        Platform.runLater(() -> {
+            if (number != queryNumber || (!isComplete && !computingO.get())) return;
+            journeyList.set(journeys);
+            if (isComplete) computingO.set(false);
+        });
+    }
+
+    /**
+     * Méthode privée qui lance le calcul en arrière-plan du profil de l'arrêt d'arrivée donné, le jour donné,
+     * en annulant le calcul spéculatif précédent s'il porte sur un autre profil. Le profil calculé est
+     * ajouté au cache, et une requête demandant ce profil pendant son calcul attend simplement sa fin.
+     * Ce calcul n'étant pas demandé par l'utilisateur, il ne retarde pas le préchargement des profils.
+     * @param timeTable l'horaire
+     * @param date la date du voyage, ou null s'il n'y en a pas
+     * @param arrStop le nom de l'arrêt d'arrivée, qui peut être vide
+     */
+    private void speculate(TimeTable timeTable, LocalDate date, String arrStop) {
+        if (Objects.equals(date, speculationDate) && Objects.equals(arrStop, speculationStop)) return;
+
+        if (speculation != null) speculation.cancel(true);
+        speculation = null;
+        speculationDate = date;
+        speculationStop = arrStop;
+        if (date == null || arrStop == null || arrStop.isEmpty()) return;
+
+        int arrId;
+        try {
+            arrId = stationId(timeTable, arrStop);
+        } catch (NoSuchElementException e) {
+            return;
+        }
+        speculation = speculationExecutor.submit(() -> profileCache.profileInBackground(date, arrId));
     }
 
     /**
@@ -17,6 +17,7 @@ import java.util.Objects;
  * @param rootNode (Noeud racine)
  * @param depStopO (Arrêt de départ observable
  * @param arrStopO (Arrêt d'arrivée observable)
+ * @param arrStopSuggestionO (Arrêt d'arrivée suggéré observable, pendant la saisie)
  * @param dateO (Date observable)
  * @param timeO (Temps observable)
  * @author Yoann Salamin (390522)
@@ -26,6 +27,7 @@ public record QueryUI(
         Node rootNode,
         ObservableValue<String> depStopO,
         ObservableValue<String> arrStopO,
+        ObservableValue<String> arrStopSuggestionO,
         ObservableValue<LocalDate> dateO,
         ObservableValue<LocalTime> timeO
 ) {
@@ -79,6 +81,7 @@ public record QueryUI(
         // Extraction des valeurs observables
         ObservableValue<String> depStopO = depStopField.stopO();
         ObservableValue<String> arrStopO = arrStopField.stopO();
+        ObservableValue<String> arrStopSuggestionO = arrStopField.suggestionO();
         ObservableValue<LocalDate> dateO = datePicker.valueProperty();
         ObservableValue<LocalTime> timeO = textFormatter.valueProperty();
 
@@ -100,7 +103,7 @@ public record QueryUI(
         );
         rootNode.getStylesheets().add(loadCSS(CSS_PATH));
 
-        return new QueryUI(rootNode, depStopO, arrStopO, dateO, timeO);
+        return new QueryUI(rootNode, depStopO, arrStopO, arrStopSuggestionO, dateO, timeO);
     }
 
 
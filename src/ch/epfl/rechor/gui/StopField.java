@@ -23,10 +23,13 @@ import java.util.List;
  * Classe qui représente la combinaison d'un champ textuel et d'une fenêtre
  * @param textField champ textuel
  * @param stopO valeur observable contenant le nom de l'arrêt sélectionné
+ * @param suggestionO valeur observable contenant le nom de la première suggestion correspondant au texte
+ *                    saisi, qui est celle que l'utilisateur a le plus de chances de choisir, ou une chaîne
+ *                    vide s'il n'y en a pas
  * @author Yoann Salamin (390522)
  * @author Axel Verga (398787)
  */
-public record StopField(TextField textField, ObservableValue<String> stopO) {
+public record StopField(TextField textField, ObservableValue<String> stopO, ObservableValue<String> suggestionO) {
     private static final int SUGGESTION_NUMBER = 30; // Nombre de résultats proposés
     private static final int MAX_HEIGHT = 240;
 
@@ -39,6 +42,7 @@ public record StopField(TextField textField, ObservableValue<String> stopO) {
         // ------------ Champ textuel et String Property ----------------
         final TextField textField = new TextField();
         Property<String> stringProperty = new SimpleObjectProperty<>("");
+        Property<String> suggestionProperty = new SimpleObjectProperty<>("");
         // --------------------- Pop Up et liste déroulante + configurations ----------------
         final Popup popup = new Popup();
         popup.setHideOnEscape(false);
@@ -100,6 +104,7 @@ public record StopField(TextField textField, ObservableValue<String> stopO) {
                     List<String> suggestionsList = stopIndex.stopsMatching(newText, SUGGESTION_NUMBER);
                     suggestions.getItems().clear();
                     suggestions.getItems().addAll(suggestionsList);
+                    suggestionProperty.setValue(suggestionsList.isEmpty() ? "" : suggestionsList.getFirst());
 
                     // MAJ de la popup
                     if (!suggestionsList.isEmpty()) {
@@ -127,7 +132,7 @@ public record StopField(TextField textField, ObservableValue<String> stopO) {
             }
         });
 
-        return new StopField(textField, stringProperty);
+        return new StopField(textField, stringProperty, suggestionProperty);
     }
 
     /**
@@ -9,13 +9,17 @@ import javafx.beans.binding.ObjectBinding;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
@@ -37,15 +41,22 @@ import java.util.Objects;
  */
 public record SummaryUI(Node rootNode, ObservableValue<Journey> selectedJourneyO) {
 
+    private static final String COMPUTING_TEXT = "Recherche des voyages…";
+    private static final String NO_JOURNEY_TEXT = "Aucun voyage";
+    private static final double PROGRESS_INDICATOR_SIZE = 40;
+
     /**
      * Fonction dont le but est de créer le graphe de scène et de retourner
      * une instance de SummaryUI contenant sa racine ainsi que la valeur
      * observable contenant le voyage sélectionné
      * @param journeyList une liste de voyages
+     * @param computing vrai ssi la liste de voyages est en cours de calcul
      * @param time le temps désiré
      * @return une instance de SummaryUI
      */
-    public static SummaryUI create(ObservableValue<List<Journey>> journeyList, ObservableValue<LocalTime> time){
+    public static SummaryUI create(ObservableValue<List<Journey>> journeyList,
+                                   ObservableValue<Boolean> computing,
+                                   ObservableValue<LocalTime> time){
 
         // 2) --------------- Initialisation ---------------------
         // Création de notre listview à partir d'une liste observable
@@ -63,6 +74,13 @@ public record SummaryUI(Node rootNode, ObservableValue<Journey> selectedJourneyO
         // On définit la formes de nos cells
         trueList.setCellFactory(JourneyCell::new);
 
+        // Pendant le calcul des voyages, la liste vide affiche un indicateur de progression
+        ProgressIndicator progressIndicator = new ProgressIndicator();
+        progressIndicator.setMaxSize(PROGRESS_INDICATOR_SIZE, PROGRESS_INDICATOR_SIZE);
+        VBox computingPlaceholder = new VBox(progressIndicator, new Label(COMPUTING_TEXT));
+        computingPlaceholder.setAlignment(Pos.CENTER);
+        computing.subscribe(c -> trueList.setPlaceholder(c ? computingPlaceholder : new Label(NO_JOURNEY_TEXT)));
+
         // 2) --------------- Sélections ---------------------
         // On sélectionne le bon quand la journey change
         journeyList.addListener((obs, oldJ, nJ) -> {
@@ -100,6 +118,8 @@ public record SummaryUI(Node rootNode, ObservableValue<Journey> selectedJourneyO
     }
 
     private static Journey selectedJourney(List<Journey> jList, LocalTime t) {
+        // La liste est vide pendant le calcul des voyages
+        if (jList == null || jList.isEmpty()) return null;
         return jList.stream()
                 .filter(j -> !j.depTime().toLocalTime().isBefore(t))
                 .findFirst()
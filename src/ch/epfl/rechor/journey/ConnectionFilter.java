@@ -0,0 +1,66 @@
+package ch.epfl.rechor.journey;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Classe qui représente un filtre des liaisons d'un jour donné, qui exclut certaines d'entre elles du
+ * calcul des profils, p. ex. celles d'un type de véhicule ou celles desservant une gare fermée.
+ * Les liaisons exclues sont stockées dans un ensemble de bits indexé par identifiant de liaison.
+ * Les filtres sont obtenus au moyen de {@link ConnectionMasks#filter}.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ConnectionFilter {
+
+    private final LocalDate date;
+
+    // Bit i du mot i / 64 : vrai ssi la liaison d'identifiant i est exclue
+    private final long[] excludedConnections;
+
+    /**
+     * Constructeur qui construit un filtre excluant les liaisons données
+     * @param date le jour des liaisons
+     * @param excludedConnections ensemble de bits des liaisons exclues, qui n'est pas copié
+     */
+    ConnectionFilter(LocalDate date, long[] excludedConnections) {
+        this.date = Objects.requireNonNull(date);
+        this.excludedConnections = excludedConnections;
+    }
+
+    /**
+     * Méthode qui retourne le jour des liaisons filtrées
+     * @return la date
+     */
+    public LocalDate date() {
+        return date;
+    }
+
+    /**
+     * Méthode qui retourne vrai ssi la liaison d'identifiant donné est exclue
+     * @param connectionId l'identifiant de la liaison
+     * @return vrai ssi la liaison est exclue
+     * @throws IndexOutOfBoundsException si l'identifiant est invalide
+     */
+    public boolean excludes(int connectionId) {
+        return (excludedConnections[connectionId >>> 6] & 1L << connectionId) != 0;
+    }
+
+    /**
+     * Méthode qui retourne le nombre de liaisons exclues
+     * @return le nombre de liaisons exclues
+     */
+    public int excludedCount() {
+        int count = 0;
+        for (long word : excludedConnections) count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Méthode qui retourne l'ensemble de bits des liaisons exclues, sans le copier
+     * @return l'ensemble de bits des liaisons exclues
+     */
+    long[] excludedConnections() {
+        return excludedConnections;
+    }
+}
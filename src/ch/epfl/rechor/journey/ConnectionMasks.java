@@ -0,0 +1,158 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.Routes;
+import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.Trips;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Classe qui représente les masques des liaisons d'un jour donné, précalculés une seule fois afin que
+ * les filtres des requêtes soient obtenus rapidement : pour chaque type de véhicule, l'ensemble de bits
+ * des liaisons effectuées par un véhicule de ce type. Les lignes exclues et les gares fermées, bien plus
+ * nombreuses que les types de véhicule, ne sont pas précalculées mais testées pour chaque liaison.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ConnectionMasks {
+
+    private final TimeTable timeTable;
+    private final LocalDate date;
+    private final Connections connections;
+
+    // Ligne de chaque course du jour
+    private final int[] tripRoutes;
+
+    // Ensemble de bits des liaisons de chaque type de véhicule, indexé par l'ordinal de celui-ci
+    private final long[][] vehicleMasks;
+
+    /**
+     * Constructeur qui calcule les masques des liaisons de l'horaire donné, le jour donné
+     * @param timeTable l'horaire
+     * @param date le jour des liaisons
+     */
+    public ConnectionMasks(TimeTable timeTable, LocalDate date) {
+        this.timeTable = Objects.requireNonNull(timeTable);
+        this.date = Objects.requireNonNull(date);
+        this.connections = timeTable.connectionsFor(date);
+
+        // Type de véhicule de chaque course, obtenu une seule fois par ligne
+        Routes routes = timeTable.routes();
+        Vehicle[] routeVehicles = new Vehicle[routes.size()];
+        for (int routeId = 0; routeId < routeVehicles.length; routeId++) {
+            routeVehicles[routeId] = routes.vehicle(routeId);
+        }
+        Trips trips = timeTable.tripsFor(date);
+        this.tripRoutes = new int[trips.size()];
+        byte[] tripVehicles = new byte[trips.size()];
+        for (int tripId = 0; tripId < tripVehicles.length; tripId++) {
+            tripRoutes[tripId] = trips.routeId(tripId);
+            tripVehicles[tripId] = (byte) routeVehicles[tripRoutes[tripId]].ordinal();
+        }
+
+        vehicleMasks = new long[Vehicle.ALL.size()][wordsCount(connections.size())];
+        for (int id = 0; id < connections.size(); id++) {
+            vehicleMasks[tripVehicles[connections.tripId(id)]][id >>> 6] |= 1L << id;
+        }
+    }
+
+    /**
+     * Méthode qui retourne le jour des liaisons
+     * @return la date
+     */
+    public LocalDate date() {
+        return date;
+    }
+
+    /**
+     * Méthode qui retourne un filtre excluant les liaisons effectuées par l'un des types de véhicule
+     * donnés, ainsi que celles partant ou arrivant dans l'une des gares fermées données. Une course
+     * ne peut donc pas être empruntée à travers une gare fermée.
+     * @param excludedVehicles types de véhicule exclus
+     * @param closedStationIds identifiants des gares fermées
+     * @return le filtre
+     * @throws IndexOutOfBoundsException si l'une des gares n'existe pas
+     */
+    public ConnectionFilter filter(Set<Vehicle> excludedVehicles, Set<Integer> closedStationIds) {
+        return filter(excludedVehicles, closedStationIds, Set.of());
+    }
+
+    /**
+     * Méthode qui retourne un filtre excluant les liaisons effectuées par l'un des types de véhicule
+     * donnés ou sur l'une des lignes données, ainsi que celles partant ou arrivant dans l'une des gares
+     * fermées données. Une course ne peut donc pas être empruntée à travers une gare fermée.
+     * @param excludedVehicles types de véhicule exclus
+     * @param closedStationIds identifiants des gares fermées
+     * @param excludedRouteIds identifiants des lignes exclues
+     * @return le filtre
+     * @throws IndexOutOfBoundsException si l'une des gares ou des lignes n'existe pas
+     */
+    public ConnectionFilter filter(Set<Vehicle> excludedVehicles, Set<Integer> closedStationIds,
+                                   Set<Integer> excludedRouteIds) {
+        long[] excluded = new long[wordsCount(connections.size())];
+        for (Vehicle vehicle : excludedVehicles) {
+            long[] mask = vehicleMasks[vehicle.ordinal()];
+            for (int w = 0; w < excluded.length; w++) excluded[w] |= mask[w];
+        }
+
+        if (!closedStationIds.isEmpty()) {
+            // Masque des gares fermées, testé pour chaque liaison
+            long[] closedStations = bitSet(closedStationIds, timeTable.stations().size());
+            for (int id = 0; id < connections.size(); id++) {
+                int depStationId = timeTable.stationId(connections.depStopId(id));
+                int arrStationId = timeTable.stationId(connections.arrStopId(id));
+                if (contains(closedStations, depStationId) || contains(closedStations, arrStationId)) {
+                    excluded[id >>> 6] |= 1L << id;
+                }
+            }
+        }
+
+        if (!excludedRouteIds.isEmpty()) {
+            // Masque des lignes exclues, testé pour chaque liaison au moyen de la ligne de sa course
+            long[] excludedRoutes = bitSet(excludedRouteIds, timeTable.routes().size());
+            for (int id = 0; id < connections.size(); id++) {
+                if (contains(excludedRoutes, tripRoutes[connections.tripId(id)])) excluded[id >>> 6] |= 1L << id;
+            }
+        }
+
+        return new ConnectionFilter(date, excluded);
+    }
+
+    /**
+     * Fonction qui retourne l'ensemble de bits des index donnés
+     * @param ids les index
+     * @param size le nombre d'index valides
+     * @return l'ensemble de bits
+     * @throws IndexOutOfBoundsException si l'un des index est invalide
+     */
+    private static long[] bitSet(Set<Integer> ids, int size) {
+        long[] bits = new long[wordsCount(size)];
+        for (int id : ids) {
+            Objects.checkIndex(id, size);
+            bits[id >>> 6] |= 1L << id;
+        }
+        return bits;
+    }
+
+    /**
+     * Fonction qui retourne vrai ssi l'ensemble de bits donné contient l'index donné
+     * @param bits l'ensemble de bits
+     * @param id l'index
+     * @return vrai ssi le bit de l'index est à 1
+     */
+    private static boolean contains(long[] bits, int id) {
+        return (bits[id >>> 6] & 1L << id) != 0;
+    }
+
+    /**
+     * Fonction qui retourne le nombre de mots de 64 bits nécessaires pour stocker le nombre de bits donné
+     * @param bitsCount le nombre de bits
+     * @return le nombre de mots
+     */
+    private static int wordsCount(int bitsCount) {
+        return (bitsCount + Long.SIZE - 1) / Long.SIZE;
+    }
+}
@@ -0,0 +1,86 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.PackedRange;
+import ch.epfl.rechor.timetable.Transfers;
+
+import java.util.Arrays;
+
+/**
+ * Classe qui représente les changements d'un horaire indexés par gare de départ, alors que
+ * {@link Transfers} les indexe par gare d'arrivée. Elle est utilisée par les routeurs qui parcourent
+ * les liaisons par heure de départ croissante, et doivent donc savoir où l'on peut se rendre à pied
+ * depuis la gare d'arrivée d'une liaison.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+final class DepartingTransfers {
+
+    // Les changements partant de la gare s sont aux index start[s] (inclus) à start[s + 1] (exclu)
+    // des tableaux suivants
+    private final int[] start;
+    private final int[] arrStationIds;
+    private final int[] minutes;
+
+    /**
+     * Constructeur qui indexe par gare de départ les changements donnés
+     * @param transfers les changements, indexés par gare d'arrivée
+     * @param stationsCount le nombre de gares de l'horaire
+     */
+    DepartingTransfers(Transfers transfers, int stationsCount) {
+        start = new int[stationsCount + 1];
+        for (int id = 0; id < transfers.size(); id++) {
+            start[transfers.depStationId(id) + 1]++;
+        }
+        for (int s = 0; s < stationsCount; s++) {
+            start[s + 1] += start[s];
+        }
+
+        arrStationIds = new int[transfers.size()];
+        minutes = new int[transfers.size()];
+        int[] next = Arrays.copyOf(start, stationsCount);
+        for (int arrStationId = 0; arrStationId < stationsCount; arrStationId++) {
+            int interval = transfers.arrivingAt(arrStationId);
+            for (int id = PackedRange.startInclusive(interval); id < PackedRange.endExclusive(interval); id++) {
+                int index = next[transfers.depStationId(id)]++;
+                arrStationIds[index] = arrStationId;
+                this.minutes[index] = transfers.minutes(id);
+            }
+        }
+    }
+
+    /**
+     * Méthode qui retourne l'index du premier changement partant de la gare donnée
+     * @param stationId l'identifiant de la gare
+     * @return l'index du premier changement
+     */
+    int start(int stationId) {
+        return start[stationId];
+    }
+
+    /**
+     * Méthode qui retourne l'index suivant celui du dernier changement partant de la gare donnée
+     * @param stationId l'identifiant de la gare
+     * @return l'index suivant celui du dernier changement
+     */
+    int end(int stationId) {
+        return start[stationId + 1];
+    }
+
+    /**
+     * Méthode qui retourne la gare d'arrivée du changement d'index donné
+     * @param index l'index du changement
+     * @return l'identifiant de la gare d'arrivée
+     */
+    int arrStationId(int index) {
+        return arrStationIds[index];
+    }
+
+    /**
+     * Méthode qui retourne la durée du changement d'index donné
+     * @param index l'index du changement
+     * @return la durée en minutes
+     */
+    int minutes(int index) {
+        return minutes[index];
+    }
+}
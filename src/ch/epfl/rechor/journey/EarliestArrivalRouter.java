@@ -0,0 +1,240 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.Trips;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Classe qui représente un routeur calculant, pour une gare de départ, une heure de départ et une gare
+ * d'arrivée données, un voyage arrivant le plus tôt possible. Contrairement à {@link Router}, qui calcule
+ * les voyages optimaux depuis toutes les gares du réseau, seules les liaisons partant après l'heure de
+ * départ et avant la meilleure arrivée connue sont parcourues.
+ * <p>
+ * L'heure d'arrivée optimisée est celle des critères du profil calculé par {@link Router} : elle inclut
+ * toujours le changement final vers la gare d'arrivée, même lorsque le dernier véhicule y arrive.
+ * Le voyage retourné est donc l'un des voyages d'heure d'arrivée minimale parmi ceux du profil qui
+ * partent au plus tôt à l'heure donnée.
+ * <p>
+ * Lorsque des bornes inférieures des durées de voyage lui sont fournies, le routeur ignore de plus
+ * les liaisons depuis lesquelles la gare d'arrivée ne peut pas être atteinte avant la meilleure arrivée
+ * connue, ce qui ne change pas le voyage retourné.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class EarliestArrivalRouter {
+
+    // Valeur des tableaux d'heures pour une gare non encore atteinte
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    // Liaison d'arrivée d'une gare atteinte à pied directement depuis la gare de départ
+    private static final int FROM_DEPARTURE = -1;
+
+    private final TimeTable timetable;
+
+    // Changements indexés par gare de départ
+    private final DepartingTransfers departingTransfers;
+
+    // Bornes inférieures des durées de voyage, ou null si elles ne sont pas connues
+    private final TravelTimeBounds bounds;
+
+    /**
+     * Constructeur qui construit un routeur pour l'horaire donné, en indexant une fois pour toutes
+     * ses changements par gare de départ
+     * @param timetable l'horaire
+     */
+    public EarliestArrivalRouter(TimeTable timetable) {
+        this.timetable = Objects.requireNonNull(timetable);
+        this.departingTransfers = new DepartingTransfers(timetable.transfers(), timetable.stations().size());
+        this.bounds = null;
+    }
+
+    /**
+     * Constructeur qui construit un routeur pour l'horaire donné, utilisant les bornes inférieures des
+     * durées de voyage données pour ignorer les liaisons inutiles lors des requêtes portant sur leur jour.
+     * Les requêtes portant sur un autre jour sont traitées sans elles.
+     * @param timetable l'horaire
+     * @param bounds les bornes inférieures des durées de voyage d'un jour
+     */
+    public EarliestArrivalRouter(TimeTable timetable, TravelTimeBounds bounds) {
+        this.timetable = Objects.requireNonNull(timetable);
+        this.departingTransfers = new DepartingTransfers(timetable.transfers(), timetable.stations().size());
+        this.bounds = Objects.requireNonNull(bounds);
+    }
+
+    /**
+     * Méthode qui retourne l'horaire du routeur
+     * @return l'horaire
+     */
+    public TimeTable timetable() {
+        return timetable;
+    }
+
+    /**
+     * Méthode qui retourne un voyage partant de la gare de départ donnée au plus tôt à l'heure donnée,
+     * et arrivant le plus tôt possible à la gare d'arrivée donnée, le jour donné
+     * @param date la date du voyage
+     * @param depStationId l'identifiant de la gare de départ
+     * @param depMins heure de départ minimale, en minutes après minuit
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return le voyage arrivant le plus tôt, ou null s'il n'en existe aucun
+     * @throws IndexOutOfBoundsException si l'une des gares n'existe pas
+     */
+    public Journey journey(LocalDate date, int depStationId, int depMins, int arrStationId) {
+        Objects.requireNonNull(date);
+        int stationsCount = timetable.stations().size();
+        Objects.checkIndex(depStationId, stationsCount);
+        Objects.checkIndex(arrStationId, stationsCount);
+
+        Connections connections = timetable.connectionsFor(date);
+        Trips trips = timetable.tripsFor(date);
+
+        // Heure à laquelle on peut au plus tôt prendre un véhicule dans chaque gare, liaison dont
+        // l'arrivée permet de le faire, et heure d'arrivée au plus tôt d'un véhicule dans chaque gare
+        int[] readyMins = new int[stationsCount];
+        int[] readyVia = new int[stationsCount];
+        int[] arrivalMins = new int[stationsCount];
+        Arrays.fill(readyMins, UNREACHED);
+        Arrays.fill(arrivalMins, UNREACHED);
+
+        // Courses atteintes, et liaison à laquelle on est monté dans chacune d'elles
+        long[] reachedTrips = new long[(trips.size() + Long.SIZE - 1) / Long.SIZE];
+        int[] boardingConnection = new int[trips.size()];
+
+        // Durée de la marche finale vers la gare d'arrivée, -1 si elle n'est pas faisable
+        int[] minutesToArrival = new int[stationsCount];
+        Arrays.fill(minutesToArrival, -1);
+        timetable.transfers().fillMinutesTo(arrStationId, minutesToArrival);
+
+        // Les bornes ne sont calculées que pour les gares atteintes, qui sont généralement peu nombreuses
+        boolean pruned = bounds != null && bounds.date().equals(date);
+
+        relaxTransfers(depStationId, depMins, FROM_DEPARTURE, readyMins, readyVia);
+
+        int bestArrMins = UNREACHED;
+        int lastConnection = -1;
+
+        // Les liaisons sont triées par heure de départ décroissante : on les parcourt à l'envers,
+        // depuis la dernière partant au plus tôt à depMins
+        for (int i = firstDepartingBefore(connections, depMins) - 1; i >= 0; i--) {
+            int connDepMins = connections.depMins(i);
+
+            // Aucune liaison plus tardive ne peut plus améliorer l'arrivée
+            if (connDepMins >= bestArrMins) break;
+
+            int tripId = connections.tripId(i);
+            long tripBit = 1L << tripId;
+            if ((reachedTrips[tripId >>> 6] & tripBit) == 0) {
+                int connDepStationId = timetable.stationId(connections.depStopId(i));
+                if (readyMins[connDepStationId] > connDepMins) continue;
+
+                reachedTrips[tripId >>> 6] |= tripBit;
+                boardingConnection[tripId] = i;
+            }
+
+            int connArrMins = connections.arrMins(i);
+            int connArrStationId = timetable.stationId(connections.arrStopId(i));
+
+            // Une liaison depuis laquelle on ne peut pas améliorer l'arrivée n'est pas suivie, mais
+            // sa course reste atteinte pour ses liaisons suivantes
+            if (pruned) {
+                int lowerBound = bounds.minutesBetween(connArrStationId, arrStationId);
+                if (lowerBound == TravelTimeBounds.UNREACHABLE || connArrMins + lowerBound >= bestArrMins) continue;
+            }
+
+            int walkMinutes = minutesToArrival[connArrStationId];
+            if (walkMinutes != -1 && connArrMins + walkMinutes < bestArrMins) {
+                bestArrMins = connArrMins + walkMinutes;
+                lastConnection = i;
+            }
+
+            if (connArrMins < arrivalMins[connArrStationId]) {
+                arrivalMins[connArrStationId] = connArrMins;
+                relaxTransfers(connArrStationId, connArrMins, i, readyMins, readyVia);
+            }
+        }
+
+        if (lastConnection == -1) return null;
+
+        return journey(date, connections, depStationId, arrStationId, lastConnection, boardingConnection, readyVia);
+    }
+
+    /**
+     * Fonction qui met à jour l'heure à laquelle on peut prendre un véhicule dans les gares
+     * atteignables à pied depuis la gare donnée
+     * @param stationId l'identifiant de la gare
+     * @param mins heure à laquelle on se trouve dans la gare, en minutes après minuit
+     * @param via liaison arrivant dans la gare, ou FROM_DEPARTURE s'il s'agit de la gare de départ
+     * @param readyMins heures auxquelles on peut prendre un véhicule dans chaque gare
+     * @param readyVia liaisons permettant d'atteindre chaque gare
+     */
+    private void relaxTransfers(int stationId, int mins, int via, int[] readyMins, int[] readyVia) {
+        for (int k = departingTransfers.start(stationId); k < departingTransfers.end(stationId); k++) {
+            int arrStationId = departingTransfers.arrStationId(k);
+            int readyAt = mins + departingTransfers.minutes(k);
+            if (readyAt < readyMins[arrStationId]) {
+                readyMins[arrStationId] = readyAt;
+                readyVia[arrStationId] = via;
+            }
+        }
+    }
+
+    /**
+     * Fonction qui reconstruit le voyage dont la dernière liaison est donnée, en remontant
+     * les courses empruntées jusqu'à la gare de départ
+     * @param date la date du voyage
+     * @param connections les liaisons du jour
+     * @param depStationId l'identifiant de la gare de départ
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param lastConnection la dernière liaison du voyage
+     * @param boardingConnection liaison à laquelle on est monté dans chaque course atteinte
+     * @param readyVia liaison permettant d'atteindre chaque gare
+     * @return le voyage
+     */
+    private Journey journey(
+            LocalDate date,
+            Connections connections,
+            int depStationId,
+            int arrStationId,
+            int lastConnection,
+            int[] boardingConnection,
+            int[] readyVia
+    ) {
+        // Étapes en transport, de la dernière à la première
+        List<RideJourneys.Ride> rides = new ArrayList<>();
+        int alightConnection = lastConnection;
+        while (alightConnection != FROM_DEPARTURE) {
+            int boardConnection = boardingConnection[connections.tripId(alightConnection)];
+            rides.add(new RideJourneys.Ride(boardConnection, alightConnection));
+            alightConnection = readyVia[timetable.stationId(connections.depStopId(boardConnection))];
+        }
+
+        return RideJourneys.journey(timetable, date, depStationId, arrStationId, rides.reversed());
+    }
+
+    /**
+     * Fonction qui retourne, par dichotomie, le nombre de liaisons partant au plus tôt à l'heure donnée,
+     * qui sont les premières, les liaisons étant triées par heure de départ décroissante
+     * @param connections les liaisons triées
+     * @param mins heure de départ, en minutes après minuit
+     * @return l'index de la première liaison partant avant mins
+     */
+    private static int firstDepartingBefore(Connections connections, int mins) {
+        int low = 0;
+        int high = connections.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (connections.depMins(middle) >= mins) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,102 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.Bits32_24_8;
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.TimeTable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Classe qui représente un extracteur des voyages d'un profil en avant.
+ * Publique et non instantiable.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ForwardJourneyExtractor {
+
+    // Valeur retournée par findCriteria lorsqu'aucun tuple ne correspond
+    private static final long NOT_FOUND = -1;
+
+    // Rendre la classe non instantiable
+    private ForwardJourneyExtractor() {}
+
+    /**
+     * Retourne la totalité des voyages optimaux correspondant au profil en avant et à la gare d'arrivée donnés,
+     * triés par heure de départ puis par heure d'arrivée.
+     * @param profile le profil en avant de la gare de départ
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return la liste triée des voyages
+     * @throws IndexOutOfBoundsException si la gare d'arrivée n'existe pas
+     */
+    public static List<Journey> journeys(ForwardProfile profile, int arrStationId) {
+        List<Journey> journeys = new ArrayList<>();
+        profile.forStation(arrStationId).forEach(criteria -> journeys.add(makeJourney(profile, criteria, arrStationId)));
+        journeys.sort(Comparator.comparing(Journey::depTime).thenComparing(Journey::arrTime));
+        return journeys;
+    }
+
+    /**
+     * Construit le voyage correspondant au tuple donné de la frontière de la gare d'arrivée, en remontant
+     * les étapes en transport de la dernière à la première
+     * @param profile le profil en avant
+     * @param lastCriteria le tuple de la gare d'arrivée
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return le voyage
+     */
+    private static Journey makeJourney(ForwardProfile profile, long lastCriteria, int arrStationId) {
+        TimeTable timeTable = profile.timeTable();
+        Connections connections = profile.connections();
+        int depMins = PackedCriteria.depMins(lastCriteria);
+
+        List<RideJourneys.Ride> rides = new ArrayList<>();
+        long criteria = lastCriteria;
+        while (true) {
+            int payload = PackedCriteria.payload(criteria);
+            int boardConnection = Bits32_24_8.unpack24(payload);
+            int alightConnection = boardConnection;
+            for (int k = 0; k < Bits32_24_8.unpack8(payload); k++) {
+                alightConnection = connections.nextConnectionId(alightConnection);
+            }
+            rides.add(new RideJourneys.Ride(boardConnection, alightConnection));
+
+            int changes = PackedCriteria.changes(criteria);
+            if (changes == 0) break;
+
+            // Le tuple ayant permis de monter dans le véhicule est celui de la gare de montée qui a la même
+            // heure de départ, un changement de moins, et qui y arrive à temps. Il est unique, car deux
+            // tuples d'une frontière ayant la même heure de départ et le même nombre de changements
+            // ne peuvent pas coexister
+            int boardStationId = timeTable.stationId(connections.depStopId(boardConnection));
+            criteria = findCriteria(profile.forStation(boardStationId),
+                    depMins, changes - 1, connections.depMins(boardConnection));
+            if (criteria == NOT_FOUND) {
+                throw new IllegalStateException("no criteria leading to connection " + boardConnection);
+            }
+        }
+
+        return RideJourneys.journey(timeTable, profile.date(), profile.depStationId(), arrStationId, rides.reversed());
+    }
+
+    /**
+     * Fonction qui retourne le tuple de la frontière donnée ayant l'heure de départ et le nombre
+     * de changements donnés, et arrivant au plus tard à l'heure donnée
+     * @param front la frontière
+     * @param depMins l'heure de départ
+     * @param changes le nombre de changements
+     * @param maxArrMins l'heure d'arrivée maximale
+     * @return le tuple, ou NOT_FOUND s'il n'existe pas
+     */
+    private static long findCriteria(ParetoFront front, int depMins, int changes, int maxArrMins) {
+        long[] found = {NOT_FOUND};
+        front.forEach(criteria -> {
+            if (PackedCriteria.depMins(criteria) == depMins
+                    && PackedCriteria.changes(criteria) == changes
+                    && PackedCriteria.arrMins(criteria) <= maxArrMins) {
+                found[0] = criteria;
+            }
+        });
+        return found[0];
+    }
+}
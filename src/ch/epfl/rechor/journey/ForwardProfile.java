@@ -0,0 +1,219 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.Trips;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Représente un profil « en avant » : pour chaque gare du réseau, la frontière de Pareto des voyages
+ * optimaux permettant de s'y rendre depuis une gare de départ donnée, un jour donné.
+ * <p>
+ * Les critères des tuples sont les mêmes que ceux de {@link Profile} : heure de départ de la gare de départ,
+ * heure d'arrivée à la gare du tuple, changement final inclus, et nombre de changements. La charge utile
+ * contient la liaison à laquelle on monte dans le dernier véhicule du voyage (24 bits de poids fort) et
+ * le nombre d'arrêts intermédiaires avant d'en descendre (8 bits de poids faible).
+ * @param timeTable l'horaire
+ * @param date la date des voyages
+ * @param depStationId l'identifiant de la gare de départ
+ * @param stationFront la frontière de Pareto de chaque gare, indexée par identifiant de gare
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public record ForwardProfile(TimeTable timeTable, LocalDate date, int depStationId, List<ParetoFront> stationFront) {
+
+    /**
+     * Constructeur compact, qui copie la table des frontières afin de garantir l'immuabilité de la classe
+     */
+    public ForwardProfile {
+        stationFront = List.copyOf(stationFront);
+    }
+
+    /**
+     * Méthode qui retourne les liaisons de l'horaire, à la date du profil
+     * @return les liaisons
+     */
+    public Connections connections() {
+        return timeTable.connectionsFor(date);
+    }
+
+    /**
+     * Méthode qui retourne les courses de l'horaire, à la date du profil
+     * @return les courses
+     */
+    public Trips trips() {
+        return timeTable.tripsFor(date);
+    }
+
+    /**
+     * Méthode qui retourne la frontière de Pareto des voyages menant à la gare d'index donné
+     * @param stationId id de la gare
+     * @return la frontière de Pareto de la gare
+     * @throws IndexOutOfBoundsException si l'index est invalide
+     */
+    public ParetoFront forStation(int stationId) {
+        return stationFront.get(stationId);
+    }
+
+    /**
+     * Classe qui représente un bâtisseur de profil en avant.
+     * <p>
+     * Pendant la construction, les frontières stockent des critères « miroirs » : l'heure d'arrivée est
+     * placée dans le champ de l'heure de départ et inversement, chacune étant symétrisée afin que
+     * la dominance soit conservée. Les tuples des frontières des bâtisseurs sont ainsi triés par heure
+     * d'arrivée croissante, ce qui permet au routeur de ne parcourir que ceux qui arrivent assez tôt.
+     * Les critères sont remis dans leur forme habituelle lors de la construction du profil.
+     */
+    static final class Builder {
+
+        // Somme des heures minimale et maximale représentables : une heure h devient MIRROR - h,
+        // qui est également représentable
+        private static final int MIRROR = PackedCriteria.MIN_MINS + PackedCriteria.MAX_MINS;
+
+        private final TimeTable timeTable;
+        private final LocalDate date;
+        private final int depStationId;
+
+        // zone partagée dans laquelle sont stockés les tuples des frontières
+        private final FrontArena arena;
+
+        // bâtisseurs des frontières des gares et des courses, null tant qu'ils n'ont pas été créés
+        private final ParetoFront.Builder[] stationFronts;
+        private final ParetoFront.Builder[] tripFronts;
+
+        /**
+         * Constructeur qui construit un bâtisseur de profil en avant vide
+         * @param timeTable l'horaire
+         * @param date la date des voyages
+         * @param depStationId l'identifiant de la gare de départ
+         * @param arena zone partagée dans laquelle stocker les tuples des frontières
+         */
+        Builder(TimeTable timeTable, LocalDate date, int depStationId, FrontArena arena) {
+            this.timeTable = timeTable;
+            this.date = date;
+            this.depStationId = depStationId;
+            this.arena = arena;
+            this.stationFronts = new ParetoFront.Builder[timeTable.stations().size()];
+            this.tripFronts = new ParetoFront.Builder[timeTable.tripsFor(date).size()];
+        }
+
+        /**
+         * Fonction qui retourne les critères miroirs correspondant aux critères donnés
+         * @param depMins l'heure de départ de la gare de départ
+         * @param arrMins l'heure d'arrivée
+         * @param changes le nombre de changements
+         * @param payload la charge utile
+         * @return les critères miroirs empaquetés
+         */
+        static long pack(int depMins, int arrMins, int changes, int payload) {
+            return PackedCriteria.withDepMins(PackedCriteria.pack(MIRROR - depMins, changes, payload), MIRROR - arrMins);
+        }
+
+        /**
+         * Fonction qui retourne l'heure de départ des critères miroirs donnés
+         * @param mirroredCriteria les critères miroirs empaquetés
+         * @return l'heure de départ de la gare de départ
+         */
+        static int depMins(long mirroredCriteria) {
+            return MIRROR - PackedCriteria.arrMins(mirroredCriteria);
+        }
+
+        /**
+         * Fonction qui retourne l'heure d'arrivée des critères miroirs donnés
+         * @param mirroredCriteria les critères miroirs empaquetés
+         * @return l'heure d'arrivée
+         */
+        static int arrMins(long mirroredCriteria) {
+            return MIRROR - PackedCriteria.depMins(mirroredCriteria);
+        }
+
+        /**
+         * Fonction qui retourne le bâtisseur de la frontière de la gare donnée, en le créant au besoin
+         * @param stationId l'identifiant de la gare
+         * @return le bâtisseur de la frontière de la gare
+         */
+        ParetoFront.Builder forStation(int stationId) {
+            ParetoFront.Builder front = stationFronts[stationId];
+            if (front == null) {
+                front = new ParetoFront.Builder(arena);
+                stationFronts[stationId] = front;
+            }
+            return front;
+        }
+
+        /**
+         * Fonction qui retourne le bâtisseur de la frontière de la gare donnée, s'il existe
+         * @param stationId l'identifiant de la gare
+         * @return le bâtisseur de la frontière de la gare, ou null s'il n'a pas été créé
+         */
+        ParetoFront.Builder forStationIfPresent(int stationId) {
+            return stationFronts[stationId];
+        }
+
+        /**
+         * Fonction qui retourne le bâtisseur de la frontière de la course donnée
+         * @param tripId l'identifiant de la course
+         * @return le bâtisseur de la frontière de la course, ou null s'il n'a pas été créé
+         */
+        ParetoFront.Builder forTrip(int tripId) {
+            return tripFronts[tripId];
+        }
+
+        /**
+         * Fonction qui remplace les tuples de la frontière de la course donnée par ceux du bâtisseur donné
+         * @param tripId l'identifiant de la course
+         * @param front le bâtisseur dont les tuples sont copiés
+         */
+        void setForTrip(int tripId, ParetoFront.Builder front) {
+            if (tripFronts[tripId] == null) tripFronts[tripId] = new ParetoFront.Builder(front, arena);
+            else tripFronts[tripId].clear().addAll(front);
+        }
+
+        /**
+         * Fonction qui libère la frontière de la course donnée, qui ne sera plus utilisée
+         * @param tripId l'identifiant de la course
+         */
+        void releaseForTrip(int tripId) {
+            if (tripFronts[tripId] == null) return;
+            tripFronts[tripId].release();
+            tripFronts[tripId] = null;
+        }
+
+        /**
+         * Fonction qui retourne le profil en avant, dont les critères sont remis dans leur forme habituelle
+         * et triés comme ceux d'un bâtisseur de frontière
+         * @return le profil en avant
+         */
+        ForwardProfile build() {
+            int[] offsets = new int[stationFronts.length + 1];
+            for (int i = 0; i < stationFronts.length; i++) {
+                offsets[i + 1] = offsets[i] + (stationFronts[i] == null ? 0 : stationFronts[i].size());
+            }
+
+            long[] tuples = new long[offsets[stationFronts.length]];
+            List<ParetoFront> fronts = new ArrayList<>(stationFronts.length);
+            for (int i = 0; i < stationFronts.length; i++) {
+                ParetoFront.Builder front = stationFronts[i];
+                if (front == null) {
+                    fronts.add(ParetoFront.EMPTY);
+                    continue;
+                }
+
+                for (int k = 0; k < front.size(); k++) {
+                    long mirroredCriteria = front.get(k);
+                    long criteria = PackedCriteria.pack(arrMins(mirroredCriteria),
+                            PackedCriteria.changes(mirroredCriteria), PackedCriteria.payload(mirroredCriteria));
+                    tuples[offsets[i] + k] = PackedCriteria.withDepMins(criteria, depMins(mirroredCriteria));
+                }
+                Arrays.sort(tuples, offsets[i], offsets[i + 1]);
+                fronts.add(new ParetoFront(tuples, offsets[i], offsets[i + 1]));
+            }
+
+            return new ForwardProfile(timeTable, date, depStationId, fronts);
+        }
+    }
+}
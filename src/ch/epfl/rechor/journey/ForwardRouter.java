@@ -0,0 +1,173 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.TimeTable;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Classe qui représente un routeur calculant le profil « en avant » d'une gare de départ, c'est-à-dire
+ * les voyages optimaux permettant de se rendre depuis cette gare à n'importe quelle gare du réseau, un jour
+ * donné. Il s'agit de l'algorithme CSA de {@link Router} appliqué dans l'autre sens : les liaisons sont
+ * parcourues par heure de départ croissante, et les frontières des gares contiennent les voyages y arrivant.
+ * <p>
+ * Un seul parcours des liaisons répond ainsi à toutes les requêtes partant d'une même gare, alors que
+ * {@link Router} en nécessite un par gare d'arrivée.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ForwardRouter {
+
+    // Zone partagée propre à chaque fil d'exécution, contenant les frontières du profil en cours de calcul
+    private static final ThreadLocal<FrontArena> ARENA = ThreadLocal.withInitial(FrontArena::new);
+
+    private final TimeTable timetable;
+    private final DepartingTransfers departingTransfers;
+
+    /**
+     * Constructeur qui construit un routeur pour l'horaire donné, en indexant une fois pour toutes
+     * ses changements par gare de départ
+     * @param timetable l'horaire
+     */
+    public ForwardRouter(TimeTable timetable) {
+        this.timetable = Objects.requireNonNull(timetable);
+        this.departingTransfers = new DepartingTransfers(timetable.transfers(), timetable.stations().size());
+    }
+
+    /**
+     * Méthode qui retourne l'horaire du routeur
+     * @return l'horaire
+     */
+    public TimeTable timetable() {
+        return timetable;
+    }
+
+    /**
+     * Méthode qui retourne le profil de tous les voyages optimaux permettant de se rendre depuis
+     * la gare de départ donnée à n'importe quelle gare du réseau, le jour donné
+     * @param date la date des voyages
+     * @param depStationId l'identifiant de la gare de départ
+     * @return le profil en avant des voyages optimaux
+     * @throws IndexOutOfBoundsException si la gare de départ n'existe pas
+     */
+    public ForwardProfile profile(LocalDate date, int depStationId) {
+        Objects.requireNonNull(date);
+        Objects.checkIndex(depStationId, timetable.stations().size());
+
+        FrontArena arena = ARENA.get();
+        try {
+            return profile(date, depStationId, arena.reset());
+        } finally {
+            // Les frontières ont été copiées dans le profil, la zone peut être libérée
+            arena.release();
+        }
+    }
+
+    /**
+     * Fonction qui exécute l'algorithme CSA en avant, les frontières étant stockées dans la zone donnée
+     * @param date la date des voyages
+     * @param depStationId l'identifiant de la gare de départ
+     * @param arena la zone partagée, vide
+     * @return le profil en avant des voyages optimaux
+     */
+    private ForwardProfile profile(LocalDate date, int depStationId, FrontArena arena) {
+        int stationsCount = timetable.stations().size();
+
+        // Les tuples des frontières sont des critères miroirs (voir ForwardProfile.Builder)
+        Connections connections = timetable.connectionsFor(date);
+        ForwardProfile.Builder p = new ForwardProfile.Builder(timetable, date, depStationId, arena);
+        ParetoFront.Builder f = new ParetoFront.Builder();
+        long[] tuplesWithPayload = new long[16];
+
+        // Durée de la marche initiale depuis la gare de départ, -1 si elle n'est pas faisable
+        int[] minutesFromDeparture = new int[stationsCount];
+        Arrays.fill(minutesFromDeparture, -1);
+        for (int k = departingTransfers.start(depStationId); k < departingTransfers.end(depStationId); k++) {
+            minutesFromDeparture[departingTransfers.arrStationId(k)] = departingTransfers.minutes(k);
+        }
+
+        // Les liaisons sont triées par heure de départ décroissante : on les parcourt à l'envers
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            f.clear();
+
+            int connDepMins = connections.depMins(i);
+            int connArrMins = connections.arrMins(i);
+            int connDepStationId = timetable.stationId(connections.depStopId(i));
+            int connArrStationId = timetable.stationId(connections.arrStopId(i));
+            int tripId = connections.tripId(i);
+
+            // Option 1 : marcher depuis la gare de départ et monter dans le véhicule
+            int walkMinutes = minutesFromDeparture[connDepStationId];
+            if (walkMinutes != -1 && connDepMins - walkMinutes >= PackedCriteria.MIN_MINS) {
+                f.add(ForwardProfile.Builder.pack(connDepMins - walkMinutes, connArrMins, 0, i));
+            }
+
+            // Option 2 : être déjà dans le véhicule, dont la liaison précédente a été parcourue
+            ParetoFront.Builder tripFront = p.forTrip(tripId);
+            if (tripFront != null) {
+                for (int k = 0; k < tripFront.size(); k++) {
+                    long tuple = tripFront.get(k);
+                    f.add(ForwardProfile.Builder.pack(ForwardProfile.Builder.depMins(tuple), connArrMins,
+                            PackedCriteria.changes(tuple), PackedCriteria.payload(tuple)));
+                }
+            }
+
+            // Option 3 : changer de véhicule à la gare de départ de la liaison, en y étant arrivé à temps.
+            // Les tuples de la frontière étant triés par heure d'arrivée croissante, on peut s'arrêter
+            // au premier qui arrive trop tard
+            ParetoFront.Builder depStationFront = p.forStationIfPresent(connDepStationId);
+            if (depStationFront != null) {
+                for (int k = 0; k < depStationFront.size(); k++) {
+                    long tuple = depStationFront.get(k);
+                    if (ForwardProfile.Builder.arrMins(tuple) > connDepMins) break;
+
+                    int changes = PackedCriteria.changes(tuple);
+                    if (changes >= PackedCriteria.MAX_CHANGES) continue;
+                    f.add(ForwardProfile.Builder.pack(ForwardProfile.Builder.depMins(tuple), connArrMins, changes + 1, i));
+                }
+            }
+
+            // La dernière liaison d'une course est la dernière de celle-ci à être parcourue,
+            // la frontière de la course ne sera donc plus utilisée et peut être libérée
+            boolean isLastConnectionOfTrip = connections.tripPos(connections.nextConnectionId(i)) == 0;
+            if (isLastConnectionOfTrip) {
+                p.releaseForTrip(tripId);
+            } else if (!f.isEmpty()) {
+                // Les tuples de la course sont tous remplacés par ceux de f, qui arrivent plus tard
+                p.setForTrip(tripId, f);
+            }
+
+            if (f.isEmpty()) continue;
+
+            // Mise à jour des frontières des gares atteignables à pied depuis la gare d'arrivée de la liaison.
+            // La charge utile contient la liaison de montée et le nombre d'arrêts intermédiaires, qui ne
+            // dépendent pas du changement : on la calcule donc une seule fois
+            if (tuplesWithPayload.length < f.size()) {
+                tuplesWithPayload = new long[Math.max(f.size(), 2 * tuplesWithPayload.length)];
+            }
+            int tripPos = connections.tripPos(i);
+            for (int k = 0; k < f.size(); k++) {
+                long tuple = f.get(k);
+                int boardConnection = PackedCriteria.payload(tuple);
+                int payload = boardConnection << 8 | tripPos - connections.tripPos(boardConnection);
+                tuplesWithPayload[k] = PackedCriteria.withPayload(tuple, payload);
+            }
+
+            for (int k = departingTransfers.start(connArrStationId); k < departingTransfers.end(connArrStationId); k++) {
+                int arrMins = connArrMins + departingTransfers.minutes(k);
+                if (arrMins > PackedCriteria.MAX_MINS) continue;
+
+                ParetoFront.Builder stationFront = p.forStation(departingTransfers.arrStationId(k));
+                for (int j = 0; j < f.size(); j++) {
+                    long tuple = tuplesWithPayload[j];
+                    stationFront.add(ForwardProfile.Builder.pack(ForwardProfile.Builder.depMins(tuple), arrMins,
+                            PackedCriteria.changes(tuple), PackedCriteria.payload(tuple)));
+                }
+            }
+        }
+
+        return p.build();
+    }
+}
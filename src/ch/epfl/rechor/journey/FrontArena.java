@@ -0,0 +1,188 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Classe qui représente une zone mémoire partagée par plusieurs bâtisseurs de frontières de Pareto.
+ * Les tuples de toutes les frontières sont stockés dans un seul grand tableau de long, chaque
+ * frontière occupant un bloc dont la taille est une puissance de deux. Les blocs libérés sont
+ * conservés, par classe de taille, dans des listes chaînées stockées dans le tableau lui-même,
+ * afin d'être réutilisés sans nouvelle allocation.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+final class FrontArena {
+
+    // Taille minimale d'un bloc, qui doit pouvoir contenir le lien de la liste des blocs libres
+    private static final int MIN_BLOCK_SIZE = 2;
+
+    // Capacité initiale du tableau partagé
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    // Capacité (2 Mio) au-delà de laquelle le tableau n'est pas conservé une fois le calcul terminé :
+    // chaque fil d'exécution ayant sa propre zone, un fil inactif ne garde donc jamais davantage
+    private static final int MAX_RETAINED_CAPACITY = 1 << 18;
+
+    // Marque la fin d'une liste de blocs libres
+    private static final int NO_BLOCK = -1;
+
+    // Tableau partagé contenant les tuples de toutes les frontières
+    private long[] slab;
+
+    // Index du début de la partie jamais utilisée du tableau
+    private int top;
+
+    // Index du premier bloc libre de chaque classe de taille (2^sizeClass)
+    private final int[] freeBlocks = new int[Integer.SIZE];
+
+    // Nombre de cases actuellement occupées par des blocs alloués, et maximum atteint depuis la
+    // dernière réinitialisation
+    private int liveSize;
+    private int peakLiveSize;
+
+    /**
+     * Constructeur qui construit une zone vide
+     */
+    FrontArena() {
+        this.slab = new long[INITIAL_CAPACITY];
+        reset();
+    }
+
+    /**
+     * Fonction qui libère d'un coup tous les blocs de la zone. Les bâtisseurs qui l'utilisaient
+     * ne doivent plus être utilisés par la suite.
+     * @return la zone réinitialisée
+     */
+    FrontArena reset() {
+        top = 0;
+        liveSize = 0;
+        peakLiveSize = 0;
+        Arrays.fill(freeBlocks, NO_BLOCK);
+        return this;
+    }
+
+    /**
+     * Fonction qui libère d'un coup tous les blocs de la zone, et remplace le tableau partagé par un
+     * petit tableau s'il dépasse la capacité conservée. Elle est appelée à la fin de chaque calcul,
+     * afin que la mémoire d'un grand profil ne reste pas attachée au fil d'exécution qui l'a calculé.
+     * Les bâtisseurs qui utilisaient la zone ne doivent plus être utilisés par la suite.
+     */
+    void release() {
+        if (slab.length > MAX_RETAINED_CAPACITY) slab = new long[INITIAL_CAPACITY];
+        reset();
+    }
+
+    /**
+     * Fonction qui retourne le tableau partagé. Celui-ci pouvant être remplacé par un tableau plus
+     * grand lors d'une allocation, il ne doit pas être conservé d'une allocation à l'autre.
+     * @return le tableau contenant les tuples de toutes les frontières
+     */
+    long[] slab() {
+        return slab;
+    }
+
+    /**
+     * Fonction qui retourne la taille du bloc qui serait alloué pour la capacité donnée,
+     * c.-à-d. la plus petite puissance de deux supérieure ou égale à celle-ci
+     * @param capacity capacité demandée
+     * @return taille du bloc
+     */
+    static int blockSize(int capacity) {
+        Preconditions.checkArgument(capacity >= 0);
+        return Math.max(MIN_BLOCK_SIZE, Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1));
+    }
+
+    /**
+     * Fonction qui alloue un bloc de la taille donnée
+     * @param size taille du bloc, qui doit être une valeur retournée par blockSize
+     * @return l'index du début du bloc dans le tableau partagé
+     */
+    int allocate(int size) {
+        int sizeClass = Integer.numberOfTrailingZeros(size);
+        addLiveSize(size);
+
+        // On réutilise un bloc libre de même taille s'il en existe un
+        int block = freeBlocks[sizeClass];
+        if (block != NO_BLOCK) {
+            freeBlocks[sizeClass] = (int) slab[block];
+            return block;
+        }
+
+        // Sinon, on le prend à la fin de la partie utilisée
+        block = top;
+        ensureSlabCapacity(top + size);
+        top += size;
+        return block;
+    }
+
+    /**
+     * Fonction qui agrandit le bloc donné, en place s'il est le dernier bloc de la zone,
+     * ou sinon en copiant son contenu dans un nouveau bloc et en libérant l'ancien
+     * @param block index du début du bloc
+     * @param size taille actuelle du bloc
+     * @param newSize nouvelle taille du bloc, qui doit être une valeur retournée par blockSize
+     * @return l'index du début du bloc agrandi
+     */
+    int grow(int block, int size, int newSize) {
+        if (block + size == top) {
+            ensureSlabCapacity(block + newSize);
+            top = block + newSize;
+            addLiveSize(newSize - size);
+            return block;
+        }
+
+        int newBlock = allocate(newSize);
+        System.arraycopy(slab, block, slab, newBlock, size);
+        free(block, size);
+        return newBlock;
+    }
+
+    /**
+     * Fonction qui libère le bloc donné, afin qu'il puisse être réutilisé
+     * @param block index du début du bloc
+     * @param size taille du bloc
+     */
+    void free(int block, int size) {
+        int sizeClass = Integer.numberOfTrailingZeros(size);
+        slab[block] = freeBlocks[sizeClass];
+        freeBlocks[sizeClass] = block;
+        liveSize -= size;
+    }
+
+    /**
+     * Fonction qui retourne le nombre de cases du tableau partagé occupées par des blocs alloués
+     * @return le nombre de cases occupées
+     */
+    int liveSize() {
+        return liveSize;
+    }
+
+    /**
+     * Fonction qui retourne le nombre maximal de cases occupées depuis la dernière réinitialisation
+     * @return le nombre maximal de cases occupées
+     */
+    int peakLiveSize() {
+        return peakLiveSize;
+    }
+
+    /**
+     * Fonction qui met à jour le nombre de cases occupées ainsi que son maximum
+     * @param size nombre de cases nouvellement occupées
+     */
+    private void addLiveSize(int size) {
+        liveSize += size;
+        peakLiveSize = Math.max(peakLiveSize, liveSize);
+    }
+
+    /**
+     * Fonction qui agrandit si nécessaire le tableau partagé, en doublant sa taille
+     * @param minCapacity taille minimale du tableau
+     */
+    private void ensureSlabCapacity(int minCapacity) {
+        if (minCapacity > slab.length) {
+            slab = Arrays.copyOf(slab, Math.max(minCapacity, 2 * slab.length));
+        }
+    }
+}
@@ -254,7 +254,7 @@ public final class JourneyExtractor {
      */
     private static Stop getStopInstance(Profile profile, int stopId) {
         TimeTable timeTable = profile.timeTable();
-        int stationId = timeTable.isStationId(stopId) ? stopId : timeTable.stationId(stopId);
+        int stationId = timeTable.stationId(stopId);
         String stopName = timeTable.stations().name(stationId);
         double longitude = timeTable.stations().longitude(stationId);
         double latitude = timeTable.stations().latitude(stationId);
@@ -9,11 +9,23 @@ import ch.epfl.rechor.Preconditions;
  */
 public class PackedCriteria {
 
+    /**
+     * Heure minimale représentable, en minutes après minuit (inclus)
+     */
+    public static final int MIN_MINS = -240;
+
+    /**
+     * Heure maximale représentable, en minutes après minuit (inclus)
+     */
+    public static final int MAX_MINS = 2879;
+
+    /**
+     * Nombre maximal de changements représentable
+     */
+    public static final int MAX_CHANGES = 127;
+
     // Nombres magiques
     private static final int MIN_CHANGES = 0;
-    private static final int MAX_CHANGES = 127;
-    private static final int MIN_ARR_MINS = -240;
-    private static final int MAX_ARR_MINS = 2880;
     private static final int OFFSET = 240;
 
     // Constantes pour les shifts
@@ -30,6 +42,23 @@ public class PackedCriteria {
     // Constante de conversion pour les minutes
     private static final int COMPLEMENT_CONSTANT = 4095;
 
+    // Constantes pour la comparaison sans branchement des trois critères à la fois.
+    // Les champs sont répartis en deux groupes dont les champs ne se touchent pas (changements et
+    // heure de départ d'un côté, heure d'arrivée de l'autre), et un bit de garde est placé juste
+    // au-dessus de chaque champ, afin qu'une soustraction compare tous les champs d'un groupe
+    // sans qu'une retenue ne passe d'un champ à l'autre
+    private static final long MASK_CHANGES_AND_DEP_MINS =
+            (MASK_7_BITS << SHIFT_CHANGES) | (MASK_12_BITS << SHIFT_DEP_MINS);
+    private static final long GUARDS_CHANGES_AND_DEP_MINS = (1L << SHIFT_ARR_MINS) | (1L << 63);
+    private static final long MASK_ARR_MINS = MASK_12_BITS << SHIFT_ARR_MINS;
+    private static final long GUARD_ARR_MINS = 1L << SHIFT_DEP_MINS;
+    private static final long ALL_GUARDS = GUARDS_CHANGES_AND_DEP_MINS | GUARD_ARR_MINS;
+
+    // Choix de l'implémentation des comparaisons de dominance, la version sans branchement
+    // étant utilisée par défaut. La propriété système rechor.scalarDominance permet de revenir
+    // à la comparaison champ par champ.
+    private static final boolean BRANCH_FREE_DOMINANCE = !Boolean.getBoolean("rechor.scalarDominance");
+
     // Pour rendre la classe non instantiable
     private PackedCriteria() {}
 
@@ -47,7 +76,7 @@ public class PackedCriteria {
 
         // arrMin est exprimé en minutes écoulées depuis minuit
         // On teste si l'heure est valide
-        Preconditions.checkArgument(MIN_ARR_MINS <= arrMins && arrMins < MAX_ARR_MINS);
+        Preconditions.checkArgument(MIN_MINS <= arrMins && arrMins <= MAX_MINS);
 
         // Le payload non signé pour éviter les erreurs
         // d'extensions de signe
@@ -173,22 +202,84 @@ public class PackedCriteria {
      */
     public static boolean dominatesOrIsEqual(long criteria1, long criteria2) {
         // S'assure que, soit les deux ont une heure de départ, soit aucun des deux
-        Preconditions.checkArgument((hasDepMins(criteria1) && hasDepMins(criteria2)) ||
-                (!hasDepMins(criteria1) && !hasDepMins(criteria2)));
+        Preconditions.checkArgument(hasDepMins(criteria1) == hasDepMins(criteria2));
 
-        // Aucun des deux n'a une heure de départ
-        if (!hasDepMins(criteria1) && !hasDepMins(criteria2)){
-            return arrMins(criteria1) <= arrMins(criteria2) &&
-                    changes(criteria1) <= changes(criteria2);
-        }
+        // Une fois cette vérification faite, les trois champs peuvent être comparés directement,
+        // l'heure de départ absente étant nulle dans les deux critères
+        return dominatesOrIsEqualUnchecked(criteria1, criteria2);
+    }
+
+    /**
+     * Retourne vrai si et seulement si les premiers critères empaquetés dominent ou sont égaux aux
+     * seconds, sans vérifier que soit les deux, soit aucun des deux n'ont une heure de départ.
+     * @param criteria1 un long représentant le premier ensemble de critères empaquetés
+     * @param criteria2 un long représentant le second ensemble de critères empaquetés
+     * @return vrai si criteria1 domine ou est égal à criteria2, faux sinon
+     */
+    static boolean dominatesOrIsEqualUnchecked(long criteria1, long criteria2) {
+        return BRANCH_FREE_DOMINANCE
+                ? dominatesOrIsEqualBranchFree(criteria1, criteria2)
+                : dominatesOrIsEqualScalar(criteria1, criteria2);
+    }
 
-        // Les deux ont une heure de départ
-        else{
-            // Pour dominer, TOUS les critères doivent être meilleurs ou égaux
-            return arrMins(criteria1) <= arrMins(criteria2) &&
-                    depMins(criteria1) >= depMins(criteria2) &&
-                    changes(criteria1) <= changes(criteria2);
+    /**
+     * Retourne l'index du premier des critères empaquetés donnés, entre les index from (inclus)
+     * et to (exclus), qui domine ou est égal aux critères cibles, ou -1 s'il n'y en a aucun.
+     * Comme dominatesOrIsEqualUnchecked, aucune vérification n'est faite sur les heures de départ.
+     * @param criteria tableau de critères empaquetés
+     * @param from index du premier critère à comparer (inclus)
+     * @param to index du dernier critère à comparer (exclus)
+     * @param target critères cibles
+     * @return l'index du premier critère dominant ou égal à la cible, ou -1
+     */
+    static int indexOfDominatingOrEqual(long[] criteria, int from, int to, long target) {
+        if (BRANCH_FREE_DOMINANCE) {
+            // La partie de la soustraction qui dépend de la cible est calculée une seule fois
+            long targetChangesAndDepMins = (target & MASK_CHANGES_AND_DEP_MINS) | GUARDS_CHANGES_AND_DEP_MINS;
+            long targetArrMins = (target & MASK_ARR_MINS) | GUARD_ARR_MINS;
+
+            for (int i = from; i < to; i++) {
+                long c = criteria[i];
+                long guards = ((targetChangesAndDepMins - (c & MASK_CHANGES_AND_DEP_MINS)) & GUARDS_CHANGES_AND_DEP_MINS)
+                        | ((targetArrMins - (c & MASK_ARR_MINS)) & GUARD_ARR_MINS);
+                if (guards == ALL_GUARDS) return i;
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                if (dominatesOrIsEqualScalar(criteria[i], target)) return i;
+            }
         }
+        return -1;
+    }
+
+    /**
+     * Compare les trois critères à l'aide de deux soustractions : chaque bit de garde reste à 1
+     * si et seulement si le champ correspondant des seconds critères est supérieur ou égal à
+     * celui des premiers. L'heure de départ étant stockée sous forme de complément, elle se
+     * compare dans le même sens que les deux autres champs.
+     * @param criteria1 un long représentant le premier ensemble de critères empaquetés
+     * @param criteria2 un long représentant le second ensemble de critères empaquetés
+     * @return vrai si criteria1 domine ou est égal à criteria2, faux sinon
+     */
+    static boolean dominatesOrIsEqualBranchFree(long criteria1, long criteria2) {
+        long changesAndDepMins = ((criteria2 & MASK_CHANGES_AND_DEP_MINS) | GUARDS_CHANGES_AND_DEP_MINS)
+                - (criteria1 & MASK_CHANGES_AND_DEP_MINS);
+        long arrMins = ((criteria2 & MASK_ARR_MINS) | GUARD_ARR_MINS) - (criteria1 & MASK_ARR_MINS);
+
+        return ((changesAndDepMins & GUARDS_CHANGES_AND_DEP_MINS) | (arrMins & GUARD_ARR_MINS)) == ALL_GUARDS;
+    }
+
+    /**
+     * Compare les trois critères champ par champ, sans vérification des heures de départ
+     * @param criteria1 un long représentant le premier ensemble de critères empaquetés
+     * @param criteria2 un long représentant le second ensemble de critères empaquetés
+     * @return vrai si criteria1 domine ou est égal à criteria2, faux sinon
+     */
+    static boolean dominatesOrIsEqualScalar(long criteria1, long criteria2) {
+        // L'heure de départ est comparée via son complément, nul si aucune heure n'est stockée
+        return arrMins(criteria1) <= arrMins(criteria2)
+                && changes(criteria1) <= changes(criteria2)
+                && ((criteria1 >>> SHIFT_DEP_MINS) & MASK_12_BITS) <= ((criteria2 >>> SHIFT_DEP_MINS) & MASK_12_BITS);
     }
 
     /**
@@ -211,7 +302,7 @@ public class PackedCriteria {
 
         // depMins1 est exprimé en minutes écoulées depuis minuit
         // On teste si l'heure est valide
-        Preconditions.checkArgument(MIN_ARR_MINS <= depMins && depMins < MAX_ARR_MINS);
+        Preconditions.checkArgument(MIN_MINS <= depMins && depMins <= MAX_MINS);
 
         depMins += OFFSET;
         depMins = COMPLEMENT_CONSTANT - depMins;
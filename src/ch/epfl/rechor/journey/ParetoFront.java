@@ -1,17 +1,22 @@
 package ch.epfl.rechor.journey;
 
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.function.LongConsumer;
 
 /**
- * Classe qui représente une frontière de Pareto de critères d'optimisation
+ * Classe qui représente une frontière de Pareto de critères d'optimisation.
+ * Les tuples d'une frontière sont une plage d'un tableau, qui peut être partagé
+ * par plusieurs frontières, par exemple toutes celles d'un même profil.
  * @author Yoann Salamin (390522)
  * @author Axel Verga (398787)
  */
 public final class ParetoFront {
 
-    // tuples de la frontière stockée sous forme empaquetée
+    // tuples de la frontière stockée sous forme empaquetée, entre les index from (inclus) et to (exclus)
     private final long[] packedCriterias;
+    private final int from;
+    private final int to;
 
     /**
      * Attribut qui contient une frontière de pareto vide
@@ -23,9 +28,22 @@ public final class ParetoFront {
      * @param packedCriterias (critères empaquetés)
      */
     private ParetoFront(long[] packedCriterias) {
+        this(packedCriterias, 0, packedCriterias.length);
+    }
+
+    /**
+     * Constructeur qui retourne une vue sur les critères empaquetés donnés entre les index
+     * from (inclus) et to (exclus), sans les copier. Le tableau ne doit plus être modifié.
+     * @param packedCriterias critères empaquetés, triés comme ceux d'un bâtisseur
+     * @param from index du premier critère de la frontière (inclus)
+     * @param to index du dernier critère de la frontière (exclus)
+     */
+    ParetoFront(long[] packedCriterias, int from, int to) {
 
         // il ne faut pas copier les critères
         this.packedCriterias = packedCriterias;
+        this.from = from;
+        this.to = to;
     }
 
     /**
@@ -34,7 +52,7 @@ public final class ParetoFront {
      */
     public int size() {
 
-        return packedCriterias.length;
+        return to - from;
     }
 
     /**
@@ -47,7 +65,8 @@ public final class ParetoFront {
     public long get(int arrMins, int changes) {
 
         // On itère sur tous les critères de notre liste
-        for (long pc : packedCriterias) {
+        for (int i = from; i < to; i++) {
+            long pc = packedCriterias[i];
             // si l'un est identique aux params, on le retourne
             if (PackedCriteria.arrMins(pc) == arrMins && PackedCriteria.changes(pc) == changes) {
                 return pc;
@@ -65,10 +84,10 @@ public final class ParetoFront {
     public void forEach(LongConsumer action) {
 
         // On itère sur tous les critères de notre liste
-        for (long packed_criteria : packedCriterias) {
+        for (int i = from; i < to; i++) {
 
             // on appelle la méthode accept de LongConsumer
-            action.accept(packed_criteria);
+            action.accept(packedCriterias[i]);
         }
     }
 
@@ -84,7 +103,8 @@ public final class ParetoFront {
 
         StringBuilder s = new StringBuilder();
 
-        for (long pc : packedCriterias){
+        for (int i = from; i < to; i++) {
+            long pc = packedCriterias[i];
 
             // Montrer l'heure de départ si elle est présente
             if (PackedCriteria.hasDepMins(pc)) {
@@ -113,15 +133,27 @@ public final class ParetoFront {
     public final static class Builder {
 
         // Tableau de type long qui contient les tuples
-        // en cours de construction
+        // en cours de construction, à partir de l'index offset
         private long[] arrayInConstruction;
+        private int offset;
         private int effectiveSize;
 
+        // Zone partagée dans laquelle sont stockés les tuples, ou null si le bâtisseur a son propre tableau
+        private final FrontArena arena;
+
         // Capacité initiale du tableau de pareto
         private static final int INITIAL_CAPACITY = 2;
 
         private int capacity;
 
+        // Masque de la charge utile (32 bits de poids faible)
+        private static final long PAYLOAD_MASK = 0xFFFFFFFFL;
+        // Masque de tous les bits situés sous l'heure de départ (bits 0 à 50)
+        private static final long DEP_MINS_LOWER_BITS_MASK = (1L << 51) - 1;
+        // Tableau de travail, propre à chaque thread, utilisé par addAll et fullyDominates
+        private static final ThreadLocal<int[]> MIN_ARR_BY_CHANGES =
+                ThreadLocal.withInitial(() -> new int[PackedCriteria.MAX_CHANGES + 1]);
+
         /**
          * Constructeur par défaut qui retourne un bâtisseur
          * dont la frontière en cours de construction est vide
@@ -133,20 +165,65 @@ public final class ParetoFront {
 
             // on crée juste un tableau vide
             this.arrayInConstruction = new long[capacity];
+            this.offset = 0;
+            this.arena = null;
 
             // la taille effective est nulle par défaut
             this.effectiveSize = 0;
         }
 
+        /**
+         * Constructeur qui retourne un bâtisseur dont la frontière, vide,
+         * est stockée dans la zone partagée donnée
+         * @param arena zone partagée dans laquelle stocker les tuples
+         */
+        Builder(FrontArena arena) {
+            this.arena = arena;
+            this.capacity = FrontArena.blockSize(INITIAL_CAPACITY);
+            this.offset = arena.allocate(capacity);
+            this.arrayInConstruction = arena.slab();
+            this.effectiveSize = 0;
+        }
+
         /**
          * Constructeur de copie qui retourne un nouveau bâtisseur
          * avec les mêmes attributs que celui reçu en argument
          * @param that bâtisseur à copier
          */
         public Builder(Builder that) {
-            this.arrayInConstruction = that.arrayInConstruction.clone();
+            // On ne copie que les tuples effectivement présents, afin que la copie
+            // d'un bâtisseur réutilisé ne garde pas toute sa capacité
+            this.capacity = Math.max(that.effectiveSize, INITIAL_CAPACITY);
+            this.arrayInConstruction = Arrays.copyOfRange(that.tuples(), that.offset, that.offset + capacity);
+            this.offset = 0;
+            this.arena = null;
+            this.effectiveSize = that.effectiveSize;
+        }
+
+        /**
+         * Constructeur de copie qui retourne un nouveau bâtisseur contenant les mêmes tuples
+         * que celui reçu en argument, stockés dans la zone partagée donnée
+         * @param that bâtisseur à copier
+         * @param arena zone partagée dans laquelle stocker les tuples
+         */
+        Builder(Builder that, FrontArena arena) {
+            this.arena = arena;
+            this.capacity = FrontArena.blockSize(Math.max(that.effectiveSize, INITIAL_CAPACITY));
+            this.offset = arena.allocate(capacity);
+            this.arrayInConstruction = arena.slab();
+            System.arraycopy(that.tuples(), that.offset, arrayInConstruction, offset, that.effectiveSize);
             this.effectiveSize = that.effectiveSize;
-            this.capacity = that.capacity;
+        }
+
+        /**
+         * Fonction qui retourne le tableau contenant les tuples, à partir de l'index offset.
+         * Le tableau d'une zone partagée pouvant être remplacé lorsqu'elle s'agrandit, il est
+         * relu à chaque fois depuis celle-ci.
+         * @return le tableau contenant les tuples
+         */
+        private long[] tuples() {
+            if (arena != null) arrayInConstruction = arena.slab();
+            return arrayInConstruction;
         }
 
         /**
@@ -167,18 +244,32 @@ public final class ParetoFront {
          */
         public Builder clear() {
 
-            // on remet la capacité initiale
-            capacity = INITIAL_CAPACITY;
-
-            // on réinitialise les instances de classe
-            // donc on refait comme dans le constructeur
-            this.arrayInConstruction = new long[capacity];
+            // on garde le tableau actuel, qui peut ainsi être réutilisé sans nouvelle allocation,
+            // il suffit de remettre la taille effective à zéro
             this.effectiveSize = 0;
 
             // on renvoi l'instance nettoyée
             return this;
         }
 
+        /**
+         * Fonction qui retourne le nombre de tuples de la frontière en cours de construction
+         * @return le nombre de tuples
+         */
+        int size() {
+            return effectiveSize;
+        }
+
+        /**
+         * Fonction qui retourne le tuple d'index donné de la frontière en cours de construction,
+         * ce qui permet de la parcourir sans passer par une lambda
+         * @param index index du tuple, qui doit être inférieur à size()
+         * @return le tuple empaqueté
+         */
+        long get(int index) {
+            return tuples()[offset + index];
+        }
+
 
         /**
          * Ajoute à la frontière le tuple de critères empaquetés donné
@@ -187,50 +278,33 @@ public final class ParetoFront {
          */
         public Builder add(long packedTuple) {
 
-            // ------------- 1) On cherche la position d'insertion ----------------
-            int insertionPosition = -1;
-
-            for (int i = 0; i < effectiveSize; i++) {
+            // ------------- 1) On cherche la position d'insertion par dichotomie ----------------
+            // Les tuples sont triés par ordre lexicographique (sans la charge utile), la position
+            // d'insertion est donc celle du premier tuple strictement plus grand
+            long[] tuples = tuples();
+            int insertionPosition = firstGreaterThan(tuples, offset, offset + effectiveSize,
+                    packedTuple | PAYLOAD_MASK) - offset;
 
-                // On les compare sans les payload
-                long packedTupleWithoutPayload = PackedCriteria.withPayload(packedTuple, 0);
-                long elementToCompareWithoutPayload = PackedCriteria.withPayload(arrayInConstruction[i], 0);
-
-                // On check just que le tuple ne se fasse pas dominer, sinon ça ne sert à rien de l'ajouter
-                if (PackedCriteria.dominatesOrIsEqual(elementToCompareWithoutPayload, packedTupleWithoutPayload))
-                    return this;
-
-                // On s'arrête d'itérer dès qu'un tuple est plus grand (dans l'ordre lexicographique)
-                if (packedTupleWithoutPayload < elementToCompareWithoutPayload) {
-                    insertionPosition = i;
-                    break;
-                }
-            }
+            // ------------- 2) On vérifie que le tuple ne se fait pas dominer ----------------
+            // Seuls les tuples à gauche de la position d'insertion peuvent le dominer
+            if (PackedCriteria.indexOfDominatingOrEqual(tuples, offset, offset + insertionPosition, packedTuple) >= 0)
+                return this;
 
-            // Si aucune valeur n'a été assignée cela veut dire qu'on est à la fin
-            // et donc on met à jour effectiveSize
-            if (insertionPosition == -1) {
-                insertionPosition = effectiveSize;
-            }
-
-
-            // ------------- 2) Suppression de tous les tuples dominés par le nouveau ----------------
+            // ------------- 3) Suppression de tous les tuples dominés par le nouveau ----------------
             // Tous ceux de gauches seront gardés, c'est à droite que l'on va devoir trier
-            // On peut donc déjà initialiser la variable à une certaine valeur
             int nbOfConservatedValue = insertionPosition;
 
-            // On itère sur tous les critères à droite de la position d'insertion
             for (int src = insertionPosition; src < effectiveSize; src += 1) {
+                long element = tuples[offset + src];
 
-                // Si le critère regardé se fait dominé par celui fraîchement ajouté, on ne le garde pas
-                if (PackedCriteria.dominatesOrIsEqual(packedTuple, arrayInConstruction[src])) {
+                // Si le critère regardé se fait dominer par celui fraîchement ajouté, on ne le garde pas
+                if (PackedCriteria.dominatesOrIsEqualUnchecked(packedTuple, element)) {
                     continue;
                 }
 
-                // Si le critère regardé ne se fait pas dominé par celui fraîchement ajouté, on le place au
-                // bon endroit, en mettant à jour la taille des valeurs conservées (utile plus tard)
+                // Sinon, on le place au bon endroit
                 if (nbOfConservatedValue != src) {
-                    arrayInConstruction[nbOfConservatedValue] = arrayInConstruction[src];
+                    tuples[offset + nbOfConservatedValue] = element;
                 }
 
                 nbOfConservatedValue += 1;
@@ -240,18 +314,15 @@ public final class ParetoFront {
             effectiveSize = nbOfConservatedValue;
 
 
-            // ------------ 3) On augmente la taille si nécessaire ---------------
-            if (effectiveSize == arrayInConstruction.length){
-                this.capacity *= 2;
-                long[] newArrayInConstruction = new long[capacity];
-                System.arraycopy(arrayInConstruction, 0,newArrayInConstruction, 0, effectiveSize);
-                arrayInConstruction = newArrayInConstruction;
-            }
+            // ------------ 4) On augmente la taille si nécessaire ---------------
+            // le tableau et la position des tuples peuvent alors changer
+            ensureCapacity(effectiveSize + 1);
+            tuples = tuples();
 
 
-            // ------------ 4) On crée de la place pour ajouter notre tuple
-            System.arraycopy(arrayInConstruction, insertionPosition, arrayInConstruction, insertionPosition + 1, effectiveSize - insertionPosition);
-            arrayInConstruction[insertionPosition] = packedTuple;
+            // ------------ 5) On crée de la place pour ajouter notre tuple
+            System.arraycopy(tuples, offset + insertionPosition, tuples, offset + insertionPosition + 1, effectiveSize - insertionPosition);
+            tuples[offset + insertionPosition] = packedTuple;
             effectiveSize++;
 
             return this;
@@ -277,9 +348,58 @@ public final class ParetoFront {
          */
         public Builder addAll(Builder that) {
 
-            // il faut d'abord build avant d'appliquer le forEach sinon
-            // on va itérer sur des valeurs nulles du tableau qu'on ne veut pas
-            that.forEach(this::add);
+            // Ajouter une frontière à elle-même ne la modifie pas
+            if (that == this || that.effectiveSize == 0) return this;
+
+            int thisSize = this.effectiveSize;
+            int thatSize = that.effectiveSize;
+
+            // ------------ 1) On décale nos tuples à droite pour faire de la place ------------
+            // Les deux frontières étant triées, on peut les fusionner en une seule passe en
+            // écrivant le résultat depuis le début du tableau, sans jamais écraser un tuple non lu
+            ensureCapacity(thisSize + thatSize);
+            long[] tuples = tuples();
+            long[] thatTuples = that.tuples();
+            System.arraycopy(tuples, offset, tuples, offset + thatSize, thisSize);
+
+            // ------------ 2) Fusion par ordre lexicographique croissant ------------
+            // Un tuple ne peut être dominé que par un tuple qui le précède dans cet ordre, c.-à-d.
+            // qui part plus tard. Il suffit donc de connaître, pour chaque nombre de changements,
+            // l'heure d'arrivée minimale des tuples déjà gardés ayant au plus ce nombre de changements
+            int[] minArrByChanges = MIN_ARR_BY_CHANGES.get();
+            Arrays.fill(minArrByChanges, Integer.MAX_VALUE);
+
+            int thisIndex = offset + thatSize;
+            int thisEnd = offset + thatSize + thisSize;
+            int thatIndex = that.offset;
+            int thatEnd = that.offset + thatSize;
+            int newSize = 0;
+
+            while (thisIndex < thisEnd || thatIndex < thatEnd) {
+                long element;
+
+                // En cas d'égalité, le tuple du récepteur passe en premier et est donc conservé
+                if (thatIndex == thatEnd || (thisIndex < thisEnd
+                        && (tuples[thisIndex] >>> 32) <= (thatTuples[thatIndex] >>> 32))) {
+                    element = tuples[thisIndex++];
+                } else {
+                    element = thatTuples[thatIndex++];
+                }
+
+                int arrMins = PackedCriteria.arrMins(element);
+                int changes = PackedCriteria.changes(element);
+
+                // Le tuple est dominé par un tuple déjà gardé
+                if (minArrByChanges[changes] <= arrMins) continue;
+
+                // Sinon, on le garde et on met à jour les heures d'arrivée minimales
+                for (int c = changes; c <= PackedCriteria.MAX_CHANGES && minArrByChanges[c] > arrMins; c++) {
+                    minArrByChanges[c] = arrMins;
+                }
+                tuples[offset + newSize++] = element;
+            }
+
+            effectiveSize = newSize;
             return this;
         }
 
@@ -293,37 +413,89 @@ public final class ParetoFront {
          */
         public boolean fullyDominates(Builder that, int depMins){
 
-            // Pour chacun des tuples de that
-            for (int i = 0; i < that.effectiveSize; i++) {
+            if (that.effectiveSize == 0) return true;
 
-                boolean hasBeenDominated = false;
+            // Seuls nos tuples partant au plus tôt à depMins peuvent dominer ceux de that,
+            // et ils forment le début du tableau, trié par heure de départ décroissante
+            long[] tuples = tuples();
+            int candidatesEnd = firstGreaterThan(tuples, offset, offset + effectiveSize,
+                    PackedCriteria.withDepMins(0L, depMins) | DEP_MINS_LOWER_BITS_MASK);
 
-                // On prend sa version modifiée selon depMins donné
-                long modifiedValue = PackedCriteria.withDepMins(that.arrayInConstruction[i], depMins);
+            if (candidatesEnd == offset) return false;
 
-                // On la compare avec tous nos tuples de this
-                for (int j = 0; j < this.effectiveSize; j++){
+            // Seuls les nombres de changements jusqu'au plus grand de ceux de that sont utiles
+            long[] thatTuples = that.tuples();
+            int maxChanges = 0;
+            for (int i = that.offset; i < that.offset + that.effectiveSize; i++) {
+                maxChanges = Math.max(maxChanges, PackedCriteria.changes(thatTuples[i]));
+            }
 
-                    // Si this domine that
-                    if (PackedCriteria.dominatesOrIsEqual(this.arrayInConstruction[j], modifiedValue)) {
+            // Heure d'arrivée minimale de ces tuples pour chaque nombre maximal de changements
+            int[] minArrByChanges = MIN_ARR_BY_CHANGES.get();
+            Arrays.fill(minArrByChanges, 0, maxChanges + 1, Integer.MAX_VALUE);
 
-                        // On modifie la variable
-                        hasBeenDominated = true;
-                        break;
-                    }
+            for (int i = offset; i < candidatesEnd; i++) {
+                int changes = PackedCriteria.changes(tuples[i]);
+                if (changes <= maxChanges) {
+                    minArrByChanges[changes] = Math.min(minArrByChanges[changes], PackedCriteria.arrMins(tuples[i]));
                 }
+            }
+            for (int c = 1; c <= maxChanges; c++) {
+                minArrByChanges[c] = Math.min(minArrByChanges[c], minArrByChanges[c - 1]);
+            }
 
-                // Si un that n'a été dominé par aucun this
-                if (!hasBeenDominated) {return false;}
-
+            // Chacun des tuples de that doit être dominé par l'un d'eux
+            for (int i = that.offset; i < that.offset + that.effectiveSize; i++) {
+                long element = thatTuples[i];
+                if (minArrByChanges[PackedCriteria.changes(element)] > PackedCriteria.arrMins(element))
+                    return false;
             }
 
-            // Si aucun that ne s'est pas fait dominer, c'est que tous ceux
-            // de that se font dominés par au moins un de true
-            // C'est donc que this domine that, et il faut retourner vrai
             return true;
         }
 
+        /**
+         * Fonction qui agrandit si nécessaire le tableau en cours de construction, en doublant
+         * sa capacité, afin qu'il puisse contenir au moins le nombre de tuples donné
+         * @param minCapacity nombre de tuples que le tableau doit pouvoir contenir
+         */
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity <= capacity) return;
+
+            int newCapacity = capacity;
+            while (newCapacity < minCapacity) newCapacity *= 2;
+
+            if (arena == null) {
+                arrayInConstruction = Arrays.copyOf(arrayInConstruction, newCapacity);
+            } else {
+                // Dans une zone partagée, le bloc est agrandi en place lorsque c'est possible
+                offset = arena.grow(offset, capacity, FrontArena.blockSize(newCapacity));
+                newCapacity = FrontArena.blockSize(newCapacity);
+                arrayInConstruction = arena.slab();
+            }
+            capacity = newCapacity;
+        }
+
+        /**
+         * Fonction qui retourne, par dichotomie, l'index du premier des tuples donnés, entre les
+         * index from (inclus) et to (exclus), strictement supérieur à la borne donnée, ou to s'il n'y en a aucun
+         * @param tuples tableau de tuples triés par ordre croissant entre from et to
+         * @param from index du premier tuple à considérer (inclus)
+         * @param to index du dernier tuple à considérer (exclus)
+         * @param bound borne
+         * @return l'index du premier tuple strictement supérieur à la borne
+         */
+        private static int firstGreaterThan(long[] tuples, int from, int to, long bound) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (tuples[middle] <= bound) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
         /**
          * Appelle la méthode accept de l'action de type LongConsumer donnée avec chacun des critères de la frontière
          * @param action action
@@ -332,11 +504,46 @@ public final class ParetoFront {
 
             for (int i = 0; i < this.effectiveSize; ++i) {
 
-                action.accept(arrayInConstruction[i]);
+                action.accept(tuples()[offset + i]);
             }
 
         }
 
+        /**
+         * Fonction qui libère le stockage de la frontière en cours de construction, afin qu'il puisse
+         * être réutilisé par d'autres frontières de la même zone partagée. Le bâtisseur ne doit plus
+         * être utilisé par la suite.
+         */
+        void release() {
+            if (arena != null) arena.free(offset, capacity);
+            effectiveSize = 0;
+        }
+
+        /**
+         * Fonction qui copie une plage de tuples de la frontière en cours de construction dans le tableau donné
+         * @param from index, dans la frontière, du premier tuple à copier
+         * @param destination tableau dans lequel copier les tuples
+         * @param position index à partir duquel copier les tuples
+         * @param count nombre de tuples à copier, from + count étant au plus égal à la taille de la frontière
+         * @return le nombre de tuples copiés
+         */
+        int copyTo(int from, long[] destination, int position, int count) {
+            System.arraycopy(tuples(), offset + from, destination, position, count);
+            return count;
+        }
+
+        /**
+         * Fonction qui retourne le nombre de tuples de la frontière en cours de construction dont l'heure
+         * de départ est supérieure ou égale à celle donnée. Les tuples étant triés par heure de départ
+         * décroissante, ce sont les premiers de la frontière.
+         * @param depMins heure de départ, en minutes après minuit
+         * @return le nombre de tuples partant au plus tôt à depMins
+         */
+        int countDepartingAtOrAfter(int depMins) {
+            return firstGreaterThan(tuples(), offset, offset + effectiveSize,
+                    PackedCriteria.withDepMins(0L, depMins) | DEP_MINS_LOWER_BITS_MASK) - offset;
+        }
+
         /**
          * Fonction qui retourne la frontière de Pareto en cours de construction par ce bâtisseur
          * @return une instance de ParetoFront avec les paramètres du batisseur
@@ -347,13 +554,13 @@ public final class ParetoFront {
             long[] finalPackedCriteriaArray = new long[effectiveSize];
 
 
-            // On part du début dans les deux cas
-            int srcPos = 0;
+            // On part du début des tuples dans les deux cas
+            int srcPos = offset;
             int desPos = 0;
 
             // On fait la copie de notre ancien tableau dans le nouveau
             // tableau qui a maintenant la bonne taille
-            System.arraycopy(arrayInConstruction, srcPos, finalPackedCriteriaArray, desPos, effectiveSize);
+            System.arraycopy(tuples(), srcPos, finalPackedCriteriaArray, desPos, effectiveSize);
 
             // Création de l'instance et on la retourne
             return new ParetoFront(
@@ -366,7 +573,10 @@ public final class ParetoFront {
 
             StringBuilder sb = new StringBuilder();
 
-            for (long pc : arrayInConstruction) {
+            // seuls les tuples effectivement présents sont affichés, les cases suivantes
+            // du tableau pouvant contenir des restes d'une utilisation précédente
+            for (int i = 0; i < effectiveSize; i++) {
+                long pc = tuples()[offset + i];
                 sb.append(PackedCriteria.arrMins(pc))
                         .append("|")
                         .append(PackedCriteria.changes(pc))
@@ -4,9 +4,14 @@ import ch.epfl.rechor.timetable.Connections;
 import ch.epfl.rechor.timetable.TimeTable;
 import ch.epfl.rechor.timetable.Trips;
 
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Représente un profil
@@ -15,14 +20,26 @@ import java.util.List;
  */
 public record Profile(TimeTable timeTable, LocalDate date, int arrStationId, List<ParetoFront> stationFront) {
 
+    // Estimation de la taille de l'en-tête d'un tableau et d'un objet ParetoFront, en octets
+    private static final long ARRAY_HEADER_BYTES = 16;
+    private static final long FRONT_BYTES = 24;
+
+    // Estimation de la taille, sur le tas, des objets décrivant un fichier mappé en mémoire, en octets
+    private static final long MAPPED_FILE_BYTES = 128;
+
 
     /**
      * Constructeur compact de Profile
      */
     public Profile {
 
-        // il faut copier la table des frontières de Pareto afin de garantir l'immuabilité de la classe
-        stationFront = List.copyOf(stationFront);
+        // il faut copier la table des frontières de Pareto afin de garantir l'immuabilité de la classe,
+        // sauf si elle est déjà stockée de manière compacte, auquel cas elle est déjà immuable
+        if (!(stationFront instanceof CompactFronts
+                || stationFront instanceof MappedFronts
+                || stationFront instanceof PrefixFronts)) {
+            stationFront = List.copyOf(stationFront);
+        }
     }
 
     /**
@@ -63,6 +80,166 @@ public record Profile(TimeTable timeTable, LocalDate date, int arrStationId, Lis
 
     }
 
+    /**
+     * Méthode qui retourne une estimation de la mémoire occupée sur le tas par les frontières de Pareto
+     * du profil, calculée à partir du nombre de tuples qu'elles contiennent. Les tuples d'un profil lu
+     * dans un fichier mappé en mémoire n'occupent pas le tas, et ne sont donc pas comptés.
+     * @return une estimation de la taille du profil, en octets
+     */
+    long sizeInBytes() {
+        if (stationFront instanceof CompactFronts compactFronts) {
+            return compactFronts.sizeInBytes();
+        }
+        if (stationFront instanceof MappedFronts) {
+            return MAPPED_FILE_BYTES;
+        }
+
+        // Chaque frontière non vide est un objet distinct avec son propre tableau
+        long size = ARRAY_HEADER_BYTES + (long) Integer.BYTES * stationFront.size();
+        for (ParetoFront front : stationFront) {
+            if (front.size() > 0) size += FRONT_BYTES + ARRAY_HEADER_BYTES + (long) Long.BYTES * front.size();
+        }
+        return size;
+    }
+
+    /**
+     * Fonction qui retourne un profil dont les frontières de Pareto sont lues dans les tampons donnés,
+     * par exemple ceux d'un fichier mappé en mémoire, qui ne sont pas copiés et ne doivent plus être modifiés
+     * @param timeTable horaire du profil
+     * @param date date du profil
+     * @param arrStationId gare d'arrivée du profil
+     * @param tuples tuples de toutes les frontières, les unes à la suite des autres
+     * @param offsets index du début de chaque frontière, suivi du nombre total de tuples
+     * @return le profil
+     */
+    static Profile ofMappedFronts(TimeTable timeTable, LocalDate date, int arrStationId,
+                                  LongBuffer tuples, IntBuffer offsets) {
+        return new Profile(timeTable, date, arrStationId, new MappedFronts(tuples, offsets));
+    }
+
+    /**
+     * Classe qui représente une liste immuable de frontières de Pareto stockées de manière compacte :
+     * les tuples de toutes les frontières se suivent dans un seul tableau, et la frontière d'index i
+     * occupe la plage comprise entre offsets[i] (inclus) et offsets[i + 1] (exclus).
+     * Les frontières retournées sont des vues sur ce tableau, qui n'est jamais copié.
+     */
+    private static final class CompactFronts extends AbstractList<ParetoFront> implements RandomAccess {
+
+        // tuples de toutes les frontières, les unes à la suite des autres
+        private final long[] tuples;
+
+        // index du début de la frontière de chaque gare, suivi de la taille du tableau de tuples
+        private final int[] offsets;
+
+        /**
+         * Constructeur qui stocke les tableaux donnés sans les copier
+         * @param tuples tuples de toutes les frontières
+         * @param offsets index du début de chaque frontière, suivi du nombre total de tuples
+         */
+        private CompactFronts(long[] tuples, int[] offsets) {
+            this.tuples = tuples;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public ParetoFront get(int index) {
+            Objects.checkIndex(index, size());
+            int from = offsets[index];
+            int to = offsets[index + 1];
+            return from == to ? ParetoFront.EMPTY : new ParetoFront(tuples, from, to);
+        }
+
+        @Override
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        /**
+         * Fonction qui retourne une estimation de la mémoire occupée par les deux tableaux
+         * @return une estimation de la taille, en octets
+         */
+        private long sizeInBytes() {
+            return 2 * ARRAY_HEADER_BYTES + (long) Long.BYTES * tuples.length + (long) Integer.BYTES * offsets.length;
+        }
+    }
+
+    /**
+     * Classe qui représente une liste immuable de frontières de Pareto lues dans des tampons, organisés comme
+     * les tableaux de CompactFronts. Les tuples d'une frontière ne sont copiés sur le tas que lorsqu'elle
+     * est demandée, de sorte que seules les pages du fichier contenant les frontières utilisées sont lues.
+     */
+    private static final class MappedFronts extends AbstractList<ParetoFront> implements RandomAccess {
+
+        // tuples de toutes les frontières, les unes à la suite des autres
+        private final LongBuffer tuples;
+
+        // index du début de la frontière de chaque gare, suivi du nombre total de tuples
+        private final IntBuffer offsets;
+
+        /**
+         * Constructeur qui stocke les tampons donnés sans les copier
+         * @param tuples tuples de toutes les frontières
+         * @param offsets index du début de chaque frontière, suivi du nombre total de tuples
+         */
+        private MappedFronts(LongBuffer tuples, IntBuffer offsets) {
+            this.tuples = tuples;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public ParetoFront get(int index) {
+            Objects.checkIndex(index, size());
+            int from = offsets.get(index);
+            int to = offsets.get(index + 1);
+            if (from == to) return ParetoFront.EMPTY;
+
+            long[] frontTuples = new long[to - from];
+            tuples.get(from, frontTuples);
+            return new ParetoFront(frontTuples, 0, frontTuples.length);
+        }
+
+        @Override
+        public int size() {
+            return offsets.capacity() - 1;
+        }
+    }
+
+    /**
+     * Classe qui représente une liste immuable de frontières de Pareto dont chacune est le début d'un tableau
+     * propre à sa gare : la frontière d'index i contient les counts[i] premiers tuples de tuples[i].
+     * Les tuples suivants de ces tableaux peuvent être écrits par la suite, sans que les frontières
+     * retournées ne changent.
+     */
+    private static final class PrefixFronts extends AbstractList<ParetoFront> implements RandomAccess {
+
+        // tuples de la frontière de chaque gare, ou null si elle est vide
+        private final long[][] tuples;
+
+        // nombre de tuples de la frontière de chaque gare
+        private final int[] counts;
+
+        /**
+         * Constructeur qui stocke les tableaux donnés sans les copier
+         * @param tuples tuples de la frontière de chaque gare, ou null
+         * @param counts nombre de tuples de la frontière de chaque gare
+         */
+        private PrefixFronts(long[][] tuples, int[] counts) {
+            this.tuples = tuples;
+            this.counts = counts;
+        }
+
+        @Override
+        public ParetoFront get(int index) {
+            Objects.checkIndex(index, size());
+            return counts[index] == 0 ? ParetoFront.EMPTY : new ParetoFront(tuples[index], 0, counts[index]);
+        }
+
+        @Override
+        public int size() {
+            return counts.length;
+        }
+    }
+
     /**
      * Classe qui représente un bâtisseur de profil
      *  @author Yoann Salamin (390522)
@@ -82,6 +259,19 @@ public record Profile(TimeTable timeTable, LocalDate date, int arrStationId, Lis
         // tableau qui contient les bâtisseurs des frontières de Pareto des courses
         private final ParetoFront.Builder[]  paretoFrontTripsList;
 
+        // nombre de frontières de courses actuellement associées à une course, et maximum atteint
+        private int liveTripFronts;
+        private int peakLiveTripFronts;
+
+        // zone partagée dans laquelle sont stockés les tuples des frontières créées par newFront,
+        // ou null si chacune d'elles a son propre tableau
+        private final FrontArena arena;
+
+        // tuples des frontières des gares déjà copiés par buildDepartingAtOrAfter, et leur nombre,
+        // ou null si cette méthode n'a pas encore été appelée
+        private long[][] finalizedTuples;
+        private int[] finalizedCounts;
+
 
         /**
          * Constructeur qui construit un bâtisseur de profil pour l'horaire, la date et la gare de destination donnés.
@@ -90,12 +280,25 @@ public record Profile(TimeTable timeTable, LocalDate date, int arrStationId, Lis
          * @param arrStationId gare de destination donnée
          */
         public Builder(TimeTable timeTable, LocalDate date, int arrStationId) {
+            this(timeTable, date, arrStationId, null);
+        }
+
+        /**
+         * Constructeur qui construit un bâtisseur de profil pour l'horaire, la date et la gare de destination donnés,
+         * dont les frontières créées par newFront stockent leurs tuples dans la zone partagée donnée
+         * @param timeTable horaire donné
+         * @param date date donnée
+         * @param arrStationId gare de destination donnée
+         * @param arena zone partagée, ou null pour que chaque frontière ait son propre tableau
+         */
+        Builder(TimeTable timeTable, LocalDate date, int arrStationId, FrontArena arena) {
 
 
             // On stocke les valeurs données dans nos attributs d'instance
             this.currentTimetable = timeTable;
             this.currentLocalDate = date;
             this.currentArrStationId = arrStationId;
+            this.arena = arena;
 
 
             // On initialise les deux tableaux primitifs qui stockent les frontières de Pareto
@@ -157,10 +360,128 @@ public record Profile(TimeTable timeTable, LocalDate date, int arrStationId, Lis
          */
         public void setForTrip(int tripId, ParetoFront.Builder builder) {
 
+            // On tient à jour le nombre de frontières de courses vivantes
+            if (paretoFrontTripsList[tripId] == null && builder != null) {
+                liveTripFronts++;
+                peakLiveTripFronts = Math.max(peakLiveTripFronts, liveTripFronts);
+            } else if (paretoFrontTripsList[tripId] != null && builder == null) {
+                liveTripFronts--;
+            }
+
             // On met simplement le builder au bon endroit dans la liste
             paretoFrontTripsList[tripId] = builder;
         }
 
+        /**
+         * Fonction qui libère la frontière de Pareto de la course d'index donné, qui ne sera plus
+         * utilisée, afin que son stockage puisse être réutilisé par d'autres frontières.
+         * Après cet appel, forTrip retourne null pour cette course.
+         * @param tripId course d'index donné
+         * @throws IndexOutOfBoundsException si l'index est invalide
+         */
+        void releaseForTrip(int tripId) {
+            ParetoFront.Builder builder = paretoFrontTripsList[tripId];
+            if (builder == null) return;
+
+            builder.release();
+            setForTrip(tripId, null);
+        }
+
+        /**
+         * Fonction qui retourne le nombre de frontières de courses actuellement associées à une course
+         * @return le nombre de frontières de courses vivantes
+         */
+        int liveTripFronts() {
+            return liveTripFronts;
+        }
+
+        /**
+         * Fonction qui retourne le nombre maximal de frontières de courses ayant été vivantes en même temps
+         * @return le nombre maximal de frontières de courses vivantes
+         */
+        int peakLiveTripFronts() {
+            return peakLiveTripFronts;
+        }
+
+        /**
+         * Fonction qui retourne un nouveau bâtisseur de frontière vide, stocké dans la zone partagée
+         * de ce bâtisseur de profil s'il en a une
+         * @return un bâtisseur de frontière de Pareto vide
+         */
+        ParetoFront.Builder newFront() {
+            return arena == null ? new ParetoFront.Builder() : new ParetoFront.Builder(arena);
+        }
+
+        /**
+         * Fonction qui retourne une copie du bâtisseur de frontière donné, stockée dans la zone partagée
+         * de ce bâtisseur de profil s'il en a une
+         * @param that bâtisseur de frontière à copier
+         * @return la copie du bâtisseur donné
+         */
+        ParetoFront.Builder newFront(ParetoFront.Builder that) {
+            return arena == null ? new ParetoFront.Builder(that) : new ParetoFront.Builder(that, arena);
+        }
+
+        /**
+         * Fonction qui retourne une copie de ce bâtisseur, pour l'horaire donné, dont les frontières des gares
+         * et des courses sont des copies de celles de ce bâtisseur stockées dans la zone partagée donnée
+         * @param timeTable horaire de la copie, dont les gares et les courses du jour doivent être
+         *                  celles de l'horaire de ce bâtisseur
+         * @param arena zone partagée, ou null pour que chaque frontière ait son propre tableau
+         * @return la copie de ce bâtisseur
+         */
+        Builder copy(TimeTable timeTable, FrontArena arena) {
+            Builder copy = new Builder(timeTable, currentLocalDate, currentArrStationId, arena);
+            for (int i = 0; i < paretoFrontStationList.length; i++) {
+                if (paretoFrontStationList[i] != null) copy.setForStation(i, copy.newFront(paretoFrontStationList[i]));
+            }
+            for (int i = 0; i < paretoFrontTripsList.length; i++) {
+                if (paretoFrontTripsList[i] != null) copy.setForTrip(i, copy.newFront(paretoFrontTripsList[i]));
+            }
+            return copy;
+        }
+
+        /**
+         * Fonction qui retourne le profil réduit aux tuples des frontières des gares dont l'heure de départ
+         * est supérieure ou égale à celle donnée, qui ne doivent plus changer. Seuls les tuples qui n'ont pas été
+         * copiés lors d'un appel précédent le sont, de sorte que le coût total des appels successifs, dont les
+         * heures données doivent être décroissantes, est proportionnel à la taille du profil, et non au nombre
+         * d'appels multiplié par cette taille. Le bâtisseur peut continuer à être utilisé.
+         * @param minDepMins heure de départ minimale, en minutes après minuit
+         * @return le profil des voyages partant au plus tôt à minDepMins
+         */
+        Profile buildDepartingAtOrAfter(int minDepMins) {
+            int stationsCount = paretoFrontStationList.length;
+            if (finalizedTuples == null) {
+                finalizedTuples = new long[stationsCount][];
+                finalizedCounts = new int[stationsCount];
+            }
+
+            for (int i = 0; i < stationsCount; i++) {
+                ParetoFront.Builder bld = paretoFrontStationList[i];
+                if (bld == null) continue;
+
+                int copied = finalizedCounts[i];
+                int count = bld.countDepartingAtOrAfter(minDepMins);
+                if (count <= copied) continue;
+
+                // Un tableau trop petit est remplacé par un plus grand, l'ancien restant valide
+                // pour les profils déjà retournés, qui n'en lisent que le début
+                long[] tuples = finalizedTuples[i];
+                if (tuples == null || tuples.length < count) {
+                    tuples = tuples == null
+                            ? new long[count]
+                            : Arrays.copyOf(tuples, Math.max(count, 2 * tuples.length));
+                    finalizedTuples[i] = tuples;
+                }
+                bld.copyTo(copied, tuples, copied, count - copied);
+                finalizedCounts[i] = count;
+            }
+
+            return new Profile(currentTimetable, currentLocalDate, currentArrStationId,
+                    new PrefixFronts(finalizedTuples.clone(), finalizedCounts.clone()));
+        }
+
         /**
          * Fonction qui retourne le profil simple sans les frontières de Pareto correspondant aux courses
          * en cours de construction.
@@ -168,23 +489,23 @@ public record Profile(TimeTable timeTable, LocalDate date, int arrStationId, Lis
          */
         public Profile build() {
 
-            // Construction de la liste contenant les frontières de Pareto
-            List<ParetoFront> paretoFrontList = new ArrayList<>();
-
-            // on itère sur tous les builders
-            for (ParetoFront.Builder bld : paretoFrontStationList) {
-                // on ne peut appeler que les builders qui ne sont
-                // pas nuls
-                if (bld == null) {
-                    paretoFrontList.add(ParetoFront.EMPTY);
-                } else {
-                    // en ajoute le Profile dans notre liste
-                    // en appelant le builder
-                    paretoFrontList.add(bld.build());
-                }
+            // Calcul de l'index du début de chaque frontière dans le tableau de tuples,
+            // les bâtisseurs nuls correspondant à des frontières vides
+            int[] offsets = new int[paretoFrontStationList.length + 1];
+            for (int i = 0; i < paretoFrontStationList.length; i++) {
+                ParetoFront.Builder bld = paretoFrontStationList[i];
+                offsets[i + 1] = offsets[i] + (bld == null ? 0 : bld.size());
+            }
+
+            // Les tuples de chaque bâtisseur sont copiés une seule fois, directement à leur place
+            long[] tuples = new long[offsets[paretoFrontStationList.length]];
+            for (int i = 0; i < paretoFrontStationList.length; i++) {
+                ParetoFront.Builder bld = paretoFrontStationList[i];
+                if (bld != null) bld.copyTo(0, tuples, offsets[i], bld.size());
             }
 
-            return new Profile(currentTimetable, currentLocalDate, currentArrStationId, paretoFrontList);
+            return new Profile(currentTimetable, currentLocalDate, currentArrStationId,
+                    new CompactFronts(tuples, offsets));
         }
 
 
@@ -0,0 +1,350 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.Preconditions;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Classe qui représente un cache de profils, calculés à l'aide d'un routeur, dont la taille totale
+ * est bornée. Lorsque cette taille dépasse le budget donné, les profils utilisés le moins récemment
+ * sont retirés du cache. Le cache peut être utilisé par plusieurs threads en même temps, et un profil
+ * demandé simultanément par plusieurs d'entre eux n'est calculé qu'une seule fois.
+ * Le cache peut en outre être associé à un stockage sur disque, dans lequel les profils absents
+ * du cache sont cherchés avant d'être calculés, et dans lequel les profils calculés sont écrits.
+ * Un calcul annulé par l'interruption de son thread n'est pas gardé comme étant en cours : les threads
+ * qui l'attendaient sans avoir été interrompus eux-mêmes reprennent alors le calcul.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ProfileCache {
+
+    /**
+     * Enregistrement qui représente les statistiques d'utilisation du cache
+     * @param hits nombre de profils trouvés dans le cache
+     * @param misses nombre de profils absents du cache, et donc calculés ou attendus
+     * @param evictions nombre de profils retirés du cache pour respecter le budget
+     * @param entries nombre de profils actuellement dans le cache
+     * @param sizeInBytes estimation de la taille totale des profils du cache, en octets
+     */
+    public record Statistics(long hits, long misses, long evictions, int entries, long sizeInBytes) {}
+
+    // Clé d'un profil : sa date et sa gare d'arrivée
+    private record Key(LocalDate date, int arrStationId) {}
+
+    // Profil du cache, avec sa taille estimée
+    private record Entry(Profile profile, long sizeInBytes) {}
+
+    private final Router router;
+    private final long maxSizeInBytes;
+
+    // Stockage sur disque des profils, ou null s'il n'y en a pas
+    private final ProfileStore store;
+
+    // Profils du cache, dans l'ordre de leur dernière utilisation
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Calculs en cours, qui peuvent être attendus par les autres threads demandant le même profil
+    private final Map<Key, CompletableFuture<Profile>> pendingProfiles = new HashMap<>();
+
+    // Taille totale des profils du cache et statistiques, protégées par le verrou de l'instance
+    private long sizeInBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // Nombre de requêtes interactives absentes du cache en cours, protégé par le verrou de l'instance
+    private int interactiveRequests;
+
+    /**
+     * Constructeur qui construit un cache vide
+     * @param router routeur utilisé pour calculer les profils absents du cache
+     * @param maxSizeInBytes taille totale maximale des profils du cache, en octets
+     * @throws IllegalArgumentException si la taille maximale est négative
+     */
+    public ProfileCache(Router router, long maxSizeInBytes) {
+        this(router, maxSizeInBytes, null);
+    }
+
+    /**
+     * Constructeur qui construit un cache vide, associé au stockage sur disque donné
+     * @param router routeur utilisé pour calculer les profils absents du cache et du stockage
+     * @param maxSizeInBytes taille totale maximale des profils du cache, en octets
+     * @param store stockage des profils de l'horaire du routeur, ou null s'il n'y en a pas
+     * @throws IllegalArgumentException si la taille maximale est négative
+     */
+    public ProfileCache(Router router, long maxSizeInBytes, ProfileStore store) {
+        Preconditions.checkArgument(maxSizeInBytes >= 0);
+        this.router = Objects.requireNonNull(router);
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.store = store;
+    }
+
+    /**
+     * Méthode qui retourne le profil des voyages optimaux vers la gare d'arrivée donnée, le jour donné,
+     * en le prenant dans le cache s'il s'y trouve, et en le calculant puis en l'y ajoutant sinon
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return le profil des voyages optimaux
+     */
+    public Profile profile(LocalDate date, int arrStationId) {
+        return profile(date, arrStationId, true, 0, null);
+    }
+
+    /**
+     * Méthode qui retourne le profil des voyages optimaux vers la gare d'arrivée donnée, le jour donné,
+     * comme profile, mais qui, si le profil est calculé par ce thread, informe l'auditeur donné des tranches
+     * du profil terminées pendant son calcul (voir Router.SliceListener). L'auditeur n'est pas appelé si
+     * le profil est trouvé dans le cache ou dans le stockage, ou s'il est calculé par un autre thread.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param sliceMinutes durée d'une tranche, en minutes
+     * @param listener auditeur informé de chaque tranche terminée
+     * @return le profil des voyages optimaux
+     * @throws IllegalArgumentException si la durée d'une tranche n'est pas strictement positive
+     */
+    public Profile profile(LocalDate date, int arrStationId, int sliceMinutes, Router.SliceListener listener) {
+        Preconditions.checkArgument(sliceMinutes > 0);
+        return profile(date, arrStationId, true, sliceMinutes, Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Méthode qui retourne le profil donné comme profile, mais pour un calcul d'arrière-plan, par exemple
+     * un préchargement ou un calcul spéculatif, qui ne retarde pas les tâches attendant la fin des requêtes
+     * interactives (voir awaitNoInteractiveRequest)
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return le profil des voyages optimaux
+     */
+    public Profile profileInBackground(LocalDate date, int arrStationId) {
+        return profile(date, arrStationId, false, 0, null);
+    }
+
+    /**
+     * Fonction qui retourne vrai ssi le profil donné se trouve dans le cache, sans modifier l'ordre d'utilisation
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return vrai ssi le profil est dans le cache
+     */
+    synchronized boolean contains(LocalDate date, int arrStationId) {
+        return entries.containsKey(new Key(date, arrStationId));
+    }
+
+    /**
+     * Fonction qui attend qu'aucune requête interactive absente du cache ne soit en cours, afin que
+     * les calculs d'arrière-plan ne leur fassent pas concurrence
+     * @throws InterruptedException si le thread est interrompu pendant l'attente
+     */
+    synchronized void awaitNoInteractiveRequest() throws InterruptedException {
+        while (interactiveRequests > 0) wait();
+    }
+
+    /**
+     * Fonction qui retourne le profil donné, en le prenant dans le cache s'il s'y trouve, et en le calculant
+     * puis en l'y ajoutant sinon
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param interactive vrai ssi la requête provient d'un utilisateur, et non d'un calcul d'arrière-plan
+     * @param sliceMinutes durée d'une tranche, en minutes, ignorée s'il n'y a pas d'auditeur
+     * @param listener auditeur informé des tranches terminées si le profil est calculé, ou null
+     * @return le profil des voyages optimaux
+     */
+    private Profile profile(LocalDate date, int arrStationId, boolean interactive,
+                            int sliceMinutes, Router.SliceListener listener) {
+        Key key = new Key(Objects.requireNonNull(date), arrStationId);
+        CompletableFuture<Profile> pendingProfile;
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.profile();
+            }
+            misses++;
+            if (interactive) interactiveRequests++;
+
+            // Si un autre thread calcule déjà ce profil, on attend son résultat
+            pendingProfile = pendingProfiles.get(key);
+            if (pendingProfile == null) {
+                pendingProfiles.put(key, new CompletableFuture<>());
+            }
+        }
+
+        try {
+            while (pendingProfile != null) {
+                try {
+                    return awaitProfile(pendingProfile);
+                } catch (CancellationException e) {
+                    // Le calcul attendu a été annulé par l'interruption de son thread,
+                    // ce qui ne concerne ce thread que s'il a lui-même été interrompu
+                    if (Thread.currentThread().isInterrupted()) throw e;
+                    synchronized (this) {
+                        Entry entry = entries.get(key);
+                        if (entry != null) return entry.profile();
+                        pendingProfile = pendingProfiles.get(key);
+                        if (pendingProfile == null) {
+                            pendingProfiles.put(key, new CompletableFuture<>());
+                        }
+                    }
+                }
+            }
+            return computeProfile(key, interactive, sliceMinutes, listener);
+        } finally {
+            if (interactive) {
+                synchronized (this) {
+                    if (--interactiveRequests == 0) notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Fonction qui calcule le profil de la clé donnée, dont le calcul doit avoir été enregistré comme
+     * étant en cours, puis l'ajoute au cache et le transmet aux threads qui l'attendent
+     * @param key clé du profil
+     * @param interactive vrai ssi la requête provient d'un utilisateur, et non d'un calcul d'arrière-plan
+     * @param sliceMinutes durée d'une tranche, en minutes, ignorée s'il n'y a pas d'auditeur
+     * @param listener auditeur informé des tranches terminées, ou null
+     * @return le profil calculé
+     */
+    private Profile computeProfile(Key key, boolean interactive, int sliceMinutes, Router.SliceListener listener) {
+        // Le calcul est fait sans verrou, afin de ne pas bloquer les autres accès au cache
+        CompletableFuture<Profile> computation;
+        try {
+            Profile profile = loadOrCompute(key.date(), key.arrStationId(), interactive, sliceMinutes, listener);
+            synchronized (this) {
+                computation = pendingProfiles.remove(key);
+                put(key, profile);
+            }
+            computation.complete(profile);
+            return profile;
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                computation = pendingProfiles.remove(key);
+            }
+            computation.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Méthode qui retourne le profil des voyages optimaux vers la gare d'arrivée donnée, le jour donné,
+     * s'il se trouve dans le cache, sans le calculer sinon
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return le profil, ou null s'il n'est pas dans le cache
+     */
+    public synchronized Profile profileIfPresent(LocalDate date, int arrStationId) {
+        Entry entry = entries.get(new Key(date, arrStationId));
+        return entry == null ? null : entry.profile();
+    }
+
+    /**
+     * Méthode qui retire tous les profils du cache, sans modifier les statistiques
+     */
+    public synchronized void clear() {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    /**
+     * Méthode qui retourne les statistiques d'utilisation du cache
+     * @return les statistiques actuelles
+     */
+    public synchronized Statistics statistics() {
+        return new Statistics(hits, misses, evictions, entries.size(), sizeInBytes);
+    }
+
+    /**
+     * Fonction qui ajoute le profil donné au cache, puis retire les profils utilisés le moins
+     * récemment tant que le budget est dépassé. Un profil plus grand que le budget n'est pas gardé.
+     * Le verrou de l'instance doit être détenu.
+     * @param key clé du profil
+     * @param profile profil à ajouter
+     */
+    private void put(Key key, Profile profile) {
+        long profileSize = profile.sizeInBytes();
+        if (profileSize > maxSizeInBytes) return;
+
+        Entry previous = entries.put(key, new Entry(profile, profileSize));
+        if (previous != null) sizeInBytes -= previous.sizeInBytes();
+        sizeInBytes += profileSize;
+
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (sizeInBytes > maxSizeInBytes) {
+            sizeInBytes -= leastRecentlyUsed.next().sizeInBytes();
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Fonction qui lit le profil donné dans le stockage, ou le calcule et l'y écrit s'il ne s'y trouve pas.
+     * Le stockage n'étant qu'une optimisation, ses erreurs de lecture et d'écriture sont ignorées.
+     * La somme de contrôle des tuples, qui oblige à lire tout le fichier, n'est vérifiée que lors des
+     * calculs d'arrière-plan, afin de ne pas retarder les requêtes interactives.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param interactive vrai ssi la requête provient d'un utilisateur, et non d'un calcul d'arrière-plan
+     * @param sliceMinutes durée d'une tranche, en minutes, ignorée s'il n'y a pas d'auditeur
+     * @param listener auditeur informé des tranches terminées si le profil est calculé, ou null
+     * @return le profil des voyages optimaux
+     */
+    private Profile loadOrCompute(LocalDate date, int arrStationId, boolean interactive, int sliceMinutes,
+                                  Router.SliceListener listener) {
+        if (store == null) return compute(date, arrStationId, sliceMinutes, listener);
+
+        try {
+            Profile storedProfile = store.load(router.timetable(), date, arrStationId, !interactive);
+            if (storedProfile != null) return storedProfile;
+        } catch (UncheckedIOException e) {
+            // le profil est recalculé
+        }
+
+        Profile profile = compute(date, arrStationId, sliceMinutes, listener);
+        try {
+            store.save(profile);
+        } catch (UncheckedIOException e) {
+            // le profil sera recalculé lors de la prochaine exécution
+        }
+        return profile;
+    }
+
+    /**
+     * Fonction qui calcule le profil donné à l'aide du routeur
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param sliceMinutes durée d'une tranche, en minutes, ignorée s'il n'y a pas d'auditeur
+     * @param listener auditeur informé des tranches terminées, ou null
+     * @return le profil des voyages optimaux
+     */
+    private Profile compute(LocalDate date, int arrStationId, int sliceMinutes, Router.SliceListener listener) {
+        return listener == null
+                ? router.profile(date, arrStationId)
+                : router.profile(date, arrStationId, sliceMinutes, listener);
+    }
+
+    /**
+     * Fonction qui attend la fin du calcul d'un profil par un autre thread
+     * @param pendingProfile calcul en cours
+     * @return le profil calculé
+     */
+    private static Profile awaitProfile(CompletableFuture<Profile> pendingProfile) {
+        try {
+            return pendingProfile.join();
+        } catch (CompletionException e) {
+            // On relance l'erreur du calcul telle quelle
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+}
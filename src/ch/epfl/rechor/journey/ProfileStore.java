@@ -0,0 +1,331 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.Preconditions;
+import ch.epfl.rechor.timetable.TimeTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Classe qui représente un stockage sur disque de profils, calculés pour l'horaire d'un dossier donné,
+ * qui permet de les réutiliser d'une exécution à l'autre sans les recalculer.
+ * <p>
+ * Chaque profil est stocké dans un fichier binaire aplati, qui est mappé en mémoire lors de sa lecture :
+ * les tuples d'une frontière du profil lu ne sont lus dans ce fichier que lorsqu'elle est demandée,
+ * de sorte que plusieurs programmes lisant le même profil partagent les mêmes pages en mémoire.
+ * Un fichier n'est utilisé que si sa version, sa clé (dossier de l'horaire, date et gare d'arrivée),
+ * l'empreinte des fichiers de l'horaire dont il dépend et la somme de contrôle de ses index sont valides.
+ * La somme de contrôle des tuples, qui obligerait à lire tout le fichier, n'est vérifiée que sur demande.
+ * <p>
+ * Format d'un fichier, dont toutes les valeurs sont stockées en big-endian :
+ * <ul>
+ *     <li>en-tête de {@value #HEADER_SIZE} octets : nombre magique, version, taille de la clé,
+ *     empreinte de l'horaire, date, gare d'arrivée, nombre de gares, nombre de tuples, somme de
+ *     contrôle CRC32 de la clé et des index, et somme de contrôle CRC32 des tuples,</li>
+ *     <li>chemin du dossier de l'horaire, encodé en UTF-8,</li>
+ *     <li>index du début de la frontière de chaque gare, suivi du nombre total de tuples (S32),</li>
+ *     <li>tuples de toutes les frontières, les unes à la suite des autres (S64).</li>
+ * </ul>
+ * Chaque section commence à une position multiple de 8, afin que les tuples soient alignés.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ProfileStore {
+
+    // Nombre magique ("RCHP") et version du format des fichiers
+    private static final int MAGIC = 0x52434850;
+    private static final short VERSION = 2;
+
+    // Position des champs de l'en-tête, en octets
+    private static final int MAGIC_POS = 0;
+    private static final int VERSION_POS = 4;
+    private static final int KEY_LENGTH_POS = 6;
+    private static final int FINGERPRINT_POS = 8;
+    private static final int DATE_POS = 12;
+    private static final int ARR_STATION_ID_POS = 16;
+    private static final int STATIONS_COUNT_POS = 20;
+    private static final int TUPLES_COUNT_POS = 24;
+    private static final int OFFSETS_CHECKSUM_POS = 28;
+    private static final int TUPLES_CHECKSUM_POS = 32;
+    private static final int HEADER_SIZE = 36;
+
+    // Alignement du début de chaque section du fichier
+    private static final int ALIGNMENT = Long.BYTES;
+
+    // Extension des fichiers de profil
+    private static final String FILE_EXTENSION = ".profile";
+
+    // Fichiers de l'horaire dont dépend un profil, communs à tous les jours puis propres au jour du profil
+    private static final List<String> TIME_TABLE_FILES = List.of("stations.bin", "platforms.bin", "transfers.bin");
+    private static final List<String> DAY_FILES = List.of("trips.bin", "connections.bin", "connections-succ.bin");
+
+    private final Path directory;
+    private final Path timeTableDirectory;
+
+    // Clé de l'horaire, stockée dans chaque fichier, et dossier propre à cet horaire dans le stockage
+    private final byte[] timeTableKey;
+    private final Path timeTableStoreDirectory;
+
+    /**
+     * Constructeur qui construit un stockage de profils dans le dossier donné, pour l'horaire dont
+     * les fichiers se trouvent dans le dossier donné. Un même dossier de stockage peut être partagé
+     * par plusieurs horaires.
+     * @param directory dossier dans lequel stocker les profils, créé au besoin lors de l'écriture
+     * @param timeTableDirectory dossier contenant les fichiers de l'horaire
+     * @throws IllegalArgumentException si le chemin du dossier de l'horaire est trop long pour être stocké
+     */
+    public ProfileStore(Path directory, Path timeTableDirectory) {
+        this.directory = Objects.requireNonNull(directory);
+        this.timeTableDirectory = timeTableDirectory.toAbsolutePath().normalize();
+
+        String key = this.timeTableDirectory.toString();
+        this.timeTableKey = key.getBytes(StandardCharsets.UTF_8);
+        Preconditions.checkArgument(timeTableKey.length <= 0xFFFF);
+        this.timeTableStoreDirectory = directory.resolve(Integer.toHexString(key.hashCode()));
+    }
+
+    /**
+     * Méthode qui retourne le dossier dans lequel les profils sont stockés
+     * @return le dossier du stockage
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Méthode qui retourne le profil stocké pour la date et la gare d'arrivée données, dont les frontières
+     * sont lues dans le fichier mappé en mémoire lorsqu'elles sont demandées. La somme de contrôle des
+     * tuples n'est pas vérifiée, afin que la lecture ne parcoure pas tout le fichier.
+     * @param timeTable horaire du profil, dont les fichiers doivent être ceux du dossier de ce stockage
+     * @param date date du profil
+     * @param arrStationId identifiant de la gare d'arrivée
+     * @return le profil stocké, ou null s'il n'existe pas ou que son fichier est invalide ou périmé
+     * @throws UncheckedIOException en cas d'erreur de lecture du fichier
+     */
+    public Profile load(TimeTable timeTable, LocalDate date, int arrStationId) {
+        return load(timeTable, date, arrStationId, false);
+    }
+
+    /**
+     * Méthode qui retourne le profil stocké pour la date et la gare d'arrivée données, comme load,
+     * en vérifiant en outre, si demandé, la somme de contrôle des tuples, ce qui implique de lire tout le fichier
+     * @param timeTable horaire du profil, dont les fichiers doivent être ceux du dossier de ce stockage
+     * @param date date du profil
+     * @param arrStationId identifiant de la gare d'arrivée
+     * @param verifyTuples vrai ssi la somme de contrôle des tuples doit être vérifiée
+     * @return le profil stocké, ou null s'il n'existe pas ou que son fichier est invalide ou périmé
+     * @throws UncheckedIOException en cas d'erreur de lecture du fichier
+     */
+    public Profile load(TimeTable timeTable, LocalDate date, int arrStationId, boolean verifyTuples) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file(date, arrStationId))) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // En-tête et clé
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(MAGIC_POS) != MAGIC
+                || buffer.getShort(VERSION_POS) != VERSION
+                || Short.toUnsignedInt(buffer.getShort(KEY_LENGTH_POS)) != timeTableKey.length
+                || buffer.getInt(FINGERPRINT_POS) != fingerprint(timeTableDirectory, date)
+                || buffer.getInt(DATE_POS) != (int) date.toEpochDay()
+                || buffer.getInt(ARR_STATION_ID_POS) != arrStationId
+                || buffer.getInt(STATIONS_COUNT_POS) != timeTable.stations().size()) {
+            return null;
+        }
+        int stationsCount = buffer.getInt(STATIONS_COUNT_POS);
+        int tuplesCount = buffer.getInt(TUPLES_COUNT_POS);
+        int offsetsPos = align(HEADER_SIZE + timeTableKey.length);
+        int tuplesPos = align(offsetsPos + Integer.BYTES * (stationsCount + 1));
+        if (tuplesCount < 0 || buffer.capacity() != tuplesPos + (long) Long.BYTES * tuplesCount) return null;
+
+        byte[] key = new byte[timeTableKey.length];
+        buffer.get(HEADER_SIZE, key);
+        if (!Arrays.equals(key, timeTableKey)) return null;
+
+        // Sommes de contrôle de la clé et des index, qui sont petits, puis des tuples si demandé
+        if (checksum(buffer, HEADER_SIZE, tuplesPos) != buffer.getInt(OFFSETS_CHECKSUM_POS)) return null;
+        if (verifyTuples && checksum(buffer, tuplesPos, buffer.capacity()) != buffer.getInt(TUPLES_CHECKSUM_POS)) {
+            return null;
+        }
+
+        IntBuffer offsets = buffer.slice(offsetsPos, Integer.BYTES * (stationsCount + 1)).asIntBuffer();
+        LongBuffer tuples = buffer.slice(tuplesPos, Long.BYTES * tuplesCount).asLongBuffer();
+        if (!areValidOffsets(offsets, tuplesCount)) return null;
+
+        return Profile.ofMappedFronts(timeTable, date, arrStationId, tuples, offsets);
+    }
+
+    /**
+     * Méthode qui écrit le profil donné dans le stockage, en remplaçant celui qui s'y trouve éventuellement.
+     * Le fichier est d'abord écrit sous un nom temporaire puis renommé, afin qu'un autre programme
+     * ne puisse jamais lire un fichier partiellement écrit.
+     * @param profile profil à stocker, calculé pour l'horaire du dossier de ce stockage
+     * @throws UncheckedIOException en cas d'erreur d'écriture du fichier
+     */
+    public void save(Profile profile) {
+        List<ParetoFront> fronts = profile.stationFront();
+        int stationsCount = fronts.size();
+        long tuplesCount = 0;
+        for (ParetoFront front : fronts) tuplesCount += front.size();
+
+        int offsetsPos = align(HEADER_SIZE + timeTableKey.length);
+        int tuplesPos = align(offsetsPos + Integer.BYTES * (stationsCount + 1));
+        long fileSize = tuplesPos + Long.BYTES * tuplesCount;
+        if (fileSize > Integer.MAX_VALUE) return;
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+        buffer.putInt(MAGIC_POS, MAGIC)
+                .putShort(VERSION_POS, VERSION)
+                .putShort(KEY_LENGTH_POS, (short) timeTableKey.length)
+                .putInt(FINGERPRINT_POS, fingerprint(timeTableDirectory, profile.date()))
+                .putInt(DATE_POS, (int) profile.date().toEpochDay())
+                .putInt(ARR_STATION_ID_POS, profile.arrStationId())
+                .putInt(STATIONS_COUNT_POS, stationsCount)
+                .putInt(TUPLES_COUNT_POS, (int) tuplesCount)
+                .put(HEADER_SIZE, timeTableKey);
+
+        // Les tuples sont écrits les uns à la suite des autres, dans l'ordre des gares
+        LongBuffer tuples = buffer.slice(tuplesPos, Long.BYTES * (int) tuplesCount).asLongBuffer();
+        int offset = 0;
+        for (int i = 0; i < stationsCount; i++) {
+            buffer.putInt(offsetsPos + Integer.BYTES * i, offset);
+            ParetoFront front = fronts.get(i);
+            front.forEach(tuples::put);
+            offset += front.size();
+        }
+        buffer.putInt(offsetsPos + Integer.BYTES * stationsCount, offset);
+
+        buffer.putInt(OFFSETS_CHECKSUM_POS, checksum(buffer, HEADER_SIZE, tuplesPos))
+                .putInt(TUPLES_CHECKSUM_POS, checksum(buffer, tuplesPos, buffer.capacity()));
+
+        Path file = file(profile.date(), profile.arrStationId());
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporaryFile, buffer.array());
+                moveAtomically(temporaryFile, file);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fonction qui retourne le chemin du fichier du profil de la date et de la gare d'arrivée données
+     * @param date date du profil
+     * @param arrStationId identifiant de la gare d'arrivée
+     * @return le chemin du fichier
+     */
+    private Path file(LocalDate date, int arrStationId) {
+        return timeTableStoreDirectory.resolve(date.toString()).resolve(arrStationId + FILE_EXTENSION);
+    }
+
+    /**
+     * Fonction qui calcule l'empreinte des fichiers de l'horaire dont dépendent les données du jour donné,
+     * à partir de leur taille et de leur date de modification, afin de détecter les fichiers périmés
+     * @param timeTableDirectory dossier contenant les fichiers de l'horaire
+     * @param date date des données
+     * @return l'empreinte des fichiers de l'horaire
+     */
+    static int fingerprint(Path timeTableDirectory, LocalDate date) {
+        CRC32 fingerprint = new CRC32();
+        Path dayDirectory = timeTableDirectory.resolve(date.toString());
+        for (String fileName : TIME_TABLE_FILES) addToFingerprint(fingerprint, timeTableDirectory.resolve(fileName));
+        for (String fileName : DAY_FILES) addToFingerprint(fingerprint, dayDirectory.resolve(fileName));
+        return (int) fingerprint.getValue();
+    }
+
+    /**
+     * Fonction qui ajoute la taille et la date de modification du fichier donné à l'empreinte donnée,
+     * un fichier absent étant représenté par une taille négative
+     * @param fingerprint empreinte en cours de calcul
+     * @param file fichier de l'horaire
+     */
+    private static void addToFingerprint(CRC32 fingerprint, Path file) {
+        ByteBuffer attributes = ByteBuffer.allocate(2 * Long.BYTES);
+        try {
+            BasicFileAttributes fileAttributes = Files.readAttributes(file, BasicFileAttributes.class);
+            attributes.putLong(fileAttributes.size()).putLong(fileAttributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            attributes.putLong(-1).putLong(0);
+        }
+        fingerprint.update(attributes.array());
+    }
+
+    /**
+     * Fonction qui calcule la somme de contrôle CRC32 des octets du tampon donné compris entre les positions
+     * données
+     * @param buffer tampon
+     * @param from position du premier octet (inclus)
+     * @param to position du dernier octet (exclus)
+     * @return la somme de contrôle
+     */
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.slice(from, to - from));
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Fonction qui vérifie que les index du début des frontières sont croissants,
+     * commencent à 0 et se terminent par le nombre total de tuples
+     * @param offsets index du début de chaque frontière, suivi du nombre total de tuples
+     * @param tuplesCount nombre total de tuples
+     * @return vrai ssi les index sont valides
+     */
+    private static boolean areValidOffsets(IntBuffer offsets, int tuplesCount) {
+        if (offsets.get(0) != 0 || offsets.get(offsets.capacity() - 1) != tuplesCount) return false;
+        for (int i = 1; i < offsets.capacity(); i++) {
+            if (offsets.get(i) < offsets.get(i - 1)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fonction qui arrondit la position donnée au multiple de l'alignement supérieur ou égal
+     * @param position position en octets
+     * @return la position alignée
+     */
+    private static int align(int position) {
+        return (position + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Fonction qui renomme le fichier temporaire donné, de manière atomique si le système de fichiers
+     * le permet, en remplaçant le fichier de destination s'il existe
+     * @param source fichier temporaire
+     * @param target fichier de destination
+     * @throws IOException en cas d'erreur lors du renommage
+     */
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.Preconditions;
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.TimeTable;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Classe qui représente un préchargement en arrière-plan des profils des gares d'arrivée les plus
+ * demandées, afin que les premières requêtes vers celles-ci n'aient pas à attendre leur calcul.
+ * <p>
+ * Les profils sont calculés dans l'ordre dans lequel ils sont planifiés, par des threads de faible
+ * priorité qui n'empêchent pas le programme de se terminer. Avant chaque calcul, ces threads attendent
+ * qu'aucune requête interactive absente du cache ne soit en cours, afin de ne pas la ralentir.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ProfileWarmUp implements AutoCloseable {
+
+    /**
+     * Enregistrement qui représente l'avancement du préchargement
+     * @param scheduled nombre de profils planifiés
+     * @param computed nombre de profils calculés (ou lus dans le stockage du cache)
+     * @param alreadyCached nombre de profils qui se trouvaient déjà dans le cache
+     * @param failed nombre de profils dont le calcul a échoué
+     * @param computeTime temps total passé à calculer les profils
+     */
+    public record Progress(int scheduled, int computed, int alreadyCached, int failed, Duration computeTime) {
+
+        /**
+         * Méthode qui retourne le nombre de profils planifiés dont le préchargement n'est pas terminé
+         * @return le nombre de profils restants
+         */
+        public int remaining() {
+            return scheduled - computed - alreadyCached - failed;
+        }
+    }
+
+    private final ProfileCache cache;
+    private final ExecutorService executor;
+
+    // Compteurs de l'avancement
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final AtomicInteger computed = new AtomicInteger();
+    private final AtomicInteger alreadyCached = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong computeNanos = new AtomicLong();
+
+    /**
+     * Constructeur qui construit un préchargement, initialement sans aucun profil planifié
+     * @param cache cache dans lequel ajouter les profils
+     * @param threadsCount nombre de threads calculant les profils
+     * @throws IllegalArgumentException si le nombre de threads n'est pas strictement positif
+     */
+    public ProfileWarmUp(ProfileCache cache, int threadsCount) {
+        Preconditions.checkArgument(threadsCount > 0);
+        this.cache = Objects.requireNonNull(cache);
+
+        AtomicInteger threadsNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threadsCount, task -> {
+            Thread thread = new Thread(task, "rechor-warm-up-" + threadsNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Méthode qui planifie le préchargement des profils des gares d'arrivée données, le jour donné,
+     * dans l'ordre de la liste
+     * @param date la date des profils
+     * @param arrStationIds identifiants des gares d'arrivée, de la plus demandée à la moins demandée
+     */
+    public void schedule(LocalDate date, List<Integer> arrStationIds) {
+        Objects.requireNonNull(date);
+        for (int arrStationId : arrStationIds) {
+            try {
+                executor.execute(() -> warmUp(date, arrStationId));
+                scheduled.incrementAndGet();
+            } catch (RejectedExecutionException e) {
+                // le préchargement a été arrêté
+                return;
+            }
+        }
+    }
+
+    /**
+     * Méthode qui planifie le préchargement des profils des gares ayant le plus de liaisons y arrivant
+     * le jour donné. Le classement des gares est lui aussi fait en arrière-plan, et rien n'est planifié
+     * si l'horaire n'a pas de liaisons ce jour-là.
+     * @param timeTable horaire du routeur du cache
+     * @param date la date des profils
+     * @param count nombre maximal de gares
+     */
+    public void scheduleBusiestStations(TimeTable timeTable, LocalDate date, int count) {
+        Objects.requireNonNull(timeTable);
+        Objects.requireNonNull(date);
+        try {
+            executor.execute(() -> {
+                List<Integer> busiestStations;
+                try {
+                    busiestStations = busiestStations(timeTable, date, count);
+                } catch (NoSuchElementException | UncheckedIOException e) {
+                    // l'horaire ne contient pas ce jour
+                    return;
+                }
+                schedule(date, busiestStations);
+            });
+        } catch (RejectedExecutionException e) {
+            // le préchargement a été arrêté
+        }
+    }
+
+    /**
+     * Méthode qui retourne l'avancement actuel du préchargement
+     * @return l'avancement
+     */
+    public Progress progress() {
+        return new Progress(scheduled.get(), computed.get(), alreadyCached.get(), failed.get(),
+                Duration.ofNanos(computeNanos.get()));
+    }
+
+    /**
+     * Méthode qui arrête le préchargement : les profils planifiés qui n'ont pas encore été calculés
+     * ne le sont pas, et les calculs en cours se terminent normalement
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Fonction qui retourne les gares dans lesquelles arrivent le plus de liaisons le jour donné,
+     * de celle qui en a le plus à celle qui en a le moins
+     * @param timeTable horaire
+     * @param date la date
+     * @param count nombre maximal de gares à retourner
+     * @return les identifiants des gares, classées par nombre de liaisons y arrivant décroissant
+     * @throws IllegalArgumentException si le nombre de gares est négatif
+     */
+    public static List<Integer> busiestStations(TimeTable timeTable, LocalDate date, int count) {
+        Preconditions.checkArgument(count >= 0);
+
+        Connections connections = timeTable.connectionsFor(date);
+        int[] arrivingConnections = new int[timeTable.stations().size()];
+        for (int connId = 0; connId < connections.size(); connId++) {
+            arrivingConnections[timeTable.stationId(connections.arrStopId(connId))]++;
+        }
+
+        return IntStream.range(0, arrivingConnections.length)
+                .filter(stationId -> arrivingConnections[stationId] > 0)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer stationId) -> arrivingConnections[stationId]).reversed())
+                .limit(count)
+                .toList();
+    }
+
+    /**
+     * Fonction qui précharge le profil donné, après avoir attendu la fin des requêtes interactives en cours
+     * @param date la date du profil
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     */
+    private void warmUp(LocalDate date, int arrStationId) {
+        try {
+            cache.awaitNoInteractiveRequest();
+        } catch (InterruptedException e) {
+            // le préchargement a été arrêté
+            failed.incrementAndGet();
+            return;
+        }
+
+        if (cache.contains(date, arrStationId)) {
+            alreadyCached.incrementAndGet();
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            cache.profileInBackground(date, arrStationId);
+            computed.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+        } finally {
+            computeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+}
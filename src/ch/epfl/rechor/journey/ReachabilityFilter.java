@@ -0,0 +1,200 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.PackedRange;
+import ch.epfl.rechor.Preconditions;
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.Transfers;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Classe qui représente un préfiltre des liaisons utiles à une requête d'une gare de départ vers une gare
+ * d'arrivée données. Une liaison n'est gardée que si l'on peut être dans son véhicule en partant de la
+ * gare de départ, et si l'on peut atteindre la gare d'arrivée depuis ce même véhicule. Ces deux conditions
+ * sont déterminées par deux parcours des liaisons, l'un par heure de départ croissante depuis la gare de
+ * départ, l'autre par heure de départ décroissante depuis la gare d'arrivée, beaucoup moins coûteux que
+ * le calcul d'un profil.
+ * <p>
+ * Le profil calculé au moyen du filtre obtenu ne contient que les voyages optimaux partant de la gare de
+ * départ : ceux des autres gares sont incomplets.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ReachabilityFilter {
+
+    // Heure de disponibilité d'une gare jamais atteinte dans le parcours en avant,
+    // et heure de départ au plus tard d'une gare jamais atteinte dans le parcours en arrière
+    private static final int UNREACHED_FORWARD = Integer.MAX_VALUE;
+    private static final int UNREACHED_BACKWARD = Integer.MIN_VALUE;
+
+    private final TimeTable timetable;
+    private final DepartingTransfers departingTransfers;
+
+    /**
+     * Constructeur qui construit un préfiltre pour l'horaire donné, en indexant une fois pour toutes
+     * ses changements par gare de départ
+     * @param timetable l'horaire
+     */
+    public ReachabilityFilter(TimeTable timetable) {
+        this.timetable = Objects.requireNonNull(timetable);
+        this.departingTransfers = new DepartingTransfers(timetable.transfers(), timetable.stations().size());
+    }
+
+    /**
+     * Méthode qui retourne un filtre excluant toutes les liaisons qui ne peuvent faire partie d'aucun voyage
+     * allant de la gare de départ à la gare d'arrivée données, le jour donné
+     * @param date le jour des liaisons
+     * @param depStationId l'identifiant de la gare de départ
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return le filtre
+     * @throws IndexOutOfBoundsException si l'une des gares n'existe pas
+     */
+    public ConnectionFilter filter(LocalDate date, int depStationId, int arrStationId) {
+        Objects.requireNonNull(date);
+        int wordsCount = (timetable.connectionsFor(date).size() + Long.SIZE - 1) / Long.SIZE;
+        return filter(new ConnectionFilter(date, new long[wordsCount]),
+                depStationId, PackedCriteria.MIN_MINS, arrStationId, PackedCriteria.MAX_MINS);
+    }
+
+    /**
+     * Méthode qui retourne un filtre excluant les liaisons exclues par le filtre donné, ainsi que toutes
+     * celles qui ne peuvent faire partie d'aucun voyage allant de la gare de départ à la gare d'arrivée
+     * données, partant au plus tôt à minDepMins et arrivant au plus tard à maxArrMins, sans emprunter de
+     * liaison exclue par le filtre donné. Plus la fenêtre est étroite, plus les liaisons exclues sont nombreuses.
+     * @param base le filtre de départ, qui n'est pas modifié
+     * @param depStationId l'identifiant de la gare de départ
+     * @param minDepMins heure de départ minimale, en minutes après minuit
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param maxArrMins heure d'arrivée maximale, en minutes après minuit
+     * @return le filtre
+     * @throws IndexOutOfBoundsException si l'une des gares n'existe pas
+     * @throws IllegalArgumentException si minDepMins est supérieure à maxArrMins
+     */
+    public ConnectionFilter filter(
+            ConnectionFilter base,
+            int depStationId,
+            int minDepMins,
+            int arrStationId,
+            int maxArrMins
+    ) {
+        int stationsCount = timetable.stations().size();
+        Objects.checkIndex(depStationId, stationsCount);
+        Objects.checkIndex(arrStationId, stationsCount);
+        Preconditions.checkArgument(minDepMins <= maxArrMins);
+
+        LocalDate date = base.date();
+        Connections connections = timetable.connectionsFor(date);
+        long[] excluded = base.excludedConnections().clone();
+        long[] reachedTrips = new long[(timetable.tripsFor(date).size() + Long.SIZE - 1) / Long.SIZE];
+
+        markUnreachableFromDeparture(connections, depStationId, minDepMins, excluded, reachedTrips);
+        Arrays.fill(reachedTrips, 0);
+        markNotReachingArrival(connections, arrStationId, maxArrMins, excluded, reachedTrips);
+
+        return new ConnectionFilter(date, excluded);
+    }
+
+    /**
+     * Fonction qui parcourt les liaisons par heure de départ croissante, et exclut celles dont on ne peut
+     * pas atteindre le véhicule en partant de la gare de départ
+     * @param connections les liaisons du jour
+     * @param depStationId l'identifiant de la gare de départ
+     * @param minDepMins heure de départ minimale, en minutes après minuit
+     * @param excluded ensemble de bits des liaisons exclues, mis à jour
+     * @param reachedTrips ensemble de bits, initialement vide, des courses dans lesquelles on peut être
+     */
+    private void markUnreachableFromDeparture(
+            Connections connections,
+            int depStationId,
+            int minDepMins,
+            long[] excluded,
+            long[] reachedTrips
+    ) {
+        // Heure à partir de laquelle on peut prendre un véhicule dans chaque gare
+        int[] readyMins = new int[timetable.stations().size()];
+        Arrays.fill(readyMins, UNREACHED_FORWARD);
+        for (int k = departingTransfers.start(depStationId); k < departingTransfers.end(depStationId); k++) {
+            readyMins[departingTransfers.arrStationId(k)] = minDepMins + departingTransfers.minutes(k);
+        }
+
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            if ((excluded[i >>> 6] & 1L << i) != 0) continue;
+
+            int tripId = connections.tripId(i);
+            long tripBit = 1L << tripId;
+            if ((reachedTrips[tripId >>> 6] & tripBit) == 0) {
+                int connDepStationId = timetable.stationId(connections.depStopId(i));
+                if (readyMins[connDepStationId] > connections.depMins(i)) {
+                    excluded[i >>> 6] |= 1L << i;
+                    continue;
+                }
+                reachedTrips[tripId >>> 6] |= tripBit;
+            }
+
+            int connArrMins = connections.arrMins(i);
+            int connArrStationId = timetable.stationId(connections.arrStopId(i));
+            for (int k = departingTransfers.start(connArrStationId); k < departingTransfers.end(connArrStationId); k++) {
+                int stationId = departingTransfers.arrStationId(k);
+                readyMins[stationId] = Math.min(readyMins[stationId], connArrMins + departingTransfers.minutes(k));
+            }
+        }
+    }
+
+    /**
+     * Fonction qui parcourt les liaisons par heure de départ décroissante, et exclut celles depuis le véhicule
+     * desquelles on ne peut pas atteindre la gare d'arrivée
+     * @param connections les liaisons du jour
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param maxArrMins heure d'arrivée maximale, en minutes après minuit
+     * @param excluded ensemble de bits des liaisons exclues, mis à jour
+     * @param reachingTrips ensemble de bits, initialement vide, des courses depuis lesquelles on peut
+     *                      atteindre la gare d'arrivée en restant dans le véhicule
+     */
+    private void markNotReachingArrival(
+            Connections connections,
+            int arrStationId,
+            int maxArrMins,
+            long[] excluded,
+            long[] reachingTrips
+    ) {
+        Transfers transfers = timetable.transfers();
+        int stationsCount = timetable.stations().size();
+
+        // Durée de la marche finale vers la gare d'arrivée, -1 si elle n'est pas faisable
+        int[] minutesToArrival = new int[stationsCount];
+        Arrays.fill(minutesToArrival, -1);
+        transfers.fillMinutesTo(arrStationId, minutesToArrival);
+
+        // Heure au plus tard à laquelle on peut se trouver dans chaque gare en changeant de véhicule
+        int[] latestMins = new int[stationsCount];
+        Arrays.fill(latestMins, UNREACHED_BACKWARD);
+
+        for (int i = 0; i < connections.size(); i++) {
+            if ((excluded[i >>> 6] & 1L << i) != 0) continue;
+
+            int tripId = connections.tripId(i);
+            long tripBit = 1L << tripId;
+            if ((reachingTrips[tripId >>> 6] & tripBit) == 0) {
+                int connArrMins = connections.arrMins(i);
+                int connArrStationId = timetable.stationId(connections.arrStopId(i));
+                int walkMinutes = minutesToArrival[connArrStationId];
+                boolean walksToArrival = walkMinutes != -1 && connArrMins + walkMinutes <= maxArrMins;
+                if (!walksToArrival && latestMins[connArrStationId] < connArrMins) {
+                    excluded[i >>> 6] |= 1L << i;
+                    continue;
+                }
+                reachingTrips[tripId >>> 6] |= tripBit;
+            }
+
+            int connDepMins = connections.depMins(i);
+            int interval = transfers.arrivingAt(timetable.stationId(connections.depStopId(i)));
+            for (int id = PackedRange.startInclusive(interval); id < PackedRange.endExclusive(interval); id++) {
+                int stationId = transfers.depStationId(id);
+                latestMins[stationId] = Math.max(latestMins[stationId], connDepMins - transfers.minutes(id));
+            }
+        }
+    }
+}
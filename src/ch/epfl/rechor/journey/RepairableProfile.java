@@ -0,0 +1,68 @@
+package ch.epfl.rechor.journey;
+
+/**
+ * Classe qui représente un profil pouvant être réparé rapidement lorsque des retards sont annoncés.
+ * En plus du profil, elle garde l'état du calcul (les frontières des gares et des courses) au moment
+ * où toutes les liaisons partant au plus tôt à l'heure de reprise ont été parcourues. Un retard ne
+ * concernant que des liaisons partant avant cette heure, avant comme après le retard, ne change pas
+ * cet état, et seules les liaisons partant avant l'heure de reprise doivent alors être parcourues à nouveau.
+ * Les instances sont obtenues au moyen de {@link Router#repairableProfile}.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class RepairableProfile {
+
+    private final Profile profile;
+    private final int minDepMins;
+    private final int checkpointMins;
+
+    // État du calcul à l'heure de reprise, qui n'est jamais modifié
+    private final Profile.Builder checkpoint;
+
+    /**
+     * Constructeur qui construit un profil réparable
+     * @param profile le profil calculé avec l'horaire d'origine
+     * @param minDepMins heure de départ minimale des voyages du profil, en minutes après minuit
+     * @param checkpointMins heure de reprise, en minutes après minuit
+     * @param checkpoint état du calcul à l'heure de reprise
+     */
+    RepairableProfile(Profile profile, int minDepMins, int checkpointMins, Profile.Builder checkpoint) {
+        this.profile = profile;
+        this.minDepMins = minDepMins;
+        this.checkpointMins = checkpointMins;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Méthode qui retourne le profil calculé avec l'horaire d'origine
+     * @return le profil
+     */
+    public Profile profile() {
+        return profile;
+    }
+
+    /**
+     * Méthode qui retourne l'heure de départ minimale des voyages du profil
+     * @return l'heure de départ minimale, en minutes après minuit
+     */
+    public int minDepMins() {
+        return minDepMins;
+    }
+
+    /**
+     * Méthode qui retourne l'heure de reprise : seuls les retards de liaisons partant avant
+     * cette heure peuvent être réparés sans recalculer tout le profil
+     * @return l'heure de reprise, en minutes après minuit
+     */
+    public int checkpointMins() {
+        return checkpointMins;
+    }
+
+    /**
+     * Méthode qui retourne l'état du calcul à l'heure de reprise
+     * @return le bâtisseur du profil à l'heure de reprise, qui ne doit pas être modifié
+     */
+    Profile.Builder checkpoint() {
+        return checkpoint;
+    }
+}
@@ -0,0 +1,150 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.Trips;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe qui construit un voyage à partir de la liste des étapes en transport qui le composent, en y
+ * ajoutant les étapes à pied nécessaires. Elle est utilisée par les routeurs qui retrouvent les liaisons
+ * empruntées sans passer par un {@link Profile}.
+ * Non instantiable.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+final class RideJourneys {
+
+    // Rendre la classe non instantiable
+    private RideJourneys() {}
+
+    /**
+     * Représente une étape en transport, effectuée dans une seule course
+     * @param boardConnection la liaison à laquelle on monte dans le véhicule
+     * @param alightConnection la liaison à la fin de laquelle on en descend, de la même course
+     */
+    record Ride(int boardConnection, int alightConnection) {}
+
+    /**
+     * Fonction qui construit le voyage composé des étapes en transport données, en ajoutant une étape à pied
+     * avant la première, entre deux étapes consécutives et après la dernière lorsque c'est nécessaire
+     * @param timeTable l'horaire
+     * @param date la date du voyage
+     * @param depStationId l'identifiant de la gare de départ
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param rides les étapes en transport, dans l'ordre du voyage, au moins une
+     * @return le voyage
+     */
+    static Journey journey(TimeTable timeTable, LocalDate date, int depStationId, int arrStationId, List<Ride> rides) {
+        Connections connections = timeTable.connectionsFor(date);
+        Trips trips = timeTable.tripsFor(date);
+        List<Journey.Leg> legs = new ArrayList<>();
+        LocalDateTime startOfDay = date.atStartOfDay();
+
+        // Étape à pied initiale, si le premier véhicule ne part pas de la gare de départ
+        int firstConnection = rides.getFirst().boardConnection();
+        int firstStopId = connections.depStopId(firstConnection);
+        Stop depStop = stopInstance(timeTable, depStationId);
+        Stop firstStop = stopInstance(timeTable, firstStopId);
+        if (!depStop.name().equals(firstStop.name())) {
+            int transferMinutes = timeTable.transfers().minutesBetween(depStationId, timeTable.stationId(firstStopId));
+            LocalDateTime footArrTime = startOfDay.plusMinutes(connections.depMins(firstConnection));
+            legs.add(new Journey.Leg.Foot(depStop, footArrTime.minusMinutes(transferMinutes), firstStop, footArrTime));
+        }
+
+        for (int r = 0; r < rides.size(); r++) {
+            Ride ride = rides.get(r);
+
+            // Changement depuis l'étape en transport précédente
+            if (r > 0) {
+                int previousAlight = rides.get(r - 1).alightConnection();
+                int previousArrStopId = connections.arrStopId(previousAlight);
+                int nextDepStopId = connections.depStopId(ride.boardConnection());
+                int transferMinutes = timeTable.transfers().minutesBetween(
+                        timeTable.stationId(previousArrStopId), timeTable.stationId(nextDepStopId));
+                LocalDateTime footDepTime = startOfDay.plusMinutes(connections.arrMins(previousAlight));
+                legs.add(new Journey.Leg.Foot(
+                        stopInstance(timeTable, previousArrStopId),
+                        footDepTime,
+                        stopInstance(timeTable, nextDepStopId),
+                        footDepTime.plusMinutes(transferMinutes)));
+            }
+
+            legs.add(transportLeg(timeTable, startOfDay, connections, trips, ride));
+        }
+
+        // Étape à pied finale, si le dernier véhicule n'arrive pas à la gare d'arrivée
+        int lastConnection = rides.getLast().alightConnection();
+        int lastStopId = connections.arrStopId(lastConnection);
+        Stop lastStop = stopInstance(timeTable, lastStopId);
+        Stop arrStop = stopInstance(timeTable, arrStationId);
+        if (!lastStop.name().equals(arrStop.name())) {
+            int transferMinutes = timeTable.transfers().minutesBetween(timeTable.stationId(lastStopId), arrStationId);
+            LocalDateTime footDepTime = startOfDay.plusMinutes(connections.arrMins(lastConnection));
+            legs.add(new Journey.Leg.Foot(lastStop, footDepTime, arrStop, footDepTime.plusMinutes(transferMinutes)));
+        }
+
+        return new Journey(legs);
+    }
+
+    /**
+     * Fonction qui crée l'étape en transport correspondant à l'étape donnée, avec ses arrêts intermédiaires
+     * @param timeTable l'horaire
+     * @param startOfDay le début du jour du voyage
+     * @param connections les liaisons du jour
+     * @param trips les courses du jour
+     * @param ride l'étape en transport
+     * @return l'étape en transport
+     */
+    private static Journey.Leg.Transport transportLeg(
+            TimeTable timeTable,
+            LocalDateTime startOfDay,
+            Connections connections,
+            Trips trips,
+            Ride ride
+    ) {
+        int boardConnection = ride.boardConnection();
+        int alightConnection = ride.alightConnection();
+
+        List<Journey.Leg.IntermediateStop> intermediateStops = new ArrayList<>();
+        for (int c = boardConnection; c != alightConnection; ) {
+            int next = connections.nextConnectionId(c);
+            intermediateStops.add(new Journey.Leg.IntermediateStop(
+                    stopInstance(timeTable, connections.depStopId(next)),
+                    startOfDay.plusMinutes(connections.arrMins(c)),
+                    startOfDay.plusMinutes(connections.depMins(next))));
+            c = next;
+        }
+
+        int tripId = connections.tripId(boardConnection);
+        int routeId = trips.routeId(tripId);
+        return new Journey.Leg.Transport(
+                stopInstance(timeTable, connections.depStopId(boardConnection)),
+                startOfDay.plusMinutes(connections.depMins(boardConnection)),
+                stopInstance(timeTable, connections.arrStopId(alightConnection)),
+                startOfDay.plusMinutes(connections.arrMins(alightConnection)),
+                intermediateStops,
+                timeTable.routes().vehicle(routeId),
+                timeTable.routes().name(routeId),
+                trips.destination(tripId));
+    }
+
+    /**
+     * Fonction qui crée l'arrêt correspondant à l'identifiant d'arrêt donné
+     * @param timeTable l'horaire
+     * @param stopId l'identifiant de l'arrêt, de gare ou de voie
+     * @return l'arrêt
+     */
+    private static Stop stopInstance(TimeTable timeTable, int stopId) {
+        int stationId = timeTable.stationId(stopId);
+        return new Stop(
+                timeTable.stations().name(stationId),
+                timeTable.platformName(stopId),
+                timeTable.stations().longitude(stationId),
+                timeTable.stations().latitude(stationId));
+    }
+}
@@ -1,25 +1,38 @@
 package ch.epfl.rechor.journey;
 
 import ch.epfl.rechor.PackedRange;
+import ch.epfl.rechor.Preconditions;
+import ch.epfl.rechor.timetable.ColumnarConnections;
 import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.DelayedConnections;
+import ch.epfl.rechor.timetable.DelayedTimeTable;
 import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.Transfers;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
 
 /**
  * Classe qui représente un routeur qui est un objet
  * capable de calculer le profil de tous les voyages optimaux
  * permettant de se rendre de n'importe quelle gare du réseau à une gare d'arrivée donnée,
- * un jour donné
+ * un jour donné.
+ * Le calcul d'un profil s'arrête peu après l'interruption du thread qui l'effectue,
+ * en levant une CancellationException, le statut d'interruption du thread étant conservé.
  * @author Yoann Salamin (390522)
  * @author Axel Verga (398787)
  */
 public record Router(TimeTable timetable) {
 
+    // Le statut d'interruption du thread est consulté une fois toutes les 2^10 liaisons parcourues
+    private static final int INTERRUPTION_CHECK_MASK = (1 << 10) - 1;
 
     /**
      * Méthode qui retourne le profil de tous les voyages optimaux
@@ -30,115 +43,738 @@ public record Router(TimeTable timetable) {
      * @return le profil des voyages optimaux
      */
     public Profile profile(LocalDate date, int arrStationId) {
+        return profile(date, arrStationId, PackedCriteria.MIN_MINS, PackedCriteria.MAX_MINS);
+    }
+
+    /**
+     * Méthode qui retourne le profil des voyages optimaux permettant de se rendre de n'importe
+     * quelle gare du réseau à une gare d'arrivée donnée, un jour donné, en ne gardant que les
+     * voyages qui comportent au plus le nombre de changements donné. Les tuples qui en comportent
+     * davantage ne sont jamais créés, ce qui réduit la taille des frontières et la durée du calcul.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param maxChanges nombre maximal de changements des voyages
+     * @return le profil des voyages optimaux comportant au plus maxChanges changements
+     * @throws IllegalArgumentException si le nombre de changements est négatif ou supérieur à 127
+     */
+    public Profile profile(LocalDate date, int arrStationId, int maxChanges) {
+        Objects.requireNonNull(date);
+        Preconditions.checkArgument(0 <= maxChanges && maxChanges <= PackedCriteria.MAX_CHANGES);
+
+        return profile(date, arrStationId, connectionsFor(date), ScanOptions.ALL.withMaxChanges(maxChanges));
+    }
+
+    /**
+     * Méthode qui retourne le profil des voyages optimaux permettant de se rendre de n'importe
+     * quelle gare du réseau à une gare d'arrivée donnée, un jour donné, sans emprunter les liaisons
+     * exclues par le filtre donné. Une course ne peut pas être empruntée à travers une liaison exclue.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param filter le filtre des liaisons du jour
+     * @return le profil des voyages optimaux n'empruntant aucune liaison exclue
+     * @throws IllegalArgumentException si le filtre ne porte pas sur le jour donné
+     */
+    public Profile profile(LocalDate date, int arrStationId, ConnectionFilter filter) {
+        Objects.requireNonNull(date);
+        Preconditions.checkArgument(filter.date().equals(date));
+
+        return profile(date, arrStationId, connectionsFor(date),
+                ScanOptions.ALL.withExcludedConnections(filter.excludedConnections()));
+    }
+
+    /**
+     * Méthode qui retourne le profil des voyages optimaux permettant de se rendre de n'importe
+     * quelle gare du réseau à une gare d'arrivée donnée, un jour donné, en ne gardant que les
+     * voyages qui partent au plus tôt à minDepMins et arrivent au plus tard à maxArrMins.
+     * Seules les liaisons comprises dans cette fenêtre sont parcourues.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param minDepMins heure de départ minimale, en minutes après minuit
+     * @param maxArrMins heure d'arrivée maximale, en minutes après minuit
+     * @return le profil des voyages optimaux compris dans la fenêtre
+     * @throws IllegalArgumentException si minDepMins est supérieure à maxArrMins
+     */
+    public Profile profile(LocalDate date, int arrStationId, int minDepMins, int maxArrMins) {
         // La date ne doit pas être nulle
         Objects.requireNonNull(date);
+        Preconditions.checkArgument(minDepMins <= maxArrMins);
 
-        // On crée un profil vide à l'aide du Builder
-        Profile.Builder p = new Profile.Builder(timetable, date, arrStationId);
+        return profile(date, arrStationId, connectionsFor(date), ScanOptions.window(minDepMins, maxArrMins));
+    }
 
-        int[] minutesBetweenForEveryStation  = calculateMinuteBetween(arrStationId);
+    /**
+     * Méthode qui retourne le profil des voyages optimaux permettant de se rendre de n'importe
+     * quelle gare du réseau à une gare d'arrivée donnée, un jour donné, en ne gardant que les
+     * voyages qui partent au plus tôt à minDepMins, arrivent au plus tard à maxArrMins et
+     * n'empruntent aucune liaison exclue par le filtre donné. Combinée à un filtre obtenu au moyen de
+     * {@link ReachabilityFilter}, elle permet de répondre rapidement à une requête entre deux gares.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param minDepMins heure de départ minimale, en minutes après minuit
+     * @param maxArrMins heure d'arrivée maximale, en minutes après minuit
+     * @param filter le filtre des liaisons du jour
+     * @return le profil des voyages optimaux compris dans la fenêtre et n'empruntant aucune liaison exclue
+     * @throws IllegalArgumentException si minDepMins est supérieure à maxArrMins, ou si le filtre
+     * ne porte pas sur le jour donné
+     */
+    public Profile profile(LocalDate date, int arrStationId, int minDepMins, int maxArrMins, ConnectionFilter filter) {
+        Objects.requireNonNull(date);
+        Preconditions.checkArgument(minDepMins <= maxArrMins && filter.date().equals(date));
 
-        // Algorithme CSA
+        return profile(date, arrStationId, connectionsFor(date),
+                ScanOptions.window(minDepMins, maxArrMins).withExcludedConnections(filter.excludedConnections()));
+    }
 
-        Connections connections = timetable.connectionsFor(date);
+    /**
+     * Méthode qui retourne le profil des voyages optimaux permettant de se rendre de n'importe
+     * quelle gare du réseau à une gare d'arrivée donnée, un jour donné, en ne gardant que les
+     * voyages qui partent au plus tôt à minDepMins et arrivent au plus tard à maxArrMins.
+     * Les liaisons depuis lesquelles la gare d'arrivée ne peut pas être atteinte à temps, d'après
+     * les bornes inférieures données, ne sont pas traitées : le profil obtenu est identique à celui
+     * retourné par {@link #profile(LocalDate, int, int, int)}, mais d'autant plus rapide à calculer
+     * que la fenêtre est étroite.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param minDepMins heure de départ minimale, en minutes après minuit
+     * @param maxArrMins heure d'arrivée maximale, en minutes après minuit
+     * @param bounds les bornes inférieures des durées de voyage du jour
+     * @return le profil des voyages optimaux compris dans la fenêtre
+     * @throws IllegalArgumentException si minDepMins est supérieure à maxArrMins, ou si les bornes
+     * ne portent pas sur le jour donné
+     */
+    public Profile profile(LocalDate date, int arrStationId, int minDepMins, int maxArrMins, TravelTimeBounds bounds) {
+        Objects.requireNonNull(date);
+        Preconditions.checkArgument(minDepMins <= maxArrMins && bounds.date().equals(date));
+
+        return profile(date, arrStationId, connectionsFor(date),
+                ScanOptions.window(minDepMins, maxArrMins).withLowerBounds(bounds.minutesTo(arrStationId)));
+    }
+
+    /**
+     * Interface fonctionnelle représentant un auditeur informé de l'avancement du calcul d'un profil
+     */
+    @FunctionalInterface
+    public interface SliceListener {
+
+        /**
+         * Méthode appelée, pendant le calcul d'un profil, lorsque tous les voyages partant au plus tôt
+         * à l'heure donnée sont connus. Les tranches successives partent de plus en plus tôt, et chacune
+         * contient les précédentes. Elle est appelée sur le thread qui calcule le profil, et doit donc
+         * retourner rapidement, en confiant tout traitement coûteux du profil partiel à un autre thread.
+         * Si elle lève une exception, l'auditeur n'est plus informé des tranches suivantes, mais le calcul
+         * du profil se poursuit normalement.
+         * @param partialProfile profil réduit aux voyages partant au plus tôt à minDepMins, qui ne changeront plus
+         * @param minDepMins heure de départ minimale des voyages de la tranche, en minutes après minuit
+         */
+        void sliceFinalized(Profile partialProfile, int minDepMins);
+    }
 
-        // On parcourt la totalité des liaisons de l'horaire, dans l'ordre décroissant
+    /**
+     * Méthode qui retourne le profil de tous les voyages optimaux permettant de se rendre de n'importe
+     * quelle gare du réseau à une gare d'arrivée donnée, un jour donné, en publiant pendant son calcul
+     * des tranches du profil dont le contenu est définitif. Les liaisons étant parcourues par heure de
+     * départ décroissante, les voyages partant tard sont connus en premier.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param sliceMinutes durée d'une tranche, en minutes
+     * @param listener auditeur informé de chaque tranche terminée
+     * @return le profil des voyages optimaux
+     * @throws IllegalArgumentException si la durée d'une tranche n'est pas strictement positive
+     */
+    public Profile profile(LocalDate date, int arrStationId, int sliceMinutes, SliceListener listener) {
+        Objects.requireNonNull(date);
+        Objects.requireNonNull(listener);
+        Preconditions.checkArgument(sliceMinutes > 0);
+
+        return profile(date, arrStationId, connectionsFor(date),
+                ScanOptions.ALL.withListener(sliceMinutes, listener));
+    }
+
+    /**
+     * Enregistrement qui associe un profil au temps qu'il a fallu pour le calculer
+     * @param profile le profil calculé
+     * @param duration la durée du calcul
+     */
+    public record TimedProfile(Profile profile, Duration duration) {}
+
+    /**
+     * Méthode qui calcule en parallèle les profils de tous les voyages optimaux
+     * permettant de se rendre à chacune des gares d'arrivée données, un jour donné.
+     * Les liaisons du jour (avec les gares de leurs arrêts) et les changements
+     * sont obtenus une seule fois et partagés entre les calculs.
+     * @param date la date du voyage
+     * @param arrStationIds les identifiants des gares d'arrivée
+     * @return une table associant à chaque gare d'arrivée son profil et la durée de son calcul
+     */
+    public Map<Integer, TimedProfile> profiles(LocalDate date, Set<Integer> arrStationIds) {
+        Objects.requireNonNull(date);
+
+        // Données en lecture seule partagées par tous les calculs
+        Connections connections = decodedConnectionsFor(date);
+
+        // Chaque profil est calculé indépendamment sur le ForkJoinPool commun
+        Map<Integer, TimedProfile> profiles = arrStationIds.parallelStream()
+                .collect(Collectors.toConcurrentMap(
+                        arrStationId -> arrStationId,
+                        arrStationId -> {
+                            long startTime = System.nanoTime();
+                            Profile profile = profile(date, arrStationId, connections, ScanOptions.ALL);
+                            return new TimedProfile(profile, Duration.ofNanos(System.nanoTime() - startTime));
+                        }));
+
+        return Map.copyOf(profiles);
+    }
+
+    /**
+     * Méthode qui calcule les profils de tous les voyages optimaux permettant de se rendre à chacune des
+     * gares d'arrivée données, un jour donné, en un seul parcours des liaisons : chaque liaison n'est lue
+     * qu'une fois, puis appliquée à toutes les gares d'arrivée. Les frontières d'une même gare ou d'une
+     * même course pour les différentes gares d'arrivée sont rangées côte à côte, tout comme les durées
+     * de marche jusqu'à ces gares. Les profils obtenus sont identiques à ceux que retourne
+     * {@link #profile(LocalDate, int)}, mais toutes leurs frontières restent en mémoire jusqu'à la fin
+     * du parcours : un grand nombre de gares d'arrivée gagne donc à être réparti en plusieurs lots.
+     * @param date la date du voyage
+     * @param arrStationIds les identifiants des gares d'arrivée
+     * @return une table associant à chaque gare d'arrivée son profil
+     * @throws IndexOutOfBoundsException si l'un des identifiants n'est pas celui d'une gare
+     */
+    public Map<Integer, Profile> batchProfiles(LocalDate date, Set<Integer> arrStationIds) {
+        Objects.requireNonNull(date);
+        int stationsCount = timetable.stations().size();
+        int[] batch = arrStationIds.stream()
+                .mapToInt(arrStationId -> Objects.checkIndex(arrStationId, stationsCount))
+                .toArray();
+        int batchSize = batch.length;
+        if (batchSize == 0) return Map.of();
+
+        // Durées de marche jusqu'aux gares d'arrivée, rangées par gare de départ : celle de la gare s
+        // à la gare d'arrivée d'index k dans le lot est à l'index s * batchSize + k
+        int[] minutesBetweenForEveryStation = new int[stationsCount * batchSize];
+        for (int k = 0; k < batchSize; k++) {
+            int[] minutesTo = calculateMinuteBetween(batch[k]);
+            for (int s = 0; s < stationsCount; s++) {
+                minutesBetweenForEveryStation[s * batchSize + k] = minutesTo[s];
+            }
+        }
+
+        Scratch scratch = SCRATCH.get();
+        FrontArena arena = scratch.arena.reset();
+        try {
+            ParetoFront.Builder[] stationFronts = new ParetoFront.Builder[stationsCount * batchSize];
+            batchScan(scratch, connectionsFor(date), timetable.tripsFor(date).size(),
+                    minutesBetweenForEveryStation, stationFronts, batchSize);
+
+            // Les frontières de chaque gare d'arrivée sont copiées hors de la zone partagée
+            Map<Integer, Profile> profiles = new HashMap<>();
+            for (int k = 0; k < batchSize; k++) {
+                Profile.Builder p = new Profile.Builder(timetable, date, batch[k]);
+                for (int s = 0; s < stationsCount; s++) {
+                    p.setForStation(s, stationFronts[s * batchSize + k]);
+                }
+                profiles.put(batch[k], p.build());
+            }
+            return Map.copyOf(profiles);
+        } finally {
+            arena.release();
+        }
+    }
+
+    /**
+     * Méthode qui retourne le profil des voyages optimaux permettant de se rendre de n'importe quelle gare
+     * du réseau à une gare d'arrivée donnée, un jour donné, en ne gardant que les voyages qui partent au plus
+     * tôt à minDepMins, et qui peut être réparé rapidement au moyen de {@link #repair} lorsque des retards
+     * concernant des liaisons partant avant l'heure de reprise sont annoncés. Plus l'heure de reprise est
+     * proche de minDepMins, plus la réparation est rapide, mais moins les retards réparables sont nombreux.
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param minDepMins heure de départ minimale, en minutes après minuit
+     * @param checkpointMins heure de reprise, en minutes après minuit
+     * @return le profil réparable des voyages optimaux partant au plus tôt à minDepMins
+     * @throws IllegalArgumentException si l'heure de reprise est inférieure à minDepMins
+     */
+    public RepairableProfile repairableProfile(LocalDate date, int arrStationId, int minDepMins, int checkpointMins) {
+        Objects.requireNonNull(date);
+        Preconditions.checkArgument(minDepMins <= checkpointMins);
+
+        Scratch scratch = SCRATCH.get();
+        try {
+            Profile.Builder p = new Profile.Builder(timetable, date, arrStationId, scratch.arena.reset());
+            Connections connections = connectionsFor(date);
+
+            // Le parcours est interrompu à la première liaison partant avant l'heure de reprise,
+            // le temps de copier les frontières hors de la zone partagée de ce fil d'exécution
+            int start = firstDepartingAtOrBefore(connections, PackedCriteria.MAX_MINS);
+            int checkpointIndex = firstDepartingAtOrBefore(connections, checkpointMins - 1);
+            int end = firstDepartingAtOrBefore(connections, minDepMins - 1);
+
+            ScanOptions options = ScanOptions.window(minDepMins, PackedCriteria.MAX_MINS);
+            scan(p, scratch, connections, arrStationId, start, checkpointIndex, options);
+            Profile.Builder checkpoint = p.copy(timetable, null);
+            scan(p, scratch, connections, arrStationId, checkpointIndex, end, options);
+
+            return new RepairableProfile(p.build(), minDepMins, checkpointMins, checkpoint);
+        } finally {
+            scratch.arena.release();
+        }
+    }
+
+    /**
+     * Méthode qui retourne le profil réparable donné, réparé pour tenir compte des retards de l'horaire donné.
+     * Si tous les retards concernent des liaisons partant avant l'heure de reprise du profil, avant comme après
+     * leur retard, seules les liaisons partant entre l'heure de départ minimale et l'heure de reprise sont
+     * parcourues à nouveau ; sinon, le profil est entièrement recalculé.
+     * Les retards étant exprimés par rapport à l'horaire d'origine, le même profil réparable peut être
+     * réparé à chaque nouvelle annonce de retards.
+     * @param profile le profil réparable, calculé par ce routeur
+     * @param delayedTimeTable l'horaire retardé, dont l'horaire d'origine est celui de ce routeur
+     * @return le profil des voyages optimaux, dont l'horaire est l'horaire retardé
+     * @throws IllegalArgumentException si l'horaire retardé n'a pas pour origine l'horaire de ce routeur,
+     * ou si ses retards ne concernent pas le jour du profil
+     */
+    public Profile repair(RepairableProfile profile, DelayedTimeTable delayedTimeTable) {
+        Preconditions.checkArgument(delayedTimeTable.base() == timetable
+                && delayedTimeTable.date().equals(profile.profile().date()));
+
+        LocalDate date = profile.profile().date();
+        int arrStationId = profile.profile().arrStationId();
+        int minDepMins = profile.minDepMins();
+        DelayedConnections delayedConnections = delayedTimeTable.delayedConnections();
+
+        // Un retard concernant une liaison partant après l'heure de reprise modifie l'état
+        // du calcul à cette heure, le profil doit alors être entièrement recalculé
+        if (delayedConnections.latestDelayedDepMins() >= profile.checkpointMins()) {
+            return new Router(delayedTimeTable).profile(date, arrStationId, minDepMins, PackedCriteria.MAX_MINS);
+        }
+
+        // Les liaisons partant au plus tôt à l'heure de reprise sont inchangées et gardent leur
+        // identifiant : le calcul reprend donc de l'état à l'heure de reprise, copié dans la zone
+        // partagée de ce fil d'exécution
+        Connections connections = delayedTimeTable.connectionsFor(date);
+        Scratch scratch = SCRATCH.get();
+        try {
+            Profile.Builder p = profile.checkpoint().copy(delayedTimeTable, scratch.arena.reset());
+
+            int checkpointIndex = firstDepartingAtOrBefore(connections, profile.checkpointMins() - 1);
+            int end = firstDepartingAtOrBefore(connections, minDepMins - 1);
+            scan(p, scratch, connections, arrStationId, checkpointIndex, end,
+                    ScanOptions.window(minDepMins, PackedCriteria.MAX_MINS));
+
+            return p.build();
+        } finally {
+            scratch.arena.release();
+        }
+    }
+
+    /**
+     * Fonction qui exécute l'algorithme CSA sur les liaisons données
+     * @param date la date du voyage
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param connections les liaisons du jour
+     * @param options les options du parcours
+     * @return le profil des voyages optimaux
+     */
+    private Profile profile(LocalDate date, int arrStationId, Connections connections, ScanOptions options) {
+        // Espace de travail réutilisé d'une liaison à l'autre, afin de ne rien allouer dans la boucle
+        Scratch scratch = SCRATCH.get();
+
+        // On crée un profil vide à l'aide du Builder, dont toutes les frontières
+        // sont stockées dans la zone partagée de ce thread, vidée au préalable
+        Profile.Builder p = new Profile.Builder(timetable, date, arrStationId, scratch.arena.reset());
+
+        // Algorithme CSA
+
+        // On parcourt les liaisons de l'horaire dans l'ordre décroissant
         // comme "connectionsFor" retourne déjà les connections dans l'ordre décroissant,
         // il suffit de parcourir dans l'ordre croissant.
-        for (int i = 0, n = connections.size(); i < n; i++) {
-            // 'f' est la frontière temporaire pour cette liaison 'l'
-            ParetoFront.Builder f = new ParetoFront.Builder();
+        // Une liaison qui part après maxArrMins ne peut pas arriver à temps, et on peut
+        // s'arrêter dès qu'une liaison part avant minDepMins : on cherche donc les deux
+        // bornes par dichotomie.
+        int start = firstDepartingAtOrBefore(connections, options.maxArrMins());
+        int end = firstDepartingAtOrBefore(connections, options.minDepMins() - 1);
+
+        try {
+            scan(p, scratch, connections, arrStationId, start, end, options);
+            return p.build();
+        } finally {
+            // Les frontières ont été copiées dans le profil, la zone peut être libérée
+            scratch.arena.release();
+        }
+    }
+
+    /**
+     * Fonction qui parcourt, dans l'ordre, les liaisons d'index compris entre start (inclus) et end (exclu),
+     * en mettant à jour les frontières du bâtisseur de profil donné
+     * @param p le bâtisseur du profil, dont les frontières sont celles obtenues après le parcours
+     *          des liaisons précédant start
+     * @param scratch l'espace de travail du fil d'exécution courant
+     * @param connections les liaisons du jour, décodées ou non
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @param start index de la première liaison parcourue
+     * @param end index suivant celui de la dernière liaison parcourue
+     * @param options les options du parcours
+     */
+    private void scan(
+            Profile.Builder p,
+            Scratch scratch,
+            Connections connections,
+            int arrStationId,
+            int start,
+            int end,
+            ScanOptions options
+    ) {
+        int[] minutesBetweenForEveryStation  = calculateMinuteBetween(arrStationId);
+        Transfers transfers = timetable.transfers();
+
+        int minDepMins = options.minDepMins();
+        int maxArrMins = options.maxArrMins();
+        int maxChanges = options.maxChanges();
+        long[] excludedConnections = options.excludedConnections();
+        int[] lowerBounds = options.lowerBounds();
+        int sliceMinutes = options.sliceMinutes();
+        SliceListener listener = options.listener();
+
+        // Les gares des arrêts sont lues directement si les liaisons sont décodées,
+        // et obtenues au moyen de l'horaire sinon
+        ColumnarConnections columnarConnections =
+                connections instanceof ColumnarConnections decoded ? decoded : null;
+
+        // Les tuples ajoutés aux frontières des gares partent au plus tard à l'heure de départ de la liaison
+        // traitée, et ne peuvent donc pas dominer ceux qui partent plus tard : dès qu'une liaison part avant
+        // sliceStart, les tuples partant au plus tôt à sliceStart sont définitifs et peuvent être publiés
+        int sliceStart = listener != null && start < end
+                ? Math.floorDiv(connections.depMins(start), sliceMinutes) * sliceMinutes
+                : Integer.MIN_VALUE;
+
+        for (int i = start; i < end; i++) {
+            // Le calcul d'un profil devenu inutile, par exemple parce que la requête a changé, est abandonné
+            if (((i - start) & INTERRUPTION_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+
+            // 'f' est la frontière temporaire pour cette liaison 'l', elle est vidée à chaque tour
+            ParetoFront.Builder f = scratch.front.clear();
+
+            if (connections.depMins(i) < sliceStart) {
+                try {
+                    listener.sliceFinalized(p.buildDepartingAtOrAfter(sliceStart), sliceStart);
+                    sliceStart = Math.floorDiv(connections.depMins(i), sliceMinutes) * sliceMinutes;
+                } catch (RuntimeException e) {
+                    // l'erreur de l'auditeur ne doit pas interrompre le calcul, qui peut être partagé
+                    sliceStart = Integer.MIN_VALUE;
+                }
+            }
+
+            // Une liaison exclue n'est pas parcourue, et la course ne peut plus être empruntée
+            // au-delà de celle-ci : sa frontière est donc libérée
+            if (excludedConnections != null && (excludedConnections[i >>> 6] & 1L << i) != 0) {
+                p.releaseForTrip(connections.tripId(i));
+                continue;
+            }
 
             // Extraction des informations de notre liaison actuelle
-            int currentConnDepStopID = connections.depStopId(i);
-            int currentConnArrStopID = connections.arrStopId(i);
             int currentConnDepMins   = connections.depMins(i);
             int currentConnArrMins   = connections.arrMins(i);
             int currentConnTripId    = connections.tripId(i);
             int currentConnTripPos   = connections.tripPos(i);
 
-            int currentConnArrStationId = timetable.stationId(currentConnArrStopID);
-            int currentConnDepStationId = timetable.stationId(currentConnDepStopID);
+            // Une liaison qui arrive trop tard ne peut faire partie d'aucun voyage
+            if (currentConnArrMins > maxArrMins) continue;
+
+            int currentConnArrStationId = columnarConnections != null
+                    ? columnarConnections.arrStationId(i)
+                    : timetable.stationId(connections.arrStopId(i));
+            int currentConnDepStationId = columnarConnections != null
+                    ? columnarConnections.depStationId(i)
+                    : timetable.stationId(connections.depStopId(i));
+
+            // Il en va de même d'une liaison depuis la gare d'arrivée de laquelle la gare de destination
+            // ne peut être atteinte à temps, même sans jamais attendre
+            if (lowerBounds != null) {
+                int lowerBound = lowerBounds[currentConnArrStationId];
+                if (lowerBound == TravelTimeBounds.UNREACHABLE || currentConnArrMins + lowerBound > maxArrMins) continue;
+            }
 
             // Option 1
-            checkOption1(f, minutesBetweenForEveryStation, currentConnArrStationId, currentConnArrMins, i);
+            checkOption1(f, minutesBetweenForEveryStation, currentConnArrStationId, currentConnArrMins, maxArrMins, i);
 
             // Option 2 : continuer avec la liaison suivante
             checkOption2(p, f, currentConnTripId);
 
+            // La première liaison d'une course est la dernière de celle-ci à être parcourue,
+            // la frontière de la course ne sera donc plus utilisée et peut être libérée
+            boolean isFirstConnectionOfTrip = currentConnTripPos == 0;
+            if (isFirstConnectionOfTrip) p.releaseForTrip(currentConnTripId);
+
             // Option 3) Changer de véhicule à arr(l) ---------------
-            checkOption3(p, f, currentConnArrStopID, currentConnArrMins, i);
+            checkOption3(p.forStation(currentConnArrStationId), f, currentConnArrMins, maxChanges, i);
 
             // On sort de la boucle si la frontière est vide
             if (f.isEmpty()) continue;
 
             // ----------------- Dernière partie -------------------
 
-            // Mise à jour de la frontière de la course
-            if (p.forTrip(currentConnTripId) != null) {
-                p.forTrip(currentConnTripId).addAll(f);
-            } else {
-                p.setForTrip(currentConnTripId, f);
-            }
-
-            // OPTIMISATION :
-            // Si la frontière de la gare de départ domine entièrement f avec l'heure de départ de la liaison actuelle,
-            // alors on peut skip la dernière partie, car il n'y aura rien d'utile dans f aux gares de départ
-            if (p.forStation(currentConnDepStationId) != null) {
-                if (p.forStation(currentConnDepStationId).fullyDominates(f, currentConnDepMins)) {
-                    continue;
+            // Mise à jour de la frontière de la course, inutile si elle vient d'être libérée
+            // f étant réutilisée, il faut en faire une copie si la course n'a pas encore de frontière
+            if (!isFirstConnectionOfTrip) {
+                if (p.forTrip(currentConnTripId) != null) {
+                    p.forTrip(currentConnTripId).addAll(f);
+                } else {
+                    p.setForTrip(currentConnTripId, p.newFront(f));
                 }
             }
 
             // Mise à jour des frontières des gares
+            // Les tuples de f ne diffèrent d'un changement à l'autre que par leur heure de départ,
+            // on calcule donc une seule fois leur charge utile
+            long[] tuplesWithPayload = scratch.tuplesWithPayload(f.size());
+            for (int k = 0; k < f.size(); k++) {
+                long tuple = f.get(k);
+
+                // GESTION DU PAYLOAD
+                int lastConnexionOfTripID = PackedCriteria.payload(tuple);
+                int lastConnOfTripPos = connections.tripPos(lastConnexionOfTripID);
+                int intermediateStopsNumber = lastConnOfTripPos - currentConnTripPos;
+                // Le payload contient la liaison l dans les 24 bits de gauche,
+                // et le nombre d'arrêts intermédiaires dans les 8 bits de droite.
+                int payload = i << 8 | intermediateStopsNumber;
+
+                tuplesWithPayload[k] = PackedCriteria.withPayload(tuple, payload);
+            }
+
             // Récupération des changements arrivant au départ de notre liaison
-            int depStationIdForTransfer = timetable.stationId(currentConnDepStopID);
-            int intervalOfTransfersArrivingToDep = timetable.transfers().arrivingAt(depStationIdForTransfer);
+            int intervalOfTransfersArrivingToDep = transfers.arrivingAt(currentConnDepStationId);
             int transferStart = PackedRange.startInclusive(intervalOfTransfersArrivingToDep);
             int transferEnd = PackedRange.endExclusive(intervalOfTransfersArrivingToDep);
 
             for (int transferId = transferStart; transferId < transferEnd; transferId++) {
-                int transferDepStationID = timetable.transfers().depStationId(transferId);
-                int transferDuration = timetable.transfers().minutes(transferId);
+                int transferDepStationID = transfers.depStationId(transferId);
+                int transferDuration = transfers.minutes(transferId);
 
                 // C'est l'heure de départ du petit trajet d'avant, pour rejoindre la gare actuelle
                 int d = currentConnDepMins - transferDuration;
 
+                // Un voyage qui partirait avant le début de la fenêtre ne nous intéresse pas
+                if (d < minDepMins) continue;
+
                 // Si c'est le premier cas où l'on a affaire à cette gare,
                 // ce sera null et il faut créer un builder de frontière
-                if (p.forStation(transferDepStationID) == null) {
-                    p.setForStation(transferDepStationID , new ParetoFront.Builder());
+                ParetoFront.Builder stationFront = p.forStation(transferDepStationID);
+                if (stationFront == null) {
+                    stationFront = p.newFront();
+                    p.setForStation(transferDepStationID, stationFront);
+                } else if (stationFront.fullyDominates(f, d)) {
+                    // OPTIMISATION :
+                    // Si la frontière de cette gare domine entièrement f avec l'heure de départ d, aucun tuple
+                    // n'y serait ajouté. Le test est fait gare par gare : la frontière de la gare de départ de
+                    // la liaison ne dit rien de celles des gares depuis lesquelles on la rejoint à pied
+                    continue;
+                }
+
+                // Pour tous les tuples de la frontière, on fixe l'heure de départ
+                for (int k = 0; k < f.size(); k++) {
+                    stationFront.add(PackedCriteria.withDepMins(tuplesWithPayload[k], d));
+                }
+            }
+
+        }
+    }
+
+
+    /**
+     * Fonction qui parcourt une seule fois toutes les liaisons du jour partant dans les limites d'un profil,
+     * en appliquant chacune d'elles à toutes les gares d'arrivée du lot. Les frontières de la gare (ou de
+     * la course) e pour la gare d'arrivée d'index k dans le lot sont à l'index e * batchSize + k.
+     * @param scratch l'espace de travail du fil d'exécution courant
+     * @param connections les liaisons du jour, décodées ou non
+     * @param tripsCount le nombre de courses du jour
+     * @param minutesBetweenForEveryStation durées de marche jusqu'aux gares d'arrivée, ou -1
+     * @param stationFronts frontières des gares, remplies par le parcours
+     * @param batchSize nombre de gares d'arrivée du lot
+     */
+    private void batchScan(
+            Scratch scratch,
+            Connections connections,
+            int tripsCount,
+            int[] minutesBetweenForEveryStation,
+            ParetoFront.Builder[] stationFronts,
+            int batchSize
+    ) {
+        Transfers transfers = timetable.transfers();
+        ColumnarConnections columnarConnections =
+                connections instanceof ColumnarConnections decoded ? decoded : null;
+
+        ParetoFront.Builder[] tripFronts = new ParetoFront.Builder[tripsCount * batchSize];
+
+        // Frontière temporaire de la liaison en cours pour chaque gare d'arrivée ; leurs tuples, avec leur
+        // charge utile finale, sont ensuite placés les uns à la suite des autres, ceux de la gare d'arrivée
+        // d'index k entre payloadOffsets[k] (inclus) et payloadOffsets[k + 1] (exclus)
+        ParetoFront.Builder[] fronts = new ParetoFront.Builder[batchSize];
+        for (int k = 0; k < batchSize; k++) fronts[k] = new ParetoFront.Builder();
+        int[] payloadOffsets = new int[batchSize + 1];
+
+        int start = firstDepartingAtOrBefore(connections, PackedCriteria.MAX_MINS);
+        int end = firstDepartingAtOrBefore(connections, PackedCriteria.MIN_MINS - 1);
+
+        for (int i = start; i < end; i++) {
+            if (((i - start) & INTERRUPTION_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+
+            // La liaison est lue une seule fois pour tout le lot
+            int currentConnArrMins = connections.arrMins(i);
+            if (currentConnArrMins > PackedCriteria.MAX_MINS) continue;
+
+            int currentConnDepMins = connections.depMins(i);
+            int currentConnTripId  = connections.tripId(i);
+            int currentConnTripPos = connections.tripPos(i);
+            int currentConnArrStationId = columnarConnections != null
+                    ? columnarConnections.arrStationId(i)
+                    : timetable.stationId(connections.arrStopId(i));
+            int currentConnDepStationId = columnarConnections != null
+                    ? columnarConnections.depStationId(i)
+                    : timetable.stationId(connections.depStopId(i));
+
+            int arrStationBase = currentConnArrStationId * batchSize;
+            int tripBase = currentConnTripId * batchSize;
+            boolean isFirstConnectionOfTrip = currentConnTripPos == 0;
+
+            // Options 1 à 3 pour toutes les gares d'arrivée, et mise à jour des frontières des courses
+            int tuplesCount = 0;
+            for (int k = 0; k < batchSize; k++) {
+                ParetoFront.Builder f = fronts[k].clear();
+
+                // Option 1 : marcher depuis la gare d'arrivée de la liaison
+                int walkDuration = minutesBetweenForEveryStation[arrStationBase + k];
+                if (walkDuration != -1 && currentConnArrMins + walkDuration <= PackedCriteria.MAX_MINS) {
+                    long t = PackedCriteria.pack(currentConnArrMins + walkDuration, 0, i);
+                    f.add(PackedCriteria.withDepMins(t, currentConnArrMins));
                 }
 
-                 // Pour tous les tuples de la frontière
-                int connId = i;
-                f.forEach(tuple -> {
+                // Option 2 : continuer avec la liaison suivante, la frontière de la course
+                // étant libérée à sa première liaison
+                ParetoFront.Builder tripFront = tripFronts[tripBase + k];
+                if (tripFront != null) {
+                    f.addAll(tripFront);
+                    if (isFirstConnectionOfTrip) {
+                        tripFront.release();
+                        tripFronts[tripBase + k] = null;
+                    }
+                }
 
-                    // Extraction des données du tuple
-                    int arrMins = PackedCriteria.arrMins(tuple);
-                    int changes = PackedCriteria.changes(tuple);
+                // Option 3 : changer de véhicule à la gare d'arrivée de la liaison
+                checkOption3(stationFronts[arrStationBase + k], f, currentConnArrMins,
+                        PackedCriteria.MAX_CHANGES, i);
 
-                    // GESTION DU PAYLOAD
-                    int lastConnexionOfTripID = PackedCriteria.payload(tuple);
-                    int lastConnOfTripPos = connections.tripPos(lastConnexionOfTripID);
-                    int intermediateStopsNumber = lastConnOfTripPos - currentConnTripPos;
-                    // Le payload contient la liaison l dans les 24 bits de gauche,
-                    // et le nombre d'arrêts intermédiaires dans les 8 bits de droite.
+                tuplesCount += f.size();
 
-                    int payload = connId << 8 | intermediateStopsNumber;
+                // Mise à jour de la frontière de la course, inutile si elle vient d'être libérée
+                if (f.isEmpty() || isFirstConnectionOfTrip) continue;
+                if (tripFront != null) {
+                    tripFront.addAll(f);
+                } else {
+                    tripFronts[tripBase + k] = new ParetoFront.Builder(f, scratch.arena);
+                }
+            }
 
-                    long tupleToAdd = PackedCriteria.pack(arrMins, changes, payload);
-                    tupleToAdd = PackedCriteria.withDepMins(tupleToAdd, d);
+            if (tuplesCount == 0) continue;
+
+            // Charge utile des tuples de toutes les frontières temporaires, calculée une seule fois
+            long[] tuplesWithPayload = scratch.tuplesWithPayload(tuplesCount);
+            int position = 0;
+            for (int k = 0; k < batchSize; k++) {
+                payloadOffsets[k] = position;
+                ParetoFront.Builder f = fronts[k];
+                for (int j = 0; j < f.size(); j++) {
+                    long tuple = f.get(j);
+                    int intermediateStopsNumber =
+                            connections.tripPos(PackedCriteria.payload(tuple)) - currentConnTripPos;
+                    tuplesWithPayload[position++] =
+                            PackedCriteria.withPayload(tuple, i << 8 | intermediateStopsNumber);
+                }
+            }
+            payloadOffsets[batchSize] = position;
+
+            // Mise à jour des frontières des gares : chaque changement n'est lu qu'une fois pour tout le lot
+            int intervalOfTransfersArrivingToDep = transfers.arrivingAt(currentConnDepStationId);
+            int transferStart = PackedRange.startInclusive(intervalOfTransfersArrivingToDep);
+            int transferEnd = PackedRange.endExclusive(intervalOfTransfersArrivingToDep);
+
+            for (int transferId = transferStart; transferId < transferEnd; transferId++) {
+                int d = currentConnDepMins - transfers.minutes(transferId);
+                if (d < PackedCriteria.MIN_MINS) continue;
+
+                int depStationBase = transfers.depStationId(transferId) * batchSize;
+                for (int k = 0; k < batchSize; k++) {
+                    ParetoFront.Builder f = fronts[k];
+                    if (f.isEmpty()) continue;
+
+                    // Comme dans scan, une frontière qui domine entièrement f avec l'heure de départ d
+                    // ne serait pas modifiée
+                    ParetoFront.Builder stationFront = stationFronts[depStationBase + k];
+                    if (stationFront == null) {
+                        stationFront = new ParetoFront.Builder(scratch.arena);
+                        stationFronts[depStationBase + k] = stationFront;
+                    } else if (stationFront.fullyDominates(f, d)) {
+                        continue;
+                    }
 
-                    p.forStation(transferDepStationID).add(tupleToAdd);
-                });
+                    for (int j = payloadOffsets[k]; j < payloadOffsets[k + 1]; j++) {
+                        stationFront.add(PackedCriteria.withDepMins(tuplesWithPayload[j], d));
+                    }
+                }
             }
+        }
+    }
 
+    /**
+     * Fonction qui retourne, par dichotomie, l'index de la première liaison dont l'heure de départ
+     * est inférieure ou égale à celle donnée, ou le nombre de liaisons s'il n'y en a aucune.
+     * Les liaisons doivent être triées par heure de départ décroissante.
+     * @param connections les liaisons triées
+     * @param mins heure de départ, en minutes après minuit
+     * @return l'index de la première liaison partant au plus tard à mins
+     */
+    private static int firstDepartingAtOrBefore(Connections connections, int mins) {
+        int low = 0;
+        int high = connections.size();
+
+        // Invariant : les liaisons avant low partent après mins,
+        // celles à partir de high partent au plus tard à mins
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (connections.depMins(middle) > mins) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
         }
+        return low;
+    }
 
-        return p.build();
+    /**
+     * Fonction qui retourne les liaisons du jour donné, telles que fournies par l'horaire.
+     * Elles ne sont pas décodées ici : un seul parcours ne lisant chaque liaison qu'une fois,
+     * les décoder coûterait autant que le parcours lui-même
+     * @param date la date voulue
+     * @return les liaisons du jour
+     */
+    private Connections connectionsFor(LocalDate date) {
+        return timetable.connectionsFor(date);
     }
 
+    /**
+     * Fonction qui retourne les liaisons du jour donné sous forme décodée, en les décodant
+     * seulement si l'horaire ne les fournit pas déjà sous cette forme. Elle est destinée aux
+     * calculs qui parcourent plusieurs fois les mêmes liaisons
+     * @param date la date voulue
+     * @return les liaisons décodées du jour
+     */
+    private ColumnarConnections decodedConnectionsFor(LocalDate date) {
+        Connections connections = timetable.connectionsFor(date);
+        return connections instanceof ColumnarConnections columnarConnections
+                ? columnarConnections
+                : new ColumnarConnections(connections, timetable);
+    }
 
     /**
      * Fonction qui calcule les minutes de changement entre toutes les sations
@@ -149,20 +785,11 @@ public record Router(TimeTable timetable) {
     private int[] calculateMinuteBetween(int arrStationId) {
         int[] minutesBetweenForEveryStation  = new int[timetable.stations().size()];
 
-        for (int i = 0; i < timetable.stations().size(); ++i) {
-            int currentMinutesBetween;
+        // -1 pour les gares depuis lesquelles le trajet n'est pas faisable à pied
+        Arrays.fill(minutesBetweenForEveryStation, -1);
 
-            try {
-                // On essaie d'obtenir le temps de transfer pour chaque gare
-                currentMinutesBetween = timetable.transfers().minutesBetween(i, arrStationId);
-            } catch (NoSuchElementException e) {
-                // On retourne -1 si le trajet n'est pas faisable à pied
-                currentMinutesBetween = -1;
-            }
-
-            // Et on le met dans notre tableau
-            minutesBetweenForEveryStation[i] = currentMinutesBetween;
-        }
+        // Seuls les changements arrivant à la gare de destination sont parcourus
+        timetable.transfers().fillMinutesTo(arrStationId, minutesBetweenForEveryStation);
 
         return minutesBetweenForEveryStation;
     }
@@ -173,6 +800,7 @@ public record Router(TimeTable timetable) {
      * @param minutesBetweenForEveryStation tableau qui contient les minutes entre les stations
      * @param currentConnArrStationId l'id de la station d'arrivée
      * @param currentConnArrMins minutes minimum de la connection
+     * @param maxArrMins heure d'arrivée maximale acceptée
      * @param i index courant
      */
     private void checkOption1(
@@ -180,6 +808,7 @@ public record Router(TimeTable timetable) {
             int[] minutesBetweenForEveryStation,
             int currentConnArrStationId,
             int currentConnArrMins,
+            int maxArrMins,
             int i // l'id de la connection courante
     ) {
         // ------------------ Option 1) Marcher depuis arr(l) vers la destination finale ---------------
@@ -189,7 +818,7 @@ public record Router(TimeTable timetable) {
         // changement existe entre les deux gares
         int walkDuration = minutesBetweenForEveryStation[currentConnArrStationId];
 
-        if (walkDuration != -1) {
+        if (walkDuration != -1 && currentConnArrMins + walkDuration <= maxArrMins) {
             long t = PackedCriteria.pack(currentConnArrMins + walkDuration, 0, i);
             t = PackedCriteria.withDepMins(t, currentConnArrMins);
             f.add(t);
@@ -217,41 +846,148 @@ public record Router(TimeTable timetable) {
      * Fonction qui vérifie l'option 3 qui est
      * le changement de véhicule, donc les transitions
      * entre les routes
-     * @param p un bâtisseur de profil
+     * @param stationFront le bâtisseur de la frontière de la gare d'arrivée courante, ou null
      * @param f un bâtisseur de frontière
-     * @param currentConnArrStopID l'id de l'arrêt courant
      * @param currentConnArrMins minutes minimum de la connection
+     * @param maxChanges nombre maximal de changements des voyages
      */
     private void checkOption3(
-            Profile.Builder p,
+            ParetoFront.Builder stationFront,
             ParetoFront.Builder f,
-            int currentConnArrStopID,
             int currentConnArrMins,
+            int maxChanges,
             int connId
     ) {
 
-        // liste qui va contenir les tuples à ajouter
-        List<Long> tuples = new ArrayList<>();
-
-        // On vérifie que ce n'est pas null, sinon null.forEach lèvera une exception
-        if (p.forStation(timetable.stationId(currentConnArrStopID)) != null) { // SEULEMENT si un builder existe pour cette gare
-
-            p.forStation(timetable.stationId(currentConnArrStopID)).forEach(tuples::add);
-
-            tuples.stream()
-                    .filter(criteria ->
-                            PackedCriteria.hasDepMins(criteria) // On garde seulement ceux qui n'ont pas
-                                    && PackedCriteria.depMins(criteria) >= currentConnArrMins
-                    ) // d'anomalie temporelle
-                    .forEach(criteria -> {
-                        int arrMin    = PackedCriteria.arrMins(criteria);
-                        int changes   = PackedCriteria.changes(criteria);
-                        long t        = PackedCriteria.pack(arrMin, changes + 1, connId);
-                        t             = PackedCriteria.withDepMins(t, currentConnArrMins);
-                        f.add(t);
-                    }
-                    );
+        // On vérifie que ce n'est pas null, SEULEMENT si un builder existe pour cette gare
+        if (stationFront == null) return;
+
+        // On parcourt directement le bâtisseur, sans copier ses tuples.
+        // Ceux-ci sont triés par heure de départ décroissante, on peut donc s'arrêter
+        // au premier qui part trop tôt
+        for (int k = 0; k < stationFront.size(); k++) {
+            long criteria = stationFront.get(k);
+
+            // On garde seulement ceux qui n'ont pas d'anomalie temporelle
+            if (!PackedCriteria.hasDepMins(criteria)) continue;
+            if (PackedCriteria.depMins(criteria) < currentConnArrMins) break;
+
+            int arrMin    = PackedCriteria.arrMins(criteria);
+            int changes   = PackedCriteria.changes(criteria);
+
+            // Un changement de plus dépasserait le nombre maximal, le tuple n'est pas créé
+            if (changes >= maxChanges) continue;
+
+            long t        = PackedCriteria.pack(arrMin, changes + 1, connId);
+            t             = PackedCriteria.withDepMins(t, currentConnArrMins);
+            f.add(t);
+        }
+    }
+
+    /**
+     * Enregistrement qui regroupe les options d'un parcours des liaisons, toutes facultatives
+     * @param minDepMins heure de départ minimale, en minutes après minuit
+     * @param maxArrMins heure d'arrivée maximale, en minutes après minuit
+     * @param maxChanges nombre maximal de changements des voyages
+     * @param excludedConnections ensemble de bits des liaisons exclues, ou null si aucune ne l'est
+     * @param lowerBounds borne inférieure de la durée des voyages de chaque gare à la gare d'arrivée,
+     *                    ou null si elle n'est pas connue
+     * @param sliceMinutes durée d'une tranche publiée, en minutes, ignorée s'il n'y a pas d'auditeur
+     * @param listener auditeur informé de chaque tranche terminée, ou null
+     */
+    private record ScanOptions(
+            int minDepMins,
+            int maxArrMins,
+            int maxChanges,
+            long[] excludedConnections,
+            int[] lowerBounds,
+            int sliceMinutes,
+            SliceListener listener
+    ) {
+
+        // Options d'un parcours de toutes les liaisons du jour, sans aucune restriction
+        private static final ScanOptions ALL = window(PackedCriteria.MIN_MINS, PackedCriteria.MAX_MINS);
+
+        /**
+         * Fonction qui retourne les options d'un parcours limité à la fenêtre donnée, sans autre restriction
+         * @param minDepMins heure de départ minimale, en minutes après minuit
+         * @param maxArrMins heure d'arrivée maximale, en minutes après minuit
+         * @return les options
+         */
+        private static ScanOptions window(int minDepMins, int maxArrMins) {
+            return new ScanOptions(minDepMins, maxArrMins, PackedCriteria.MAX_CHANGES, null, null, 0, null);
+        }
+
+        /**
+         * Méthode qui retourne ces options, avec le nombre maximal de changements donné
+         * @param maxChanges nombre maximal de changements des voyages
+         * @return les nouvelles options
+         */
+        private ScanOptions withMaxChanges(int maxChanges) {
+            return new ScanOptions(minDepMins, maxArrMins, maxChanges, excludedConnections, lowerBounds,
+                    sliceMinutes, listener);
+        }
+
+        /**
+         * Méthode qui retourne ces options, avec les liaisons exclues données
+         * @param excludedConnections ensemble de bits des liaisons exclues
+         * @return les nouvelles options
+         */
+        private ScanOptions withExcludedConnections(long[] excludedConnections) {
+            return new ScanOptions(minDepMins, maxArrMins, maxChanges, excludedConnections, lowerBounds,
+                    sliceMinutes, listener);
+        }
+
+        /**
+         * Méthode qui retourne ces options, avec les bornes inférieures données
+         * @param lowerBounds borne inférieure de la durée des voyages de chaque gare à la gare d'arrivée
+         * @return les nouvelles options
+         */
+        private ScanOptions withLowerBounds(int[] lowerBounds) {
+            return new ScanOptions(minDepMins, maxArrMins, maxChanges, excludedConnections, lowerBounds,
+                    sliceMinutes, listener);
+        }
+
+        /**
+         * Méthode qui retourne ces options, avec l'auditeur donné
+         * @param sliceMinutes durée d'une tranche publiée, en minutes
+         * @param listener auditeur informé de chaque tranche terminée
+         * @return les nouvelles options
+         */
+        private ScanOptions withListener(int sliceMinutes, SliceListener listener) {
+            return new ScanOptions(minDepMins, maxArrMins, maxChanges, excludedConnections, lowerBounds,
+                    sliceMinutes, listener);
         }
     }
 
+    // Espace de travail propre à chaque fil d'exécution, réutilisé d'un profil à l'autre
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Classe qui regroupe les tampons réutilisés par l'algorithme CSA,
+     * afin qu'aucune allocation ne soit faite pour chaque liaison
+     */
+    private static final class Scratch {
+
+        // Frontière temporaire de la liaison en cours de traitement
+        private final ParetoFront.Builder front = new ParetoFront.Builder();
+
+        // Zone partagée contenant les frontières des gares et des courses du profil en cours de calcul
+        private final FrontArena arena = new FrontArena();
+
+        // Tuples de la frontière temporaire, avec leur charge utile finale
+        private long[] tuplesWithPayload = new long[16];
+
+        /**
+         * Fonction qui retourne un tampon d'au moins la taille donnée
+         * @param size taille minimale
+         * @return le tampon, agrandi si nécessaire
+         */
+        private long[] tuplesWithPayload(int size) {
+            if (tuplesWithPayload.length < size) {
+                tuplesWithPayload = new long[Math.max(size, 2 * tuplesWithPayload.length)];
+            }
+            return tuplesWithPayload;
+        }
+    }
 }
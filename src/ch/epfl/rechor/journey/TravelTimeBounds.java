@@ -0,0 +1,452 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.PackedRange;
+import ch.epfl.rechor.Preconditions;
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.Transfers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Classe qui représente un oracle donnant, pour un jour donné, une borne inférieure de la durée de tout
+ * voyage entre deux gares, au sens des critères de {@link Profile} : de l'heure de départ à l'heure
+ * d'arrivée, changements initial et final inclus.
+ * <p>
+ * Les bornes sont obtenues au moyen de gares de référence (« landmarks ») : pour chacune d'elles, la durée
+ * minimale depuis et vers toutes les gares est calculée une fois pour toutes dans le graphe dont les arcs
+ * sont les changements entre gares différentes et les liaisons du jour, pondérées par leur durée minimale.
+ * L'inégalité triangulaire donne ensuite une borne inférieure entre deux gares quelconques en temps
+ * proportionnel au nombre de gares de référence. Les temps d'attente n'étant pas pris en compte, les
+ * bornes peuvent être bien inférieures aux durées réelles.
+ * <p>
+ * Les bornes d'un jour sont stockées dans le dossier de ce jour de l'horaire, dans le fichier
+ * {@value #FILE_NAME}, dont toutes les valeurs sont stockées en big-endian :
+ * <ul>
+ *     <li>en-tête de {@value #HEADER_SIZE} octets : nombre magique, version, empreinte de l'horaire,
+ *     date, nombre de gares, nombre de gares de référence et somme de contrôle CRC32 de ce qui suit,</li>
+ *     <li>identifiants des gares de référence (S32),</li>
+ *     <li>pour chaque gare de référence, durée minimale depuis chaque gare vers elle (S32),</li>
+ *     <li>pour chaque gare de référence, durée minimale depuis elle vers chaque gare (S32).</li>
+ * </ul>
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class TravelTimeBounds {
+
+    /**
+     * Borne retournée lorsqu'aucun voyage n'existe entre les deux gares
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Nombre de gares de référence utilisé par défaut
+     */
+    public static final int DEFAULT_LANDMARKS_COUNT = 16;
+
+    // Nom du fichier des bornes, dans le dossier de chaque jour de l'horaire
+    private static final String FILE_NAME = "travel-time-bounds.bin";
+
+    // Nombre magique ("RCHB") et version du format des fichiers
+    private static final int MAGIC = 0x52434842;
+    private static final short VERSION = 1;
+
+    // Position des champs de l'en-tête, en octets
+    private static final int MAGIC_POS = 0;
+    private static final int VERSION_POS = 4;
+    private static final int FINGERPRINT_POS = 8;
+    private static final int DATE_POS = 12;
+    private static final int STATIONS_COUNT_POS = 16;
+    private static final int LANDMARKS_COUNT_POS = 20;
+    private static final int CHECKSUM_POS = 24;
+    private static final int HEADER_SIZE = 28;
+
+    private final LocalDate date;
+    private final int stationsCount;
+    private final int[] landmarks;
+
+    // Durée minimale depuis la gare s vers la k-ième gare de référence, et depuis celle-ci vers la gare s,
+    // à l'index k * stationsCount + s, UNREACHABLE si la gare n'est pas atteignable
+    private final int[] minutesToLandmarks;
+    private final int[] minutesFromLandmarks;
+
+    /**
+     * Constructeur qui construit un oracle à partir des durées minimales données, qui ne sont pas copiées
+     * @param date le jour des bornes
+     * @param stationsCount le nombre de gares
+     * @param landmarks les identifiants des gares de référence
+     * @param minutesToLandmarks durées minimales de chaque gare vers chaque gare de référence
+     * @param minutesFromLandmarks durées minimales de chaque gare de référence vers chaque gare
+     */
+    private TravelTimeBounds(
+            LocalDate date,
+            int stationsCount,
+            int[] landmarks,
+            int[] minutesToLandmarks,
+            int[] minutesFromLandmarks
+    ) {
+        this.date = date;
+        this.stationsCount = stationsCount;
+        this.landmarks = landmarks;
+        this.minutesToLandmarks = minutesToLandmarks;
+        this.minutesFromLandmarks = minutesFromLandmarks;
+    }
+
+    /**
+     * Méthode qui calcule l'oracle de l'horaire donné, le jour donné
+     * @param timeTable l'horaire
+     * @param date le jour des liaisons
+     * @param landmarksCount le nombre de gares de référence, borné par le nombre de gares
+     * @return l'oracle
+     * @throws IllegalArgumentException si le nombre de gares de référence n'est pas strictement positif
+     */
+    public static TravelTimeBounds compute(TimeTable timeTable, LocalDate date, int landmarksCount) {
+        Objects.requireNonNull(date);
+        Preconditions.checkArgument(landmarksCount > 0);
+
+        int stationsCount = timeTable.stations().size();
+        Graph forward = Graph.of(timeTable, date, false);
+        Graph backward = Graph.of(timeTable, date, true);
+
+        int count = Math.min(landmarksCount, stationsCount);
+        int[] landmarks = new int[count];
+        int[] minutesTo = new int[count * stationsCount];
+        int[] minutesFrom = new int[count * stationsCount];
+
+        // Chaque gare de référence est la plus éloignée de celles déjà choisies, les gares qu'aucune
+        // d'elles n'atteint étant choisies en premier, afin que les bornes soient utiles partout
+        int[] closestLandmarkMinutes = new int[stationsCount];
+        Arrays.fill(closestLandmarkMinutes, UNREACHABLE);
+        int landmark = 0;
+        for (int k = 0; k < count; k++) {
+            landmarks[k] = landmark;
+            backward.shortestMinutes(landmark, minutesTo, k * stationsCount);
+            forward.shortestMinutes(landmark, minutesFrom, k * stationsCount);
+
+            int farthest = 0;
+            for (int s = 0; s < stationsCount; s++) {
+                closestLandmarkMinutes[s] = Math.min(closestLandmarkMinutes[s], minutesFrom[k * stationsCount + s]);
+                if (closestLandmarkMinutes[s] > closestLandmarkMinutes[farthest]) farthest = s;
+            }
+            landmark = farthest;
+        }
+
+        return new TravelTimeBounds(date, stationsCount, landmarks, minutesTo, minutesFrom);
+    }
+
+    /**
+     * Méthode qui retourne l'oracle de l'horaire dont les fichiers se trouvent dans le dossier donné,
+     * pour le jour donné. Il est lu dans le dossier du jour s'il y a été stocké et qu'il est à jour,
+     * sinon il est calculé avec le nombre de gares de référence par défaut puis stocké dans ce dossier.
+     * Le fichier n'étant qu'un cache, une erreur de lecture ou d'écriture n'empêche pas d'obtenir l'oracle.
+     * @param timeTable l'horaire
+     * @param timeTableDirectory dossier contenant les fichiers de l'horaire
+     * @param date le jour des liaisons
+     * @return l'oracle
+     */
+    public static TravelTimeBounds forDay(TimeTable timeTable, Path timeTableDirectory, LocalDate date) {
+        Path file = timeTableDirectory.resolve(date.toString()).resolve(FILE_NAME);
+        int fingerprint = ProfileStore.fingerprint(timeTableDirectory, date);
+
+        try {
+            TravelTimeBounds storedBounds = load(file, fingerprint, date, timeTable.stations().size());
+            if (storedBounds != null) return storedBounds;
+        } catch (UncheckedIOException e) {
+            // l'oracle est recalculé
+        }
+
+        TravelTimeBounds bounds = compute(timeTable, date, DEFAULT_LANDMARKS_COUNT);
+        try {
+            bounds.save(file, fingerprint);
+        } catch (UncheckedIOException e) {
+            // l'oracle sera recalculé lors de la prochaine exécution
+        }
+        return bounds;
+    }
+
+    /**
+     * Méthode qui retourne le jour des bornes
+     * @return la date
+     */
+    public LocalDate date() {
+        return date;
+    }
+
+    /**
+     * Méthode qui retourne le nombre de gares de référence
+     * @return le nombre de gares de référence
+     */
+    public int landmarksCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Méthode qui retourne une borne inférieure de la durée de tout voyage entre les deux gares données
+     * @param depStationId l'identifiant de la gare de départ
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return la borne inférieure en minutes, ou UNREACHABLE si aucun voyage n'existe entre ces gares
+     * @throws IndexOutOfBoundsException si l'une des gares n'existe pas
+     */
+    public int minutesBetween(int depStationId, int arrStationId) {
+        Objects.checkIndex(depStationId, stationsCount);
+        Objects.checkIndex(arrStationId, stationsCount);
+
+        int bound = 0;
+        for (int k = 0; k < landmarks.length; k++) {
+            int offset = k * stationsCount;
+
+            // Par l'inégalité triangulaire, d(s, t) >= d(s, L) - d(t, L) et d(s, t) >= d(L, t) - d(L, s).
+            // Si t atteint L mais pas s, ou si L atteint s mais pas t, alors s n'atteint pas t
+            int depToLandmark = minutesToLandmarks[offset + depStationId];
+            int arrToLandmark = minutesToLandmarks[offset + arrStationId];
+            if (arrToLandmark != UNREACHABLE) {
+                if (depToLandmark == UNREACHABLE) return UNREACHABLE;
+                bound = Math.max(bound, depToLandmark - arrToLandmark);
+            }
+
+            int landmarkToDep = minutesFromLandmarks[offset + depStationId];
+            int landmarkToArr = minutesFromLandmarks[offset + arrStationId];
+            if (landmarkToDep != UNREACHABLE) {
+                if (landmarkToArr == UNREACHABLE) return UNREACHABLE;
+                bound = Math.max(bound, landmarkToArr - landmarkToDep);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Méthode qui retourne, pour chaque gare, une borne inférieure de la durée de tout voyage de cette gare
+     * à la gare d'arrivée donnée
+     * @param arrStationId l'identifiant de la gare d'arrivée
+     * @return les bornes inférieures en minutes, indexées par gare de départ, UNREACHABLE pour les gares
+     * depuis lesquelles aucun voyage n'existe
+     * @throws IndexOutOfBoundsException si la gare n'existe pas
+     */
+    public int[] minutesTo(int arrStationId) {
+        int[] minutes = new int[stationsCount];
+        for (int s = 0; s < stationsCount; s++) minutes[s] = minutesBetween(s, arrStationId);
+        return minutes;
+    }
+
+    /**
+     * Fonction qui lit l'oracle stocké dans le fichier donné
+     * @param file le fichier
+     * @param fingerprint l'empreinte actuelle des fichiers de l'horaire
+     * @param date le jour des bornes
+     * @param stationsCount le nombre de gares de l'horaire
+     * @return l'oracle, ou null si le fichier n'existe pas, est invalide ou est périmé
+     */
+    private static TravelTimeBounds load(Path file, int fingerprint, LocalDate date, int stationsCount) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(MAGIC_POS) != MAGIC
+                || buffer.getShort(VERSION_POS) != VERSION
+                || buffer.getInt(FINGERPRINT_POS) != fingerprint
+                || buffer.getInt(DATE_POS) != (int) date.toEpochDay()
+                || buffer.getInt(STATIONS_COUNT_POS) != stationsCount) {
+            return null;
+        }
+        int landmarksCount = buffer.getInt(LANDMARKS_COUNT_POS);
+        if (landmarksCount <= 0 || landmarksCount > stationsCount
+                || buffer.capacity() != fileSize(stationsCount, landmarksCount)) {
+            return null;
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+        if ((int) checksum.getValue() != buffer.getInt(CHECKSUM_POS)) return null;
+
+        IntBuffer values = buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE).asIntBuffer();
+        int[] landmarks = new int[landmarksCount];
+        int[] minutesTo = new int[landmarksCount * stationsCount];
+        int[] minutesFrom = new int[landmarksCount * stationsCount];
+        values.get(landmarks).get(minutesTo).get(minutesFrom);
+
+        return new TravelTimeBounds(date, stationsCount, landmarks, minutesTo, minutesFrom);
+    }
+
+    /**
+     * Méthode qui écrit l'oracle dans le fichier donné, en remplaçant celui qui s'y trouve éventuellement.
+     * Le fichier est d'abord écrit sous un nom temporaire puis renommé, afin qu'un autre programme
+     * ne puisse jamais lire un fichier partiellement écrit.
+     * @param file le fichier
+     * @param fingerprint l'empreinte des fichiers de l'horaire
+     */
+    private void save(Path file, int fingerprint) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize(stationsCount, landmarks.length));
+        buffer.putInt(MAGIC_POS, MAGIC)
+                .putShort(VERSION_POS, VERSION)
+                .putInt(FINGERPRINT_POS, fingerprint)
+                .putInt(DATE_POS, (int) date.toEpochDay())
+                .putInt(STATIONS_COUNT_POS, stationsCount)
+                .putInt(LANDMARKS_COUNT_POS, landmarks.length);
+        buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE).asIntBuffer()
+                .put(landmarks)
+                .put(minutesToLandmarks)
+                .put(minutesFromLandmarks);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+        buffer.putInt(CHECKSUM_POS, (int) checksum.getValue());
+
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporaryFile = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+            try {
+                Files.write(temporaryFile, buffer.array());
+                try {
+                    Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fonction qui retourne la taille du fichier d'un oracle
+     * @param stationsCount le nombre de gares
+     * @param landmarksCount le nombre de gares de référence
+     * @return la taille en octets
+     */
+    private static long fileSize(int stationsCount, int landmarksCount) {
+        return HEADER_SIZE + (long) Integer.BYTES * (landmarksCount + 2L * landmarksCount * stationsCount);
+    }
+
+    /**
+     * Enregistrement qui représente le graphe pondéré des gares, dont les arcs partant de la gare s
+     * sont aux index start[s] (inclus) à start[s + 1] (exclu) des tableaux targets et minutes
+     * @param start index du premier arc de chaque gare, suivi du nombre d'arcs
+     * @param targets gare d'arrivée de chaque arc
+     * @param minutes durée de chaque arc
+     */
+    private record Graph(int[] start, int[] targets, int[] minutes) {
+
+        // Nombre de bits de l'identifiant d'une gare, et de la durée d'un arc, dans un arc empaqueté,
+        // choisis pour que les arcs empaquetés soient positifs et triés par gare de départ
+        private static final int STATION_BITS = 24;
+        private static final int MINUTES_BITS = 15;
+
+        /**
+         * Fonction qui construit le graphe des gares de l'horaire donné, le jour donné, dont les arcs sont
+         * les changements entre gares différentes et les liaisons du jour, de durée minimale
+         * @param timeTable l'horaire
+         * @param date le jour des liaisons
+         * @param reversed vrai ssi les arcs doivent être inversés
+         * @return le graphe
+         */
+        static Graph of(TimeTable timeTable, LocalDate date, boolean reversed) {
+            int stationsCount = timeTable.stations().size();
+            Preconditions.checkArgument(stationsCount <= 1 << STATION_BITS);
+            Connections connections = timeTable.connectionsFor(date);
+            Transfers transfers = timeTable.transfers();
+
+            // Arcs empaquetés (départ, arrivée, durée) : une fois triés, le premier arc d'une paire
+            // de gares est celui de durée minimale
+            long[] arcs = new long[connections.size() + transfers.size()];
+            int arcsCount = 0;
+            for (int id = 0; id < connections.size(); id++) {
+                int from = timeTable.stationId(connections.depStopId(id));
+                int to = timeTable.stationId(connections.arrStopId(id));
+                int minutes = connections.arrMins(id) - connections.depMins(id);
+                arcs[arcsCount++] = reversed ? pack(to, from, minutes) : pack(from, to, minutes);
+            }
+            for (int to = 0; to < stationsCount; to++) {
+                int interval = transfers.arrivingAt(to);
+                for (int id = PackedRange.startInclusive(interval); id < PackedRange.endExclusive(interval); id++) {
+                    int from = transfers.depStationId(id);
+                    if (from == to) continue;
+                    arcs[arcsCount++] = reversed ? pack(to, from, transfers.minutes(id)) : pack(from, to, transfers.minutes(id));
+                }
+            }
+            Arrays.sort(arcs, 0, arcsCount);
+
+            int[] start = new int[stationsCount + 1];
+            int[] targets = new int[arcsCount];
+            int[] minutes = new int[arcsCount];
+            int count = 0;
+            for (int a = 0; a < arcsCount; a++) {
+                if (a > 0 && arcs[a] >>> MINUTES_BITS == arcs[a - 1] >>> MINUTES_BITS) continue;
+                int from = (int) (arcs[a] >>> (STATION_BITS + MINUTES_BITS));
+                start[from + 1]++;
+                targets[count] = (int) (arcs[a] >>> MINUTES_BITS) & ((1 << STATION_BITS) - 1);
+                minutes[count] = (int) arcs[a] & ((1 << MINUTES_BITS) - 1);
+                count++;
+            }
+            for (int s = 0; s < stationsCount; s++) start[s + 1] += start[s];
+
+            return new Graph(start, Arrays.copyOf(targets, count), Arrays.copyOf(minutes, count));
+        }
+
+        /**
+         * Fonction qui empaquète un arc
+         * @param from la gare de départ
+         * @param to la gare d'arrivée
+         * @param minutes la durée, bornée à la plus grande durée représentable
+         * @return l'arc empaqueté
+         */
+        private static long pack(int from, int to, int minutes) {
+            int clampedMinutes = Math.clamp(minutes, 0, (1 << MINUTES_BITS) - 1);
+            return (long) from << (STATION_BITS + MINUTES_BITS) | (long) to << MINUTES_BITS | clampedMinutes;
+        }
+
+        /**
+         * Fonction qui calcule, au moyen de l'algorithme de Dijkstra, la durée minimale depuis la gare donnée
+         * vers chaque gare, et l'écrit dans le tableau donné à partir de l'index donné
+         * @param source la gare de départ
+         * @param destination le tableau des durées, UNREACHABLE pour les gares non atteignables
+         * @param offset l'index de la durée de la gare 0 dans le tableau
+         */
+        void shortestMinutes(int source, int[] destination, int offset) {
+            int stationsCount = start.length - 1;
+            Arrays.fill(destination, offset, offset + stationsCount, UNREACHABLE);
+
+            // Chaque élément de la file contient la durée dans ses 32 bits de poids fort et la gare
+            // dans ses 32 bits de poids faible, de sorte que les plus courtes durées sont extraites en premier
+            PriorityQueue<Long> queue = new PriorityQueue<>();
+            destination[offset + source] = 0;
+            queue.add((long) source);
+            while (!queue.isEmpty()) {
+                long head = queue.poll();
+                int station = (int) head;
+                int minutesToStation = (int) (head >>> Integer.SIZE);
+                if (minutesToStation > destination[offset + station]) continue;
+
+                for (int a = start[station]; a < start[station + 1]; a++) {
+                    int target = targets[a];
+                    int minutesToTarget = minutesToStation + minutes[a];
+                    if (minutesToTarget < destination[offset + target]) {
+                        destination[offset + target] = minutesToTarget;
+                        queue.add((long) minutesToTarget << Integer.SIZE | target);
+                    }
+                }
+            }
+        }
+    }
+}
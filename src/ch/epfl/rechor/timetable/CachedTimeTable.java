@@ -1,10 +1,14 @@
 package ch.epfl.rechor.timetable;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Classe qui représente un horaire dont les données qui dépendent de la date sont stockées
- * dans un cache. De la sorte, si ces données sont demandées plusieurs fois de suite pour
- * une seule et même date, elles ne sont pas rechargées à chaque fois.
+ * dans un cache. De la sorte, si ces données sont demandées plusieurs fois pour une seule et
+ * même date, elles ne sont pas rechargées à chaque fois. Les données des derniers jours utilisés
+ * sont gardées, afin que des calculs portant sur des jours différents, par exemple aujourd'hui
+ * et demain, ne s'évincent pas mutuellement.
  * @author Yoann Salamin (390522)
  * @author Axel Verga (398787)
  */
@@ -12,12 +16,25 @@ public final class CachedTimeTable implements TimeTable {
 
     private final TimeTable underlyingTimetable;
 
-    // Variables qui vont contenir les données misent en cache
-    private Connections currentCachedConnections = null;
-    private Trips       currentCachedTrips       = null;
+    // Nombre de gares, qui sépare les index de gares des index de voies/quais
+    private final int stationsCount;
 
-    // La date actuelle du cache
-    private LocalDate cachedDate = null;
+    // Table qui donne directement l'index de la gare de chaque arrêt
+    private final int[] stationIdOfStop;
+
+    // Noms des voies/quais, indexés par l'index de la voie/du quai (et non de l'arrêt)
+    private final String[] platformNames;
+
+    // Données d'un jour mises en cache, regroupées afin d'être remplacées d'un seul coup,
+    // ce qui permet à plusieurs fils d'exécution d'utiliser l'horaire en même temps
+    private record CachedDay(LocalDate date, Trips trips, Connections connections) {}
+
+    // Nombre de jours gardés en cache
+    private static final int CACHED_DAYS_COUNT = 2;
+
+    // Les jours actuellement en cache, du plus récemment utilisé au plus ancien, dans une liste
+    // immuable qui est remplacée d'un seul coup
+    private volatile List<CachedDay> cachedDays = List.of();
 
     /**
      * Crée un horaire mis en cache autour de l'horaire sous-jacent donné.
@@ -25,6 +42,21 @@ public final class CachedTimeTable implements TimeTable {
      */
     public CachedTimeTable(TimeTable timeTable) {
         this.underlyingTimetable = timeTable;
+
+        // Les gares et les voies ne dépendent pas de la date, on peut donc
+        // précalculer une fois pour toutes la gare et le nom de voie de chaque arrêt
+        Platforms platforms = timeTable.platforms();
+        this.stationsCount = timeTable.stations().size();
+        this.stationIdOfStop = new int[stationsCount + platforms.size()];
+        this.platformNames = new String[platforms.size()];
+
+        for (int stationId = 0; stationId < stationsCount; stationId++) {
+            stationIdOfStop[stationId] = stationId;
+        }
+        for (int platformId = 0; platformId < platforms.size(); platformId++) {
+            stationIdOfStop[stationsCount + platformId] = platforms.stationId(platformId);
+            platformNames[platformId] = platforms.name(platformId);
+        }
     }
 
     // Fonctions déléguées à l'autre horaire
@@ -54,24 +86,26 @@ public final class CachedTimeTable implements TimeTable {
         return underlyingTimetable.transfers();
     }
 
+    // Fonctions sur les arrêts, qui utilisent les tables précalculées
+
     @Override
     public boolean isStationId(int stopId) {
-        return underlyingTimetable.isStationId(stopId);
+        return stopId < stationsCount;
     }
 
     @Override
     public boolean isPlatformId(int stopId) {
-        return underlyingTimetable.isPlatformId(stopId);
+        return stopId >= stationsCount;
     }
 
     @Override
     public int stationId(int stopId) {
-        return underlyingTimetable.stationId(stopId);
+        return stationIdOfStop[stopId];
     }
 
     @Override
     public String platformName(int stopId) {
-        return underlyingTimetable.platformName(stopId);
+        return isPlatformId(stopId) ? platformNames[stopId - stationsCount] : null;
     }
 
     // Fonctions avec données mises en cache
@@ -80,33 +114,48 @@ public final class CachedTimeTable implements TimeTable {
     public Trips tripsFor(LocalDate date) {
 
         // On vérifie si la donnée est déjà mise en cache et si la date a changé
-        ensureCacheFor(date);
-
-        return currentCachedTrips;
+        return cachedDayFor(date).trips();
     }
 
     @Override
     public Connections connectionsFor(LocalDate date) {
 
         // On vérifie si la donnée est déjà mise en cache et si la date a changé
-        ensureCacheFor(date);
-
-        return currentCachedConnections;
+        return cachedDayFor(date).connections();
     }
 
 
     /**
-     * Fonction qui recalcule le cache s'il le faut
+     * Fonction qui recalcule le cache s'il le faut, en évinçant le jour utilisé le moins récemment
      * @param date la date voulue
+     * @return les données du jour voulu
      */
-    private void ensureCacheFor(LocalDate date) {
-        if (currentCachedTrips == null
-                || currentCachedConnections == null
-                || cachedDate == null
-                || !cachedDate.equals(date)) {
-            currentCachedTrips       = underlyingTimetable.tripsFor(date);
-            currentCachedConnections = underlyingTimetable.connectionsFor(date);
-            cachedDate               = date;
+    private CachedDay cachedDayFor(LocalDate date) {
+        List<CachedDay> days = cachedDays;
+        if (!days.isEmpty() && days.getFirst().date().equals(date)) return days.getFirst();
+
+        CachedDay day = null;
+        for (CachedDay cachedDay : days) {
+            if (cachedDay.date().equals(date)) day = cachedDay;
+        }
+
+        if (day == null) {
+            // Si deux fils modifient le cache en même temps, l'une des deux modifications
+            // est simplement perdue, ce qui ne pose pas de problème
+            // Les liaisons sont décodées une fois pour toutes, afin que leur parcours
+            // se fasse ensuite sur de simples tableaux
+            Connections connections =
+                    new ColumnarConnections(underlyingTimetable.connectionsFor(date), underlyingTimetable);
+            day = new CachedDay(date, underlyingTimetable.tripsFor(date), connections);
+        }
+
+        // Le jour devient le plus récemment utilisé
+        List<CachedDay> newDays = new ArrayList<>(CACHED_DAYS_COUNT);
+        newDays.add(day);
+        for (CachedDay cachedDay : days) {
+            if (newDays.size() < CACHED_DAYS_COUNT && !cachedDay.date().equals(date)) newDays.add(cachedDay);
         }
+        cachedDays = List.copyOf(newDays);
+        return day;
     }
 }
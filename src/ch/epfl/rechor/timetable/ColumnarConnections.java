@@ -0,0 +1,124 @@
+package ch.epfl.rechor.timetable;
+
+/**
+ * Classe qui représente des liaisons décodées une seule fois dans des tableaux primitifs parallèles,
+ * un tableau par champ. Contrairement aux liaisons aplaties, chaque accès est une simple lecture
+ * dans un tableau. Les index des gares de départ et d'arrivée sont également précalculés.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class ColumnarConnections implements Connections {
+
+    // Les index d'arrêts et de gares ainsi que les heures tiennent sur 16 bits non signés,
+    // comme dans les fichiers aplatis, on les stocke donc dans des tableaux de char
+    private final char[] depStopIds;
+    private final char[] depMins;
+    private final char[] arrStopIds;
+    private final char[] arrMins;
+    private final char[] depStationIds;
+    private final char[] arrStationIds;
+
+    // Index de la course (24 bits) et position en son sein (8 bits)
+    private final int[] tripIds;
+    private final byte[] tripPositions;
+
+    // Index de la liaison suivante de la course
+    private final int[] nextConnectionIds;
+
+    /**
+     * Constructeur qui décode toutes les liaisons données
+     * @param connections les liaisons à décoder
+     * @param timeTable l'horaire auquel appartiennent les liaisons, utilisé pour obtenir
+     *                  les gares des arrêts de départ et d'arrivée
+     */
+    public ColumnarConnections(Connections connections, TimeTable timeTable) {
+        int size = connections.size();
+
+        depStopIds        = new char[size];
+        depMins           = new char[size];
+        arrStopIds        = new char[size];
+        arrMins           = new char[size];
+        depStationIds     = new char[size];
+        arrStationIds     = new char[size];
+        tripIds           = new int[size];
+        tripPositions     = new byte[size];
+        nextConnectionIds = new int[size];
+
+        // On décode chaque liaison une seule fois, champ par champ
+        for (int id = 0; id < size; id++) {
+            int depStopId = connections.depStopId(id);
+            int arrStopId = connections.arrStopId(id);
+
+            depStopIds[id]        = (char) depStopId;
+            depMins[id]           = (char) connections.depMins(id);
+            arrStopIds[id]        = (char) arrStopId;
+            arrMins[id]           = (char) connections.arrMins(id);
+            depStationIds[id]     = (char) timeTable.stationId(depStopId);
+            arrStationIds[id]     = (char) timeTable.stationId(arrStopId);
+            tripIds[id]           = connections.tripId(id);
+            tripPositions[id]     = (byte) connections.tripPos(id);
+            nextConnectionIds[id] = connections.nextConnectionId(id);
+        }
+    }
+
+    @Override
+    public int depStopId(int id) {
+        return depStopIds[id];
+    }
+
+    @Override
+    public int depMins(int id) {
+        return depMins[id];
+    }
+
+    @Override
+    public int arrStopId(int id) {
+        return arrStopIds[id];
+    }
+
+    @Override
+    public int arrMins(int id) {
+        return arrMins[id];
+    }
+
+    @Override
+    public int tripId(int id) {
+        return tripIds[id];
+    }
+
+    @Override
+    public int tripPos(int id) {
+        // la position est stockée sur 8 bits non signés
+        return Byte.toUnsignedInt(tripPositions[id]);
+    }
+
+    @Override
+    public int nextConnectionId(int id) {
+        return nextConnectionIds[id];
+    }
+
+    /**
+     * Fonction qui retourne l'index de la gare de départ de la liaison d'index donné
+     * @param id index d'une liaison
+     * @return index de la gare de l'arrêt de départ de la liaison
+     * @throws IndexOutOfBoundsException Erreur si l'index est invalide
+     */
+    public int depStationId(int id) {
+        return depStationIds[id];
+    }
+
+    /**
+     * Fonction qui retourne l'index de la gare d'arrivée de la liaison d'index donné
+     * @param id index d'une liaison
+     * @return index de la gare de l'arrêt d'arrivée de la liaison
+     * @throws IndexOutOfBoundsException Erreur si l'index est invalide
+     */
+    public int arrStationId(int id) {
+        return arrStationIds[id];
+    }
+
+    @Override
+    public int size() {
+        return depStopIds.length;
+    }
+}
@@ -0,0 +1,61 @@
+package ch.epfl.rechor.timetable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe qui lit les retards annoncés en temps réel dans un fichier local, qui tient lieu de flux de retards.
+ * Chaque ligne non vide du fichier, qui ne commence pas par #, décrit le retard d'une course sous la forme
+ * « identifiant de course;position de la première liaison retardée;retard en minutes ».
+ * Publique et non instantiable.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class DelayFeed {
+
+    // Séparateur des champs d'une ligne, et marque d'une ligne de commentaire
+    private static final String SEPARATOR = ";";
+    private static final String COMMENT = "#";
+
+    // Rendre la classe non instantiable
+    private DelayFeed() {}
+
+    /**
+     * Fonction qui retourne les retards décrits par le fichier donné, dans l'ordre du fichier
+     * @param file le fichier des retards
+     * @return la liste des retards
+     * @throws UncheckedIOException en cas d'erreur d'entrée/sortie
+     * @throws IllegalArgumentException si une ligne est mal formée
+     */
+    public static List<TripDelay> read(Path file) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<TripDelay> delays = new ArrayList<>();
+        for (String line : lines) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith(COMMENT)) continue;
+
+            String[] fields = trimmed.split(SEPARATOR);
+            if (fields.length != 3) throw new IllegalArgumentException(line);
+            try {
+                delays.add(new TripDelay(
+                        Integer.parseInt(fields[0].strip()),
+                        Integer.parseInt(fields[1].strip()),
+                        Integer.parseInt(fields[2].strip())));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(line, e);
+            }
+        }
+        return delays;
+    }
+}
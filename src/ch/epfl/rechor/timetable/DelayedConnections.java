@@ -0,0 +1,189 @@
+package ch.epfl.rechor.timetable;
+
+import ch.epfl.rechor.Preconditions;
+import ch.epfl.rechor.journey.PackedCriteria;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Classe qui représente les liaisons d'un jour, modifiées par les retards de certaines de leurs courses.
+ * <p>
+ * Les liaisons restent triées par heure de départ décroissante. Celles qui partent après la dernière
+ * liaison retardée, avant comme après son retard, gardent leur identifiant et se trouvent donc au début
+ * des liaisons : seule la suite des liaisons, à partir de la première pouvant être concernée par un retard,
+ * est triée à nouveau.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class DelayedConnections implements Connections {
+
+    private final Connections base;
+
+    // Nombre de liaisons, au début, dont l'identifiant et les données ne changent pas
+    private final int unchangedCount;
+
+    // Pour chaque liaison de la suite triée à nouveau, identifiant de la liaison d'origine et retard
+    private final int[] baseIds;
+    private final int[] delays;
+
+    // Identifiant de chaque liaison d'origine de la suite, indexé par identifiant d'origine moins unchangedCount
+    private final int[] ids;
+
+    // Heure de départ de la dernière liaison retardée, après son retard
+    private final int latestDelayedDepMins;
+
+    /**
+     * Constructeur qui construit les liaisons données, modifiées par les retards donnés. Si plusieurs
+     * retards portent sur la même course, seul le dernier est pris en compte.
+     * @param base les liaisons d'origine, triées par heure de départ décroissante
+     * @param tripDelays les retards des courses
+     * @throws IllegalArgumentException si un retard fait arriver une liaison après l'heure maximale
+     * représentable (voir PackedCriteria.MAX_MINS)
+     */
+    public DelayedConnections(Connections base, Collection<TripDelay> tripDelays) {
+        this.base = base;
+
+        // Retard et position de la première liaison retardée de chaque course
+        int tripsCount = tripDelays.stream().mapToInt(TripDelay::tripId).max().orElse(-1) + 1;
+        int[] tripMinutes = new int[tripsCount];
+        int[] tripFromPos = new int[tripsCount];
+        Arrays.fill(tripFromPos, Integer.MAX_VALUE);
+        for (TripDelay delay : tripDelays) {
+            tripMinutes[delay.tripId()] = delay.minutes();
+            tripFromPos[delay.tripId()] = delay.fromTripPos();
+        }
+
+        int latest = Integer.MIN_VALUE;
+        for (int id = 0; id < base.size(); id++) {
+            int delay = delayOf(id, tripMinutes, tripFromPos);
+            if (delay > 0) {
+                // Une liaison arrivant plus tard ne pourrait faire partie d'aucun critère empaqueté
+                Preconditions.checkArgument(base.arrMins(id) + delay <= PackedCriteria.MAX_MINS);
+                latest = Math.max(latest, base.depMins(id) + delay);
+            }
+        }
+        latestDelayedDepMins = latest;
+
+        // Une liaison partant après la dernière liaison retardée n'est pas déplacée
+        int low = 0;
+        int high = base.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (base.depMins(middle) > latest) low = middle + 1;
+            else high = middle;
+        }
+        unchangedCount = low;
+
+        // La suite est triée par heure de départ décroissante, puis par identifiant d'origine, ce qui
+        // conserve l'ordre des liaisons qui partent à la même heure
+        int suffixSize = base.size() - unchangedCount;
+        long[] keys = new long[suffixSize];
+        for (int k = 0; k < suffixSize; k++) {
+            int id = unchangedCount + k;
+            int depMins = base.depMins(id) + delayOf(id, tripMinutes, tripFromPos);
+            keys[k] = (long) (Character.MAX_VALUE - depMins) << Integer.SIZE | id;
+        }
+        Arrays.sort(keys);
+
+        baseIds = new int[suffixSize];
+        delays = new int[suffixSize];
+        ids = new int[suffixSize];
+        for (int k = 0; k < suffixSize; k++) {
+            int baseId = (int) keys[k];
+            baseIds[k] = baseId;
+            delays[k] = delayOf(baseId, tripMinutes, tripFromPos);
+            ids[baseId - unchangedCount] = unchangedCount + k;
+        }
+    }
+
+    /**
+     * Fonction qui retourne le retard de la liaison d'origine donnée
+     * @param baseId l'identifiant de la liaison d'origine
+     * @param tripMinutes retard de chaque course
+     * @param tripFromPos position de la première liaison retardée de chaque course
+     * @return le retard en minutes
+     */
+    private int delayOf(int baseId, int[] tripMinutes, int[] tripFromPos) {
+        int tripId = base.tripId(baseId);
+        return tripId < tripMinutes.length && base.tripPos(baseId) >= tripFromPos[tripId]
+                ? tripMinutes[tripId]
+                : 0;
+    }
+
+    /**
+     * Méthode qui retourne le nombre de liaisons, au début, dont l'identifiant et les données sont
+     * les mêmes que celles des liaisons d'origine
+     * @return le nombre de liaisons inchangées
+     */
+    public int unchangedCount() {
+        return unchangedCount;
+    }
+
+    /**
+     * Méthode qui retourne l'heure de départ de la dernière liaison retardée, après son retard
+     * @return l'heure de départ, en minutes après minuit, ou Integer.MIN_VALUE si aucune liaison n'est retardée
+     */
+    public int latestDelayedDepMins() {
+        return latestDelayedDepMins;
+    }
+
+    /**
+     * Fonction qui retourne l'identifiant de la liaison d'origine correspondant à la liaison donnée
+     * @param id l'identifiant de la liaison
+     * @return l'identifiant de la liaison d'origine
+     */
+    private int baseId(int id) {
+        return id < unchangedCount ? id : baseIds[id - unchangedCount];
+    }
+
+    /**
+     * Fonction qui retourne le retard de la liaison donnée
+     * @param id l'identifiant de la liaison
+     * @return le retard en minutes
+     */
+    private int delay(int id) {
+        return id < unchangedCount ? 0 : delays[id - unchangedCount];
+    }
+
+    @Override
+    public int depStopId(int id) {
+        return base.depStopId(baseId(id));
+    }
+
+    @Override
+    public int depMins(int id) {
+        return base.depMins(baseId(id)) + delay(id);
+    }
+
+    @Override
+    public int arrStopId(int id) {
+        return base.arrStopId(baseId(id));
+    }
+
+    @Override
+    public int arrMins(int id) {
+        return base.arrMins(baseId(id)) + delay(id);
+    }
+
+    @Override
+    public int tripId(int id) {
+        return base.tripId(baseId(id));
+    }
+
+    @Override
+    public int tripPos(int id) {
+        return base.tripPos(baseId(id));
+    }
+
+    @Override
+    public int nextConnectionId(int id) {
+        int nextBaseId = base.nextConnectionId(baseId(id));
+        return nextBaseId < unchangedCount ? nextBaseId : ids[nextBaseId - unchangedCount];
+    }
+
+    @Override
+    public int size() {
+        return base.size();
+    }
+}
@@ -0,0 +1,170 @@
+package ch.epfl.rechor.timetable;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Classe qui représente un horaire dont les liaisons d'un jour donné sont modifiées par les retards
+ * annoncés en temps réel pour certaines courses de ce jour. Toutes les autres données, ainsi que
+ * les liaisons des autres jours, sont celles de l'horaire d'origine.
+ * <p>
+ * Les instances sont immuables : l'annonce de nouveaux retards produit un nouvel horaire, dont
+ * les retards sont toujours exprimés par rapport à l'horaire d'origine.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class DelayedTimeTable implements TimeTable {
+
+    private final TimeTable base;
+    private final LocalDate date;
+
+    // Retard actuel de chaque course retardée, indexé par identifiant de course
+    private final Map<Integer, TripDelay> tripDelays;
+
+    private final DelayedConnections delayedConnections;
+    private final Connections connections;
+
+    /**
+     * Constructeur qui construit l'horaire d'origine donné, dont les liaisons du jour donné sont
+     * modifiées par les retards donnés. Si plusieurs retards portent sur la même course, seul
+     * le dernier est pris en compte.
+     * @param base l'horaire d'origine
+     * @param date le jour des retards
+     * @param tripDelays les retards des courses de ce jour
+     * @throws IllegalArgumentException si un retard fait arriver une liaison après l'heure maximale
+     * représentable (voir PackedCriteria.MAX_MINS)
+     */
+    public DelayedTimeTable(TimeTable base, LocalDate date, Collection<TripDelay> tripDelays) {
+        this(base, date, byTrip(Map.of(), tripDelays));
+    }
+
+    /**
+     * Constructeur privé qui construit l'horaire avec les retards donnés, indexés par course
+     * @param base l'horaire d'origine
+     * @param date le jour des retards
+     * @param tripDelays les retards indexés par course
+     */
+    private DelayedTimeTable(TimeTable base, LocalDate date, Map<Integer, TripDelay> tripDelays) {
+        this.base = Objects.requireNonNull(base);
+        this.date = Objects.requireNonNull(date);
+        this.tripDelays = Map.copyOf(tripDelays);
+
+        // Les liaisons retardées sont décodées une seule fois, afin d'être parcourues rapidement
+        this.delayedConnections = new DelayedConnections(base.connectionsFor(date), this.tripDelays.values());
+        this.connections = new ColumnarConnections(delayedConnections, base);
+    }
+
+    /**
+     * Fonction qui retourne les retards donnés, ajoutés à ceux de la table donnée,
+     * en remplaçant ceux des courses déjà retardées
+     * @param current les retards actuels, indexés par course
+     * @param tripDelays les nouveaux retards
+     * @return la table des retards indexés par course
+     */
+    private static Map<Integer, TripDelay> byTrip(Map<Integer, TripDelay> current, Collection<TripDelay> tripDelays) {
+        Map<Integer, TripDelay> byTrip = new LinkedHashMap<>(current);
+        for (TripDelay delay : tripDelays) byTrip.put(delay.tripId(), delay);
+        return byTrip;
+    }
+
+    /**
+     * Méthode qui retourne un nouvel horaire, dont les retards sont ceux de cet horaire, auxquels
+     * s'ajoutent les retards donnés, qui remplacent ceux des courses déjà retardées
+     * @param newDelays les nouveaux retards des courses du jour
+     * @return le nouvel horaire retardé, ayant le même horaire d'origine
+     */
+    public DelayedTimeTable withDelays(Collection<TripDelay> newDelays) {
+        return new DelayedTimeTable(base, date, byTrip(tripDelays, newDelays));
+    }
+
+    /**
+     * Méthode qui retourne l'horaire d'origine
+     * @return l'horaire d'origine
+     */
+    public TimeTable base() {
+        return base;
+    }
+
+    /**
+     * Méthode qui retourne le jour des retards
+     * @return la date
+     */
+    public LocalDate date() {
+        return date;
+    }
+
+    /**
+     * Méthode qui retourne les retards actuels des courses du jour
+     * @return la liste des retards, une course n'y apparaissant qu'une fois
+     */
+    public List<TripDelay> tripDelays() {
+        return List.copyOf(tripDelays.values());
+    }
+
+    /**
+     * Méthode qui retourne les liaisons retardées du jour des retards
+     * @return les liaisons retardées
+     */
+    public DelayedConnections delayedConnections() {
+        return delayedConnections;
+    }
+
+    @Override
+    public Stations stations() {
+        return base.stations();
+    }
+
+    @Override
+    public StationAliases stationAliases() {
+        return base.stationAliases();
+    }
+
+    @Override
+    public Platforms platforms() {
+        return base.platforms();
+    }
+
+    @Override
+    public Routes routes() {
+        return base.routes();
+    }
+
+    @Override
+    public Transfers transfers() {
+        return base.transfers();
+    }
+
+    @Override
+    public Trips tripsFor(LocalDate date) {
+        return base.tripsFor(date);
+    }
+
+    @Override
+    public Connections connectionsFor(LocalDate date) {
+        return this.date.equals(date) ? connections : base.connectionsFor(date);
+    }
+
+    @Override
+    public boolean isStationId(int stopId) {
+        return base.isStationId(stopId);
+    }
+
+    @Override
+    public boolean isPlatformId(int stopId) {
+        return base.isPlatformId(stopId);
+    }
+
+    @Override
+    public int stationId(int stopId) {
+        return base.stationId(stopId);
+    }
+
+    @Override
+    public String platformName(int stopId) {
+        return base.platformName(stopId);
+    }
+}
@@ -1,6 +1,8 @@
 package ch.epfl.rechor.timetable;
 
 
+import ch.epfl.rechor.PackedRange;
+
 import java.util.NoSuchElementException;
 
 /**
@@ -46,4 +48,38 @@ public interface Transfers extends Indexed {
      */
     int minutesBetween(int depStationId, int arrStationId);
 
+    /**
+     * Fonction qui retourne la durée, en minutes, du changement entre les deux gares d'index donnés,
+     * ou la valeur par défaut donnée si aucun changement n'est possible entre ces deux gares.
+     * Contrairement à minutesBetween, aucune exception n'est levée dans ce cas.
+     * @param depStationId id de la gare de départ
+     * @param arrStationId id de la gare d'arrivée
+     * @param defaultMinutes valeur retournée si aucun changement n'existe
+     * @return durée en minutes du changement, ou defaultMinutes s'il n'existe pas
+     * @throws IndexOutOfBoundsException Erreur si l'index est invalide
+     */
+    default int minutesBetweenOrDefault(int depStationId, int arrStationId, int defaultMinutes) {
+        int interval = arrivingAt(arrStationId);
+        for (int id = PackedRange.startInclusive(interval); id < PackedRange.endExclusive(interval); id++) {
+            if (depStationId(id) == depStationId) return minutes(id);
+        }
+        return defaultMinutes;
+    }
+
+    /**
+     * Fonction qui écrit, dans le tableau donné et indexé par les gares de départ, la durée
+     * en minutes de chacun des changements arrivant à la gare d'index donné.
+     * Les cases des gares depuis lesquelles aucun changement n'arrive ne sont pas modifiées,
+     * le coût est donc proportionnel au nombre de changements arrivant à cette gare.
+     * @param arrStationId index de la gare d'arrivée
+     * @param minutes tableau, indexé par les gares de départ, à remplir
+     * @throws IndexOutOfBoundsException Erreur si l'index est invalide ou si le tableau est trop petit
+     */
+    default void fillMinutesTo(int arrStationId, int[] minutes) {
+        int interval = arrivingAt(arrStationId);
+        for (int id = PackedRange.startInclusive(interval); id < PackedRange.endExclusive(interval); id++) {
+            minutes[depStationId(id)] = minutes(id);
+        }
+    }
+
 }
@@ -0,0 +1,26 @@
+package ch.epfl.rechor.timetable;
+
+import ch.epfl.rechor.Preconditions;
+import ch.epfl.rechor.journey.PackedCriteria;
+
+/**
+ * Enregistrement qui représente le retard d'une course, annoncé en temps réel : toutes les liaisons
+ * de la course à partir de la position donnée partent et arrivent le nombre de minutes donné plus tard
+ * @param tripId l'identifiant de la course
+ * @param fromTripPos position dans la course de la première liaison retardée
+ * @param minutes retard en minutes, au plus égal à la durée de la plage des heures représentables
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public record TripDelay(int tripId, int fromTripPos, int minutes) {
+
+    /**
+     * Constructeur compact qui valide les arguments
+     * @throws IllegalArgumentException si l'un des arguments est négatif, ou si le retard est plus long
+     * que la plage des heures représentables
+     */
+    public TripDelay {
+        Preconditions.checkArgument(tripId >= 0 && fromTripPos >= 0 && minutes >= 0);
+        Preconditions.checkArgument(minutes <= PackedCriteria.MAX_MINS - PackedCriteria.MIN_MINS);
+    }
+}
@@ -4,6 +4,7 @@ import ch.epfl.rechor.PackedRange;
 import ch.epfl.rechor.timetable.Transfers;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 
 /**
@@ -31,6 +32,15 @@ public final class BufferedTransfers implements Transfers {
     // Id max de la gare donné dans le buffer
     private int maxStationId;
 
+    // Index des changements : pour chaque gare d'arrivée, les gares de départ de ses changements
+    // triées par ordre croissant (aux mêmes positions que dans le buffer), et les durées correspondantes.
+    // Permet une recherche dichotomique sans exception ni lecture dans le buffer.
+    private final char[] sortedDepStationIds;
+    private final byte[] sortedMinutes;
+
+    // Valeur retournée en interne lorsqu'aucun changement n'existe entre deux gares
+    private static final int NO_TRANSFER = -1;
+
     /**
      * Constructeur qui construit une instance donnant accès
      * aux données aplaties disponibles dans le tableau buffer.
@@ -104,6 +114,27 @@ public final class BufferedTransfers implements Transfers {
 
         }
 
+        // --------3) Construction de l'index trié par gare de départ ----------
+
+        int size = transferStructuredBuffer.size();
+        // Chaque changement est empaqueté avec sa gare de départ dans les bits de poids fort,
+        // ce qui permet de trier chaque intervalle de gare d'arrivée avec un seul tableau
+        long[] packedTransfers = new long[size];
+        for (int i = 0; i < size; i++) {
+            packedTransfers[i] = (long) transferStructuredBuffer.getU16(DEP_STATION_ID, i) << 32
+                    | transferStructuredBuffer.getU8(TRANSFER_MINUTES, i);
+        }
+        for (int interval : stationIdTransferInterval) {
+            Arrays.sort(packedTransfers, PackedRange.startInclusive(interval), PackedRange.endExclusive(interval));
+        }
+
+        this.sortedDepStationIds = new char[size];
+        this.sortedMinutes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            sortedDepStationIds[i] = (char) (packedTransfers[i] >>> 32);
+            sortedMinutes[i] = (byte) packedTransfers[i];
+        }
+
     }
 
 
@@ -163,6 +194,30 @@ public final class BufferedTransfers implements Transfers {
     @Override
     public int minutesBetween(int depStationId, int arrStationId) {
 
+        int minutes = minutesBetweenOrDefault(depStationId, arrStationId, NO_TRANSFER);
+
+        // Si aucun changement ne correspond, on lève une exception
+        if (minutes == NO_TRANSFER) {
+            throw new NoSuchElementException("Pas de changements entre " + depStationId + " et " + arrStationId);
+        }
+
+        return minutes;
+    }
+
+    /**
+     * Fonction qui retourne la durée, en minutes, du changement entre les deux gares d'index donnés,
+     * ou la valeur par défaut donnée si aucun changement n'est possible entre ces deux gares.
+     * La recherche est dichotomique dans l'intervalle des changements arrivant à la gare d'arrivée.
+     *
+     * @param depStationId id de la gare de départ
+     * @param arrStationId id de la gare d'arrivée
+     * @param defaultMinutes valeur retournée si aucun changement n'existe
+     * @return durée en minutes du changement, ou defaultMinutes s'il n'existe pas
+     * @throws IndexOutOfBoundsException Erreur si l'index est invalide
+     */
+    @Override
+    public int minutesBetweenOrDefault(int depStationId, int arrStationId, int defaultMinutes) {
+
         // Gestion des index invalides
         if (depStationId > maxStationId || arrStationId > maxStationId || depStationId < 0 || arrStationId < 0) {
             throw new IndexOutOfBoundsException("Index invalide");
@@ -171,26 +226,29 @@ public final class BufferedTransfers implements Transfers {
         // On récupère l'intervalle empaqueté des changements arrivant à la gare d'arrivée
         int packedInterval = arrivingAt(arrStationId);
 
-        int start = PackedRange.startInclusive(packedInterval);
-        int end = PackedRange.endExclusive(packedInterval);
+        // Les gares de départ de l'intervalle sont triées, on peut donc les chercher par dichotomie
+        int i = Arrays.binarySearch(sortedDepStationIds,
+                PackedRange.startInclusive(packedInterval),
+                PackedRange.endExclusive(packedInterval),
+                (char) depStationId);
 
-        if (start == end) {
-            // Cela signifie que l'intervalle est vide,
-            // il n'y a donc aucun changement possible entre ces deux gares
-            throw new NoSuchElementException("aucun changement possible entre ces deux gares");
-        }
+        return i >= 0 ? Byte.toUnsignedInt(sortedMinutes[i]) : defaultMinutes;
+    }
 
-        // On itère sur l'intervalle pour trouver le changement correspondant
-        for (int i = start; i < end; i++) {
-            if (depStationId == transferStructuredBuffer.getU16(DEP_STATION_ID, i)){
-                // Si on a trouvé le changement correspondant, on retourne sa durée
-                return transferStructuredBuffer.getU8(TRANSFER_MINUTES, i);
-            }
+    /**
+     * Fonction qui écrit, dans le tableau donné et indexé par les gares de départ, la durée
+     * en minutes de chacun des changements arrivant à la gare d'index donné.
+     *
+     * @param arrStationId index de la gare d'arrivée
+     * @param minutes tableau, indexé par les gares de départ, à remplir
+     * @throws IndexOutOfBoundsException Erreur si l'index est invalide ou si le tableau est trop petit
+     */
+    @Override
+    public void fillMinutesTo(int arrStationId, int[] minutes) {
+        int packedInterval = arrivingAt(arrStationId);
+        for (int i = PackedRange.startInclusive(packedInterval); i < PackedRange.endExclusive(packedInterval); i++) {
+            minutes[sortedDepStationIds[i]] = Byte.toUnsignedInt(sortedMinutes[i]);
         }
-
-        // Si on arrive jusqu'à là, c'est qu'aucun changement ne correspond, on retourne une exception
-        throw new NoSuchElementException("Pas de changements entre " + depStationId + " et " + arrStationId);
-
     }
 
     /**
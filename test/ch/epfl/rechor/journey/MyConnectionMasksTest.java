@@ -0,0 +1,152 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyConnectionMasksTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 18);
+    private static final int STATIONS_COUNT = 6;
+
+    // Liaisons : arrêt de départ, heure de départ, arrêt d'arrivée, heure d'arrivée, course, position dans
+    // la course et liaison suivante ; seuls les arrêts et les courses importent, les arrêts sont les gares
+    private static final int[][] CONNECTIONS = {
+            {0, 0, 1, 0, 0, 0, 0}, {1, 0, 2, 0, 0, 0, 1}, {2, 0, 3, 0, 1, 0, 2},
+            {3, 0, 4, 0, 2, 0, 3}, {4, 0, 5, 0, 2, 0, 4}, {5, 0, 0, 0, 1, 0, 5}
+    };
+
+    // Ligne de chaque course, et véhicule de chaque ligne
+    private static final int[] TRIP_ROUTES = {0, 1, 2};
+    private static final Vehicle[] ROUTE_VEHICLES = {Vehicle.BUS, Vehicle.TRAIN, Vehicle.BUS};
+
+    private static TimeTable timeTable() {
+        return new InMemoryTimeTable.Builder(STATIONS_COUNT)
+                .routes(ROUTE_VEHICLES)
+                .trips(TRIP_ROUTES)
+                .connections(CONNECTIONS)
+                .build();
+    }
+
+    // Réseau routé vers la gare 3, au même format, dont chaque gare n'a de changement que vers elle-même :
+    // la course 0 (bus) va de 0 à 3 via 1, la course 1 (train) de 0 à 3 via 2, la course 2 (bus) de 1 à 3
+    private static final int[][] ROUTED_CONNECTIONS = {
+            {2, 617, 3, 630, 1, 1, 3},
+            {1, 615, 3, 640, 2, 0, 1},
+            {1, 612, 3, 620, 0, 1, 4},
+            {0, 605, 2, 615, 1, 0, 0},
+            {0, 600, 1, 610, 0, 0, 2}
+    };
+    private static final int ROUTED_ARR_STATION_ID = 3;
+
+    private static TimeTable routedTimeTable() {
+        return new InMemoryTimeTable.Builder(4)
+                .transfersWithinStations(2)
+                .routes(ROUTE_VEHICLES)
+                .trips(TRIP_ROUTES)
+                .connections(ROUTED_CONNECTIONS)
+                .build();
+    }
+
+    // Heure d'arrivée et nombre de changements des voyages optimaux depuis la gare donnée
+    private static Set<List<Integer>> journeys(Profile profile, int stationId) {
+        Set<List<Integer>> journeys = new HashSet<>();
+        profile.forStation(stationId).forEach(criteria ->
+                journeys.add(List.of(PackedCriteria.arrMins(criteria), PackedCriteria.changes(criteria))));
+        return journeys;
+    }
+
+    @Test
+    void emptyFilterExcludesNoConnection() {
+        ConnectionFilter filter = new ConnectionMasks(timeTable(), DATE).filter(Set.of(), Set.of());
+
+        assertEquals(DATE, filter.date());
+        assertEquals(0, filter.excludedCount());
+        for (int id = 0; id < CONNECTIONS.length; id++) assertFalse(filter.excludes(id));
+    }
+
+    @Test
+    void filterExcludesConnectionsOfExcludedVehicles() {
+        ConnectionFilter filter = new ConnectionMasks(timeTable(), DATE).filter(Set.of(Vehicle.BUS), Set.of());
+
+        boolean[] expected = {true, true, false, true, true, false};
+        for (int id = 0; id < CONNECTIONS.length; id++) assertEquals(expected[id], filter.excludes(id));
+        assertEquals(4, filter.excludedCount());
+    }
+
+    @Test
+    void filterExcludesConnectionsServingClosedStations() {
+        ConnectionMasks masks = new ConnectionMasks(timeTable(), DATE);
+        ConnectionFilter filter = masks.filter(Set.of(Vehicle.TRAIN), Set.of(1));
+
+        boolean[] expected = {true, true, true, false, false, true};
+        for (int id = 0; id < CONNECTIONS.length; id++) assertEquals(expected[id], filter.excludes(id));
+        assertThrows(IndexOutOfBoundsException.class, () -> masks.filter(Set.of(), Set.of(STATIONS_COUNT)));
+    }
+
+    @Test
+    void filterExcludesConnectionsOfExcludedRoutes() {
+        ConnectionMasks masks = new ConnectionMasks(timeTable(), DATE);
+        ConnectionFilter filter = masks.filter(Set.of(), Set.of(), Set.of(2));
+
+        boolean[] expected = {false, false, false, true, true, false};
+        for (int id = 0; id < CONNECTIONS.length; id++) assertEquals(expected[id], filter.excludes(id));
+        assertEquals(4, masks.filter(Set.of(Vehicle.TRAIN), Set.of(), Set.of(0)).excludedCount());
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> masks.filter(Set.of(), Set.of(), Set.of(ROUTE_VEHICLES.length)));
+    }
+
+    @Test
+    void filteredProfileAvoidsExcludedVehiclesRoutesAndStations() {
+        TimeTable timeTable = routedTimeTable();
+        ConnectionMasks masks = new ConnectionMasks(timeTable, DATE);
+        Router router = new Router(timeTable);
+
+        Profile unfiltered = router.profile(DATE, ROUTED_ARR_STATION_ID);
+        assertEquals(Set.of(List.of(622, 0), List.of(632, 0)), journeys(unfiltered, 0));
+        assertEquals(Set.of(List.of(622, 0), List.of(642, 0)), journeys(unfiltered, 1));
+
+        // Sans bus, les courses 0 et 2 ne sont plus empruntées
+        Profile withoutBus = router.profile(DATE, ROUTED_ARR_STATION_ID, masks.filter(Set.of(Vehicle.BUS), Set.of()));
+        assertEquals(Set.of(List.of(632, 0)), journeys(withoutBus, 0));
+        assertEquals(Set.of(), journeys(withoutBus, 1));
+
+        // La gare 2 fermée, la course 1 ne la traverse plus
+        Profile withoutStation = router.profile(DATE, ROUTED_ARR_STATION_ID, masks.filter(Set.of(), Set.of(2)));
+        assertEquals(Set.of(List.of(622, 0)), journeys(withoutStation, 0));
+
+        // Sans la ligne 2, seule la course 0 part encore de la gare 1
+        Profile withoutRoute =
+                router.profile(DATE, ROUTED_ARR_STATION_ID, masks.filter(Set.of(), Set.of(), Set.of(2)));
+        assertEquals(Set.of(List.of(622, 0), List.of(632, 0)), journeys(withoutRoute, 0));
+        assertEquals(Set.of(List.of(622, 0)), journeys(withoutRoute, 1));
+    }
+
+    @Test
+    void tripIsNotRiddenThroughExcludedConnection() {
+        TimeTable timeTable = routedTimeTable();
+        Router router = new Router(timeTable);
+
+        // Seule la liaison de 1 à 3 de la course 0 est exclue, sa première liaison ne mène donc plus à 3,
+        // même en restant dans le véhicule ; le changement vers la course 2 est dominé par la course 1
+        ConnectionFilter filter = new ConnectionFilter(DATE, new long[]{1L << 2});
+        Profile profile = router.profile(DATE, ROUTED_ARR_STATION_ID, filter);
+
+        assertEquals(Set.of(List.of(632, 0)), journeys(profile, 0));
+        assertEquals(Set.of(List.of(642, 0)), journeys(profile, 1));
+    }
+
+    @Test
+    void routerRejectsFilterOfOtherDay() {
+        ConnectionFilter filter = new ConnectionMasks(timeTable(), DATE).filter(Set.of(), Set.of());
+        Router router = new Router(timeTable());
+
+        assertThrows(IllegalArgumentException.class, () -> router.profile(DATE.plusDays(1), 0, filter));
+    }
+}
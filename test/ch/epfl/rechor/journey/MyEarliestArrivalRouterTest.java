@@ -0,0 +1,76 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.CachedTimeTable;
+import ch.epfl.rechor.timetable.Stations;
+import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.mapped.FileTimeTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyEarliestArrivalRouterTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, Month.APRIL, 1);
+
+    private static int minutesOf(LocalDateTime dateTime) {
+        return (int) Duration.between(DATE.atStartOfDay(), dateTime).toMinutes();
+    }
+
+    @Test
+    void earliestArrivalMatchesProfileArrival() throws IOException {
+        TimeTable timeTable = new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        int depStationId = MyRouterTest.stationId(stations, "Ecublens VD, EPFL");
+        int arrStationId = MyRouterTest.stationId(stations, "Gruyères");
+        int selfTransferMinutes = timeTable.transfers().minutesBetween(arrStationId, arrStationId);
+
+        Profile profile = new Router(timeTable).profile(DATE, arrStationId);
+        EarliestArrivalRouter router = new EarliestArrivalRouter(timeTable);
+
+        for (int depMins = 5 * 60; depMins <= 22 * 60; depMins += 37) {
+            int minDepMins = depMins;
+            int[] profileArrMins = {Integer.MAX_VALUE};
+            profile.forStation(depStationId).forEach(t -> {
+                if (PackedCriteria.depMins(t) >= minDepMins)
+                    profileArrMins[0] = Math.min(profileArrMins[0], PackedCriteria.arrMins(t));
+            });
+
+            Journey journey = router.journey(DATE, depStationId, depMins, arrStationId);
+            if (profileArrMins[0] == Integer.MAX_VALUE) {
+                assertNull(journey);
+                continue;
+            }
+
+            // L'heure d'arrivée des critères inclut le changement final lorsque le dernier véhicule
+            // arrive directement à la gare d'arrivée
+            assertNotNull(journey);
+            int arrMins = minutesOf(journey.arrTime());
+            if (journey.legs().getLast() instanceof Journey.Leg.Transport) arrMins += selfTransferMinutes;
+
+            assertTrue(minutesOf(journey.depTime()) >= depMins);
+            assertEquals(arrMins, profileArrMins[0]);
+            assertEquals(stations.name(depStationId), journey.depStop().name());
+            assertEquals(stations.name(arrStationId), journey.arrStop().name());
+        }
+    }
+
+    @Test
+    void noJourneyIsFoundAfterLastConnection() throws IOException {
+        TimeTable timeTable = new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        int depStationId = MyRouterTest.stationId(stations, "Ecublens VD, EPFL");
+        int arrStationId = MyRouterTest.stationId(stations, "Gruyères");
+        EarliestArrivalRouter router = new EarliestArrivalRouter(timeTable);
+
+        assertNull(router.journey(DATE, depStationId, 2 * 24 * 60, arrStationId));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> router.journey(DATE, stations.size(), 8 * 60, arrStationId));
+    }
+}
@@ -0,0 +1,79 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.CachedTimeTable;
+import ch.epfl.rechor.timetable.Stations;
+import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.mapped.FileTimeTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyForwardRouterTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, Month.APRIL, 1);
+
+    private static int minutesOf(LocalDateTime dateTime) {
+        return (int) Duration.between(DATE.atStartOfDay(), dateTime).toMinutes();
+    }
+
+    @Test
+    void forwardProfileGivesEarliestArrivals() throws IOException {
+        TimeTable timeTable = new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        int depStationId = MyRouterTest.stationId(stations, "Ecublens VD, EPFL");
+        ForwardProfile profile = new ForwardRouter(timeTable).profile(DATE, depStationId);
+        EarliestArrivalRouter router = new EarliestArrivalRouter(timeTable);
+
+        for (String arrStationName : List.of("Gruyères", "Lausanne", "Renens VD")) {
+            int arrStationId = MyRouterTest.stationId(stations, arrStationName);
+            int selfTransferMinutes = timeTable.transfers().minutesBetween(arrStationId, arrStationId);
+
+            for (int depMins = 5 * 60; depMins <= 22 * 60; depMins += 53) {
+                int minDepMins = depMins;
+                int[] profileArrMins = {Integer.MAX_VALUE};
+                profile.forStation(arrStationId).forEach(t -> {
+                    if (PackedCriteria.depMins(t) >= minDepMins)
+                        profileArrMins[0] = Math.min(profileArrMins[0], PackedCriteria.arrMins(t));
+                });
+
+                Journey journey = router.journey(DATE, depStationId, depMins, arrStationId);
+                if (journey == null) {
+                    assertEquals(Integer.MAX_VALUE, profileArrMins[0]);
+                    continue;
+                }
+                int arrMins = minutesOf(journey.arrTime());
+                if (journey.legs().getLast() instanceof Journey.Leg.Transport) arrMins += selfTransferMinutes;
+                assertEquals(arrMins, profileArrMins[0]);
+            }
+        }
+    }
+
+    @Test
+    void extractedJourneysMatchFrontOfArrivalStation() throws IOException {
+        TimeTable timeTable = new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        int depStationId = MyRouterTest.stationId(stations, "Ecublens VD, EPFL");
+        int arrStationId = MyRouterTest.stationId(stations, "Gruyères");
+        ForwardProfile profile = new ForwardRouter(timeTable).profile(DATE, depStationId);
+
+        List<Journey> journeys = ForwardJourneyExtractor.journeys(profile, arrStationId);
+
+        assertEquals(profile.forStation(arrStationId).size(), journeys.size());
+        for (int i = 0; i < journeys.size(); i++) {
+            Journey journey = journeys.get(i);
+            assertEquals(stations.name(depStationId), journey.depStop().name());
+            assertEquals(stations.name(arrStationId), journey.arrStop().name());
+            if (i > 0) assertFalse(journey.depTime().isBefore(journeys.get(i - 1).depTime()));
+        }
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> new ForwardRouter(timeTable).profile(DATE, stations.size()));
+    }
+}
@@ -1,6 +1,9 @@
 package ch.epfl.rechor.journey;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MyPackedCriteriaTest {
@@ -299,4 +302,46 @@ public class MyPackedCriteriaTest {
             PackedCriteria.dominatesOrIsEqual(criteriaWithoutDepTime, criteriaWithDepTime);
         });
     }
+
+    private static long randomCriteria(Random rng, boolean withDepMins) {
+        // Valeurs extrêmes incluses, afin de tester les bits de garde
+        int arrMins = rng.nextBoolean() ? -240 + rng.nextInt(3120) : (rng.nextBoolean() ? -240 : 2879);
+        int changes = rng.nextBoolean() ? rng.nextInt(128) : (rng.nextBoolean() ? 0 : 127);
+        long criteria = PackedCriteria.pack(arrMins, changes, rng.nextInt());
+        if (!withDepMins) return criteria;
+        int depMins = rng.nextBoolean() ? -240 + rng.nextInt(3120) : (rng.nextBoolean() ? -240 : 2879);
+        return PackedCriteria.withDepMins(criteria, depMins);
+    }
+
+    @Test
+    void branchFreeDominanceMatchesScalarDominance() {
+        Random rng = new Random(108);
+        for (int i = 0; i < 200_000; i++) {
+            boolean withDepMins = rng.nextBoolean();
+            long c1 = randomCriteria(rng, withDepMins);
+            // Critères proches, pour que l'égalité de certains champs soit fréquente
+            long c2 = rng.nextInt(4) == 0 ? c1 ^ (1L << (32 + rng.nextInt(31))) : randomCriteria(rng, withDepMins);
+            if (PackedCriteria.hasDepMins(c1) != PackedCriteria.hasDepMins(c2)) continue;
+
+            boolean expected = PackedCriteria.dominatesOrIsEqualScalar(c1, c2);
+            assertEquals(expected, PackedCriteria.dominatesOrIsEqualBranchFree(c1, c2));
+            assertEquals(expected, PackedCriteria.dominatesOrIsEqual(c1, c2));
+        }
+    }
+
+    @Test
+    void indexOfDominatingOrEqualFindsFirstDominatingCriteria() {
+        long[] criteria = {
+                PackedCriteria.withDepMins(PackedCriteria.pack(500, 3, 1), 480),
+                PackedCriteria.withDepMins(PackedCriteria.pack(490, 2, 2), 470),
+                PackedCriteria.withDepMins(PackedCriteria.pack(495, 1, 3), 460),
+                PackedCriteria.withDepMins(PackedCriteria.pack(490, 2, 4), 465),
+        };
+        long target = PackedCriteria.withDepMins(PackedCriteria.pack(495, 2, 9), 465);
+
+        assertEquals(1, PackedCriteria.indexOfDominatingOrEqual(criteria, 0, 4, target));
+        assertEquals(3, PackedCriteria.indexOfDominatingOrEqual(criteria, 2, 4, target));
+        assertEquals(-1, PackedCriteria.indexOfDominatingOrEqual(criteria, 2, 3, target));
+        assertEquals(-1, PackedCriteria.indexOfDominatingOrEqual(criteria, 0, 0, target));
     }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -699,4 +700,152 @@ class MyParetoFrontTest {
 
     }
 
+    @Test
+    void clearedBuilderCanBeReusedAndCopied() {
+        ParetoFront.Builder builder = new ParetoFront.Builder();
+        for (int i = 0; i < 10; i++) {
+            builder.add(PackedCriteria.pack(480 + i, 10 - i, i));
+        }
+
+        // Après clear, le bâtisseur doit se comporter comme un bâtisseur neuf
+        builder.clear();
+        assertTrue(builder.isEmpty());
+        builder.add(PackedCriteria.pack(500, 2, 0));
+        assertEquals("500|2  ", builder.toString());
+
+        // La copie ne doit contenir que les tuples présents et être indépendante
+        ParetoFront.Builder copy = new ParetoFront.Builder(builder);
+        builder.clear();
+        ParetoFront front = copy.build();
+        assertEquals(1, front.size());
+        assertEquals(PackedCriteria.pack(500, 2, 0), front.get(500, 2));
+    }
+
+    private static long randomTuple(Random rng) {
+        long t = PackedCriteria.pack(480 + rng.nextInt(40), rng.nextInt(6), rng.nextInt(1000));
+        return PackedCriteria.withDepMins(t, 400 + rng.nextInt(40));
+    }
+
+    private static List<Long> tuples(ParetoFront.Builder builder) {
+        List<Long> list = new ArrayList<>();
+        builder.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    void builderKeepsExactlyTheNonDominatedTuples() {
+        Random rng = new Random(2025);
+        for (int round = 0; round < 200; round++) {
+            ParetoFront.Builder builder = new ParetoFront.Builder();
+            List<Long> added = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                long t = randomTuple(rng);
+                added.add(t);
+                builder.add(t);
+            }
+
+            List<Long> front = tuples(builder);
+            for (int i = 0; i < front.size(); i++) {
+                // Les tuples sont triés et aucun ne domine un autre
+                if (i > 0) assertTrue((front.get(i - 1) >>> 32) < (front.get(i) >>> 32));
+                for (int j = 0; j < front.size(); j++) {
+                    if (i != j) assertFalse(PackedCriteria.dominatesOrIsEqual(front.get(i), front.get(j)));
+                }
+            }
+            // Chaque tuple ajouté est dominé par (ou égal à) un tuple de la frontière
+            for (long t : added) {
+                assertTrue(front.stream().anyMatch(f -> PackedCriteria.dominatesOrIsEqual(f, t)));
+            }
+        }
+    }
+
+    @Test
+    void addAllMatchesAddingTuplesOneByOne() {
+        Random rng = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            ParetoFront.Builder b1 = new ParetoFront.Builder();
+            ParetoFront.Builder b2 = new ParetoFront.Builder();
+            for (int i = 0; i < 15; i++) b1.add(randomTuple(rng));
+            for (int i = 0; i < 15; i++) b2.add(randomTuple(rng));
+
+            ParetoFront.Builder expected = new ParetoFront.Builder(b1);
+            b2.forEach(expected::add);
+
+            assertEquals(tuples(expected), tuples(b1.addAll(b2)));
+        }
+    }
+
+    @Test
+    void fullyDominatesMatchesPairwiseComparison() {
+        Random rng = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            ParetoFront.Builder stationFront = new ParetoFront.Builder();
+            ParetoFront.Builder tripFront = new ParetoFront.Builder();
+            for (int i = 0; i < 10; i++) stationFront.add(randomTuple(rng));
+            for (int i = 0; i < 1 + rng.nextInt(3); i++)
+                tripFront.add(PackedCriteria.pack(490 + rng.nextInt(40), rng.nextInt(6), 0));
+            int depMins = 400 + rng.nextInt(40);
+
+            boolean expected = tuples(tripFront).stream().allMatch(t -> tuples(stationFront).stream()
+                    .anyMatch(s -> PackedCriteria.dominatesOrIsEqual(s, PackedCriteria.withDepMins(t, depMins))));
+            assertEquals(expected, stationFront.fullyDominates(tripFront, depMins));
+        }
+    }
+
+    @Test
+    void releasedArenaKeepsOnlySmallSlab() {
+        FrontArena arena = new FrontArena();
+        arena.allocate(FrontArena.blockSize(1000));
+        long[] smallSlab = arena.slab();
+        arena.release();
+        assertSame(smallSlab, arena.slab());
+        assertEquals(0, arena.liveSize());
+
+        // Un tableau de plus de 2 Mio n'est pas conservé une fois la zone libérée
+        arena.allocate(FrontArena.blockSize(1 << 19));
+        assertTrue(arena.slab().length >= 1 << 19);
+        arena.release();
+        assertTrue(arena.slab().length * Long.BYTES <= 2 << 20);
+        assertEquals(0, arena.allocate(FrontArena.blockSize(10)));
+    }
+
+    @Test
+    void arenaBuildersBehaveLikeHeapBuilders() {
+        Random rng = new Random(9);
+        FrontArena arena = new FrontArena();
+        for (int round = 0; round < 20; round++) {
+            arena.reset();
+            int n = 50;
+            ParetoFront.Builder[] heap = new ParetoFront.Builder[n];
+            ParetoFront.Builder[] inArena = new ParetoFront.Builder[n];
+            for (int b = 0; b < n; b++) {
+                heap[b] = new ParetoFront.Builder();
+                inArena[b] = new ParetoFront.Builder(arena);
+            }
+
+            // Les ajouts sont entrelacés, afin que les blocs soient agrandis ailleurs qu'en fin de zone
+            for (int i = 0; i < 3000; i++) {
+                int b = rng.nextInt(n);
+                if (rng.nextInt(50) == 0) {
+                    int other = rng.nextInt(n);
+                    heap[b].addAll(heap[other]);
+                    inArena[b].addAll(inArena[other]);
+                } else if (rng.nextInt(200) == 0) {
+                    heap[b] = new ParetoFront.Builder(heap[b]);
+                    inArena[b] = new ParetoFront.Builder(inArena[b], arena);
+                } else {
+                    long t = randomTuple(rng);
+                    heap[b].add(t);
+                    inArena[b].add(t);
+                }
+            }
+
+            for (int b = 0; b < n; b++) {
+                assertEquals(tuples(heap[b]), tuples(inArena[b]));
+                assertEquals(heap[b].toString(), inArena[b].toString());
+                assertEquals(tuples(heap[b]), tuples(new ParetoFront.Builder(inArena[b])));
+                assertTrue(inArena[b].fullyDominates(new ParetoFront.Builder(), 400));
+            }
+        }
+    }
 }
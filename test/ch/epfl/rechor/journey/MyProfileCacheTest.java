@@ -0,0 +1,184 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyProfileCacheTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 18);
+    private static final int STATIONS_COUNT = 100;
+
+    // Horaire sans aucune liaison, qui compte le nombre de profils calculés et dont le calcul peut être retenu
+    private static TimeTable countingTimeTable(AtomicInteger computedProfiles, CountDownLatch release) {
+        return new InMemoryTimeTable.Builder(STATIONS_COUNT)
+                .connectionsFor(date -> {
+                    computedProfiles.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return InMemoryTimeTable.connections(new int[0][]);
+                })
+                .build();
+    }
+
+    // Horaire d'une seule liaison, dont la lecture attend, sans pouvoir être interrompue, l'ouverture du loquet
+    private static TimeTable oneConnectionTimeTable(AtomicInteger computedProfiles, CountDownLatch release) {
+        return new InMemoryTimeTable.Builder(STATIONS_COUNT)
+                .routes(Vehicle.BUS)
+                .trips(0)
+                .transfersWithinStations(0)
+                .connectionsFor(date -> {
+                    computedProfiles.incrementAndGet();
+                    while (release.getCount() > 0) Thread.onSpinWait();
+                    return InMemoryTimeTable.connections(new int[][] {{0, 8 * 60, 1, 8 * 60 + 10, 0, 0, 0}});
+                })
+                .build();
+    }
+
+    private static long profileSize(Router router) {
+        return router.profile(DATE, 0).sizeInBytes();
+    }
+
+    @Test
+    void cachedProfilesAreReturnedAndCounted() {
+        AtomicInteger computedProfiles = new AtomicInteger();
+        TimeTable timeTable = countingTimeTable(computedProfiles, new CountDownLatch(0));
+        ProfileCache cache = new ProfileCache(new Router(timeTable), Long.MAX_VALUE);
+
+        Profile profile = cache.profile(DATE, 3);
+        assertSame(profile, cache.profile(DATE, 3));
+        assertSame(profile, cache.profileIfPresent(DATE, 3));
+        assertNull(cache.profileIfPresent(DATE.plusDays(1), 3));
+        assertEquals(1, computedProfiles.get());
+
+        ProfileCache.Statistics statistics = cache.statistics();
+        assertEquals(1, statistics.hits());
+        assertEquals(1, statistics.misses());
+        assertEquals(0, statistics.evictions());
+        assertEquals(1, statistics.entries());
+        assertEquals(profile.sizeInBytes(), statistics.sizeInBytes());
+    }
+
+    @Test
+    void leastRecentlyUsedProfilesAreEvictedWhenBudgetIsExceeded() {
+        AtomicInteger computedProfiles = new AtomicInteger();
+        TimeTable timeTable = countingTimeTable(computedProfiles, new CountDownLatch(0));
+        Router router = new Router(timeTable);
+        ProfileCache cache = new ProfileCache(router, 2 * profileSize(router));
+
+        cache.profile(DATE, 1);
+        cache.profile(DATE, 2);
+        cache.profile(DATE, 1);
+        cache.profile(DATE, 3);
+
+        // La gare 2 est la moins récemment utilisée
+        assertNotNull(cache.profileIfPresent(DATE, 1));
+        assertNull(cache.profileIfPresent(DATE, 2));
+        assertNotNull(cache.profileIfPresent(DATE, 3));
+
+        ProfileCache.Statistics statistics = cache.statistics();
+        assertEquals(1, statistics.evictions());
+        assertEquals(2, statistics.entries());
+        assertTrue(statistics.sizeInBytes() <= 2 * profileSize(router));
+    }
+
+    @Test
+    void profilesLargerThanBudgetAreNotKept() {
+        AtomicInteger computedProfiles = new AtomicInteger();
+        TimeTable timeTable = countingTimeTable(computedProfiles, new CountDownLatch(0));
+        ProfileCache cache = new ProfileCache(new Router(timeTable), 10);
+
+        assertNotNull(cache.profile(DATE, 1));
+        assertNull(cache.profileIfPresent(DATE, 1));
+        assertEquals(0, cache.statistics().entries());
+        assertEquals(0, cache.statistics().sizeInBytes());
+        assertThrows(IllegalArgumentException.class, () -> new ProfileCache(new Router(timeTable), -1));
+    }
+
+    @Test
+    void concurrentRequestsComputeProfileOnce() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computedProfiles = new AtomicInteger();
+        TimeTable timeTable = countingTimeTable(computedProfiles, release);
+        ProfileCache cache = new ProfileCache(new Router(timeTable), Long.MAX_VALUE);
+
+        Profile[] profiles = new Profile[2];
+        Thread first = new Thread(() -> profiles[0] = cache.profile(DATE, 5));
+        Thread second = new Thread(() -> profiles[1] = cache.profile(DATE, 5));
+        first.start();
+        second.start();
+
+        // On laisse le calcul se terminer une fois que les deux threads ont demandé le profil
+        while (cache.statistics().misses() < 2) Thread.onSpinWait();
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, computedProfiles.get());
+        assertNotNull(profiles[0]);
+        assertSame(profiles[0], profiles[1]);
+    }
+
+    @Test
+    void interruptedComputationIsCancelledAndNotKeptAsPending() {
+        AtomicInteger computedProfiles = new AtomicInteger();
+        TimeTable timeTable = oneConnectionTimeTable(computedProfiles, new CountDownLatch(0));
+        ProfileCache cache = new ProfileCache(new Router(timeTable), Long.MAX_VALUE);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> cache.profile(DATE, 1));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+        assertNull(cache.profileIfPresent(DATE, 1));
+
+        // Le calcul annulé n'est plus en cours, le profil est donc calculé à nouveau
+        Profile profile = cache.profile(DATE, 1);
+        assertEquals(1, profile.forStation(0).size());
+        assertEquals(2, computedProfiles.get());
+    }
+
+    @Test
+    void waitingRequestComputesProfileWhenAwaitedComputationIsCancelled() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computedProfiles = new AtomicInteger();
+        TimeTable timeTable = oneConnectionTimeTable(computedProfiles, release);
+        ProfileCache cache = new ProfileCache(new Router(timeTable), Long.MAX_VALUE);
+
+        RuntimeException[] firstException = new RuntimeException[1];
+        Profile[] secondProfile = new Profile[1];
+        Thread first = new Thread(() -> {
+            try {
+                cache.profile(DATE, 1);
+            } catch (RuntimeException e) {
+                firstException[0] = e;
+            }
+        });
+        first.start();
+        while (computedProfiles.get() < 1) Thread.onSpinWait();
+        Thread second = new Thread(() -> secondProfile[0] = cache.profile(DATE, 1));
+        second.start();
+
+        // La requête du premier thread est annulée pendant que le second attend son résultat
+        while (cache.statistics().misses() < 2) Thread.onSpinWait();
+        first.interrupt();
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertInstanceOf(CancellationException.class, firstException[0]);
+        assertNotNull(secondProfile[0]);
+        assertSame(secondProfile[0], cache.profileIfPresent(DATE, 1));
+        assertEquals(2, computedProfiles.get());
+    }
+}
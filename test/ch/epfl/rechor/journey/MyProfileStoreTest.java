@@ -0,0 +1,178 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyProfileStoreTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 18);
+    private static final int STATIONS_COUNT = 5;
+
+    @TempDir
+    Path tempDir;
+
+    private static TimeTable timeTableWith(int stationsCount) {
+        return new InMemoryTimeTable.Builder(stationsCount).build();
+    }
+
+    private static Profile sampleProfile(TimeTable timeTable) {
+        Profile.Builder builder = new Profile.Builder(timeTable, DATE, 2);
+        builder.setForStation(0, new ParetoFront.Builder()
+                .add(PackedCriteria.withDepMins(PackedCriteria.pack(500, 1, 11), 450))
+                .add(PackedCriteria.withDepMins(PackedCriteria.pack(490, 2, 12), 440)));
+        builder.setForStation(3, new ParetoFront.Builder()
+                .add(PackedCriteria.withDepMins(PackedCriteria.pack(600, 0, 31), 590)));
+        return builder.build();
+    }
+
+    private static List<Long> tuplesOf(ParetoFront front) {
+        List<Long> tuples = new ArrayList<>();
+        front.forEach(tuples::add);
+        return tuples;
+    }
+
+    private Path timeTableDirectory() throws IOException {
+        Path directory = Files.createDirectories(tempDir.resolve("timetable"));
+        Files.write(directory.resolve("stations.bin"), new byte[]{1, 2, 3});
+        Files.createDirectories(directory.resolve(DATE.toString()));
+        Files.write(directory.resolve(DATE.toString()).resolve("connections.bin"), new byte[]{4, 5});
+        return directory;
+    }
+
+    private Path storedFile(ProfileStore store) throws IOException {
+        try (Stream<Path> files = Files.walk(store.directory())) {
+            return files.filter(f -> f.toString().endsWith(".profile")).findFirst().orElseThrow();
+        }
+    }
+
+    @Test
+    void savedProfileIsLoadedWithSameFronts() throws IOException {
+        TimeTable timeTable = timeTableWith(STATIONS_COUNT);
+        ProfileStore store = new ProfileStore(tempDir.resolve("store"), timeTableDirectory());
+        Profile profile = sampleProfile(timeTable);
+
+        assertNull(store.load(timeTable, DATE, 2));
+        store.save(profile);
+        Profile loaded = store.load(timeTable, DATE, 2);
+
+        assertNotNull(loaded);
+        assertSame(timeTable, loaded.timeTable());
+        assertEquals(DATE, loaded.date());
+        assertEquals(2, loaded.arrStationId());
+        assertEquals(STATIONS_COUNT, loaded.stationFront().size());
+        for (int i = 0; i < STATIONS_COUNT; i++) {
+            assertEquals(tuplesOf(profile.forStation(i)), tuplesOf(loaded.forStation(i)));
+        }
+        assertSame(ParetoFront.EMPTY, loaded.forStation(1));
+        assertEquals(PackedCriteria.withDepMins(PackedCriteria.pack(490, 2, 12), 440),
+                loaded.forStation(0).get(490, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> loaded.forStation(STATIONS_COUNT));
+    }
+
+    @Test
+    void profileOfOtherKeyIsNotLoaded() throws IOException {
+        TimeTable timeTable = timeTableWith(STATIONS_COUNT);
+        Path timeTableDirectory = timeTableDirectory();
+        ProfileStore store = new ProfileStore(tempDir.resolve("store"), timeTableDirectory);
+        store.save(sampleProfile(timeTable));
+
+        assertNull(store.load(timeTable, DATE, 3));
+        assertNull(store.load(timeTable, DATE.plusDays(1), 2));
+        assertNull(store.load(timeTableWith(STATIONS_COUNT + 1), DATE, 2));
+
+        // Un autre horaire partageant le même stockage ne voit pas ce profil
+        Path otherTimeTableDirectory = Files.createDirectories(tempDir.resolve("other"));
+        assertNull(new ProfileStore(tempDir.resolve("store"), otherTimeTableDirectory).load(timeTable, DATE, 2));
+    }
+
+    @Test
+    void profileIsNotLoadedWhenTimeTableFilesChange() throws IOException {
+        TimeTable timeTable = timeTableWith(STATIONS_COUNT);
+        Path timeTableDirectory = timeTableDirectory();
+        ProfileStore store = new ProfileStore(tempDir.resolve("store"), timeTableDirectory);
+        store.save(sampleProfile(timeTable));
+        assertNotNull(store.load(timeTable, DATE, 2));
+
+        Path connections = timeTableDirectory.resolve(DATE.toString()).resolve("connections.bin");
+        Files.setLastModifiedTime(connections, FileTime.fromMillis(Files.getLastModifiedTime(connections).toMillis() + 60_000));
+        assertNull(store.load(timeTable, DATE, 2));
+    }
+
+    @Test
+    void corruptedProfileIsNotLoaded() throws IOException {
+        TimeTable timeTable = timeTableWith(STATIONS_COUNT);
+        ProfileStore store = new ProfileStore(tempDir.resolve("store"), timeTableDirectory());
+        store.save(sampleProfile(timeTable));
+
+        Path file = storedFile(store);
+        byte[] bytes = Files.readAllBytes(file);
+
+        // Modification d'un tuple, qui n'est détectée que si la somme de contrôle des tuples est vérifiée
+        bytes[bytes.length - 3] ^= 1;
+        Files.write(file, bytes);
+        assertNull(store.load(timeTable, DATE, 2, true));
+        assertNotNull(store.load(timeTable, DATE, 2));
+
+        // Modification d'un index
+        bytes[bytes.length - 3] ^= 1;
+        int lastOffsetPos = bytes.length - 3 * Long.BYTES - 1;
+        bytes[lastOffsetPos] ^= 1;
+        Files.write(file, bytes);
+        assertNull(store.load(timeTable, DATE, 2));
+
+        // Fichier tronqué
+        bytes[lastOffsetPos] ^= 1;
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - Long.BYTES));
+        assertNull(store.load(timeTable, DATE, 2));
+
+        // Fichier vide
+        Files.write(file, new byte[0]);
+        assertNull(store.load(timeTable, DATE, 2));
+
+        // Un nouvel enregistrement remplace le fichier invalide
+        store.save(sampleProfile(timeTable));
+        assertNotNull(store.load(timeTable, DATE, 2));
+    }
+
+    @Test
+    void loadedProfileTuplesAreNotCountedInHeapSize() throws IOException {
+        TimeTable timeTable = timeTableWith(STATIONS_COUNT);
+        ProfileStore store = new ProfileStore(tempDir.resolve("store"), timeTableDirectory());
+        Profile.Builder builder = new Profile.Builder(timeTable, DATE, 2);
+        ParetoFront.Builder front = new ParetoFront.Builder();
+        for (int i = 0; i < 1000; i++) front.add(PackedCriteria.withDepMins(PackedCriteria.pack(1500 - i, 0, i), 1400 - i));
+        builder.setForStation(0, front);
+        store.save(builder.build());
+
+        Profile loaded = store.load(timeTable, DATE, 2);
+        assertEquals(1000, loaded.forStation(0).size());
+        assertTrue(loaded.sizeInBytes() < Long.BYTES * 1000);
+    }
+
+        @Test
+    void profileCacheLoadsStoredProfilesInsteadOfComputingThem() throws IOException {
+        TimeTable timeTable = timeTableWith(STATIONS_COUNT);
+        ProfileStore store = new ProfileStore(tempDir.resolve("store"), timeTableDirectory());
+        Profile profile = sampleProfile(timeTable);
+        store.save(profile);
+
+        // Le routeur échouerait, l'horaire n'ayant pas de liaisons
+        ProfileCache cache = new ProfileCache(new Router(timeTable), Long.MAX_VALUE, store);
+        Profile cached = cache.profile(DATE, 2);
+        assertEquals(tuplesOf(profile.forStation(0)), tuplesOf(cached.forStation(0)));
+        assertSame(cached, cache.profile(DATE, 2));
+    }
+}
@@ -8,6 +8,8 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -197,5 +199,78 @@ public class MyProfileTest {
                 " min, arrStop " + arrStopId + " à " + arrMinutes + " min");
     }
 
+    private static TimeTable timeTableWith(int stationsCount, int tripsCount) {
+        return new InMemoryTimeTable.Builder(stationsCount).trips(new int[tripsCount]).build();
+    }
+
+    @Test
+    void builtProfileSharesOneCompactArrayOfFronts() {
+        Profile.Builder builder = new Profile.Builder(timeTableWith(5, 0), testDate, 0);
+
+        ParetoFront.Builder front1 = new ParetoFront.Builder()
+                .add(PackedCriteria.pack(500, 1, 11))
+                .add(PackedCriteria.pack(490, 2, 12));
+        ParetoFront.Builder front3 = new ParetoFront.Builder()
+                .add(PackedCriteria.pack(600, 0, 31));
+        builder.setForStation(1, front1);
+        builder.setForStation(3, front3);
+        builder.setForStation(4, new ParetoFront.Builder());
+
+        Profile profile = builder.build();
+
+        // Modifier les bâtisseurs après coup ne doit pas modifier le profil
+        front1.add(PackedCriteria.pack(400, 5, 0));
+
+        assertEquals(5, profile.stationFront().size());
+        assertSame(ParetoFront.EMPTY, profile.forStation(0));
+        assertSame(ParetoFront.EMPTY, profile.forStation(2));
+        assertSame(ParetoFront.EMPTY, profile.forStation(4));
+        assertEquals(2, profile.forStation(1).size());
+        assertEquals(PackedCriteria.pack(500, 1, 11), profile.forStation(1).get(500, 1));
+        assertEquals(PackedCriteria.pack(490, 2, 12), profile.forStation(1).get(490, 2));
+        assertEquals(1, profile.forStation(3).size());
+        assertEquals(PackedCriteria.pack(600, 0, 31), profile.forStation(3).get(600, 0));
+
+        List<Long> tuples = new ArrayList<>();
+        profile.forStation(3).forEach(tuples::add);
+        assertEquals(List.of(PackedCriteria.pack(600, 0, 31)), tuples);
 
+        assertThrows(IndexOutOfBoundsException.class, () -> profile.forStation(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> profile.forStation(-1));
+        assertThrows(UnsupportedOperationException.class,
+                () -> profile.stationFront().set(0, ParetoFront.EMPTY));
+    }
+
+    @Test
+    void releasedTripFrontsAreRecycledAndCounted() {
+        FrontArena arena = new FrontArena();
+        Profile.Builder builder = new Profile.Builder(timeTableWith(1, 3), testDate, 0, arena);
+
+        ParetoFront.Builder trip0 = builder.newFront().add(PackedCriteria.pack(500, 1, 0));
+        ParetoFront.Builder trip1 = builder.newFront().add(PackedCriteria.pack(510, 0, 0));
+        builder.setForTrip(0, trip0);
+        builder.setForTrip(1, trip1);
+        assertEquals(2, builder.liveTripFronts());
+        int liveSizeWithTwoTrips = arena.liveSize();
+
+        builder.releaseForTrip(0);
+        assertNull(builder.forTrip(0));
+        assertEquals(1, builder.liveTripFronts());
+        assertTrue(arena.liveSize() < liveSizeWithTwoTrips);
+
+        // Le bloc libéré est réutilisé par la frontière suivante
+        builder.setForTrip(2, builder.newFront().add(PackedCriteria.pack(520, 2, 0)));
+        assertEquals(liveSizeWithTwoTrips, arena.liveSize());
+        assertEquals(liveSizeWithTwoTrips, arena.peakLiveSize());
+        assertEquals(2, builder.liveTripFronts());
+        assertEquals(2, builder.peakLiveTripFronts());
+
+        // Les autres frontières ne sont pas affectées
+        assertEquals("510|0  ", builder.forTrip(1).toString());
+        assertEquals("520|2  ", builder.forTrip(2).toString());
+
+        // Libérer une course sans frontière ne fait rien
+        builder.releaseForTrip(0);
+        assertEquals(2, builder.liveTripFronts());
+    }
 }
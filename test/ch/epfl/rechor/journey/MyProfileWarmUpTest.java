@@ -0,0 +1,116 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyProfileWarmUpTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 18);
+    private static final int STATIONS_COUNT = 10;
+
+    // Horaire dont les liaisons arrivent aux arrêts donnés
+    private static TimeTable arrivingAt(int... arrStopIds) {
+        int[][] connections = new int[arrStopIds.length][];
+        for (int id = 0; id < arrStopIds.length; id++) connections[id] = new int[]{0, 0, arrStopIds[id], 0, 0, 0, id};
+        return new InMemoryTimeTable.Builder(STATIONS_COUNT).connections(connections).build();
+    }
+
+    // Horaire sans liaison pour le routeur, dont les calculs sont comptés et peuvent être retenus
+    private static TimeTable routedTimeTable(AtomicInteger computedProfiles, CountDownLatch release) {
+        return new InMemoryTimeTable.Builder(STATIONS_COUNT)
+                .connectionsFor(date -> {
+                    computedProfiles.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return InMemoryTimeTable.connections(new int[0][]);
+                })
+                .build();
+    }
+
+    private static void awaitWarmUp(ProfileWarmUp warmUp) throws InterruptedException {
+        while (warmUp.progress().remaining() > 0) Thread.sleep(1);
+    }
+
+    @Test
+    void busiestStationsAreRankedByArrivingConnections() {
+        TimeTable timeTable = arrivingAt(3, 5, 3, 7, 5, 3, 1);
+
+        assertEquals(List.of(3, 5), ProfileWarmUp.busiestStations(timeTable, DATE, 2));
+        assertEquals(4, ProfileWarmUp.busiestStations(timeTable, DATE, 100).size());
+        assertEquals(List.of(), ProfileWarmUp.busiestStations(timeTable, DATE, 0));
+        assertThrows(IllegalArgumentException.class, () -> ProfileWarmUp.busiestStations(timeTable, DATE, -1));
+    }
+
+    @Test
+    void scheduledProfilesAreAddedToCache() throws InterruptedException {
+        AtomicInteger computedProfiles = new AtomicInteger();
+        TimeTable routed = routedTimeTable(computedProfiles, new CountDownLatch(0));
+        ProfileCache cache = new ProfileCache(new Router(routed), Long.MAX_VALUE);
+        cache.profile(DATE, 4);
+
+        try (ProfileWarmUp warmUp = new ProfileWarmUp(cache, 2)) {
+            warmUp.schedule(DATE, List.of(1, 2, 4));
+            awaitWarmUp(warmUp);
+
+            ProfileWarmUp.Progress progress = warmUp.progress();
+            assertEquals(3, progress.scheduled());
+            assertEquals(2, progress.computed());
+            assertEquals(1, progress.alreadyCached());
+            assertEquals(0, progress.failed());
+            assertEquals(0, progress.remaining());
+        }
+        assertNotNull(cache.profileIfPresent(DATE, 1));
+        assertNotNull(cache.profileIfPresent(DATE, 2));
+        assertEquals(3, computedProfiles.get());
+        assertThrows(IllegalArgumentException.class, () -> new ProfileWarmUp(cache, 0));
+    }
+
+    @Test
+    void busiestStationsAreScheduledInBackground() throws InterruptedException {
+        TimeTable timeTable = arrivingAt(6, 6, 2);
+        TimeTable routed = routedTimeTable(new AtomicInteger(), new CountDownLatch(0));
+        ProfileCache cache = new ProfileCache(new Router(routed), Long.MAX_VALUE);
+
+        try (ProfileWarmUp warmUp = new ProfileWarmUp(cache, 1)) {
+            warmUp.scheduleBusiestStations(timeTable, DATE, 1);
+            while (warmUp.progress().scheduled() == 0 || warmUp.progress().remaining() > 0) Thread.sleep(1);
+        }
+        assertNotNull(cache.profileIfPresent(DATE, 6));
+        assertNull(cache.profileIfPresent(DATE, 2));
+    }
+
+    @Test
+    void warmUpWaitsForInteractiveRequests() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computedProfiles = new AtomicInteger();
+        ProfileCache cache = new ProfileCache(new Router(routedTimeTable(computedProfiles, release)), Long.MAX_VALUE);
+
+        Thread interactive = new Thread(() -> cache.profile(DATE, 1));
+        interactive.start();
+        while (computedProfiles.get() == 0) Thread.onSpinWait();
+
+        try (ProfileWarmUp warmUp = new ProfileWarmUp(cache, 1)) {
+            warmUp.schedule(DATE, List.of(2));
+
+            // Tant que la requête interactive est en cours, le préchargement ne commence pas
+            Thread.sleep(50);
+            assertEquals(1, computedProfiles.get());
+
+            release.countDown();
+            interactive.join();
+            awaitWarmUp(warmUp);
+            assertEquals(1, warmUp.progress().computed());
+        }
+        assertEquals(2, computedProfiles.get());
+    }
+}
@@ -0,0 +1,93 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyReachabilityFilterTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 18);
+    private static final int STATIONS_COUNT = 5;
+
+    // Seul changement de chaque gare : celui vers elle-même, de 2 minutes
+    private static final int TRANSFER_MINUTES = 2;
+
+    // Liaisons triées par heure de départ décroissante : arrêt de départ, heure de départ, arrêt d'arrivée,
+    // heure d'arrivée, course, position dans la course et liaison suivante ; les arrêts sont les gares
+    private static final int[][] CONNECTIONS = {
+            {1, 640, 2, 650, 4, 0, 0},
+            {2, 630, 4, 640, 2, 0, 1},
+            {1, 612, 2, 620, 0, 1, 4},
+            {1, 605, 2, 615, 3, 0, 3},
+            {0, 600, 1, 610, 0, 0, 2},
+            {3, 500, 1, 510, 1, 0, 5}
+    };
+    private static final int TRIPS_COUNT = 5;
+
+    private static TimeTable timeTable() {
+        return new InMemoryTimeTable.Builder(STATIONS_COUNT)
+                .transfersWithinStations(TRANSFER_MINUTES)
+                .trips(new int[TRIPS_COUNT])
+                .connections(CONNECTIONS)
+                .build();
+    }
+
+    private static List<Long> tuples(ParetoFront front) {
+        List<Long> tuples = new ArrayList<>();
+        front.forEach(tuples::add);
+        return tuples;
+    }
+
+    @Test
+    void filterExcludesConnectionsOutsideEveryJourney() {
+        ConnectionFilter filter = new ReachabilityFilter(timeTable()).filter(DATE, 0, 2);
+
+        // La course 1 n'est pas atteignable, la course 3 part trop tôt et la course 2 s'éloigne de l'arrivée
+        boolean[] expected = {false, true, false, true, false, true};
+        for (int id = 0; id < CONNECTIONS.length; id++) assertEquals(expected[id], filter.excludes(id));
+        assertEquals(DATE, filter.date());
+    }
+
+    @Test
+    void filterExcludesConnectionsOutsideWindowAndBaseFilter() {
+        TimeTable timeTable = timeTable();
+        ReachabilityFilter reachability = new ReachabilityFilter(timeTable);
+        int wordsCount = (CONNECTIONS.length + Long.SIZE - 1) / Long.SIZE;
+
+        ConnectionFilter windowed = reachability.filter(new ConnectionFilter(DATE, new long[wordsCount]), 0, 590, 2, 630);
+        boolean[] expected = {true, true, false, true, false, true};
+        for (int id = 0; id < CONNECTIONS.length; id++) assertEquals(expected[id], windowed.excludes(id));
+
+        // Sans la première liaison de la course 0, la gare d'arrivée n'est plus atteignable
+        long[] firstExcluded = new long[wordsCount];
+        firstExcluded[0] = 1L << 4;
+        assertEquals(CONNECTIONS.length,
+                reachability.filter(new ConnectionFilter(DATE, firstExcluded), 0, 0, 2, 2000).excludedCount());
+        assertEquals(1L << 4, firstExcluded[0]);
+
+        // Aucune liaison n'arrive à la gare 0, il n'existe donc aucun voyage vers elle
+        assertEquals(CONNECTIONS.length, reachability.filter(DATE, 0, 0).excludedCount());
+        assertThrows(IndexOutOfBoundsException.class, () -> reachability.filter(DATE, STATIONS_COUNT, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> reachability.filter(windowed, 0, 700, 2, 600));
+    }
+
+    @Test
+    void filteredProfileKeepsJourneysOfDepartureStation() {
+        TimeTable timeTable = timeTable();
+        Router router = new Router(timeTable);
+        ConnectionFilter filter = new ReachabilityFilter(timeTable).filter(DATE, 0, 2);
+
+        Profile expected = router.profile(DATE, 2);
+        Profile actual = router.profile(DATE, 2, 0, 2000, filter);
+
+        assertFalse(tuples(expected.forStation(0)).isEmpty());
+        assertEquals(tuples(expected.forStation(0)), tuples(actual.forStation(0)));
+        assertThrows(IllegalArgumentException.class, () -> router.profile(DATE, 2, 700, 600, filter));
+    }
+}
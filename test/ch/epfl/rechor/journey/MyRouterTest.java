@@ -1,8 +1,12 @@
 package ch.epfl.rechor.journey;
 
 import ch.epfl.rechor.timetable.CachedTimeTable;
+import ch.epfl.rechor.timetable.Connections;
+import ch.epfl.rechor.timetable.DelayedTimeTable;
+import ch.epfl.rechor.timetable.InMemoryTimeTable;
 import ch.epfl.rechor.timetable.Stations;
 import ch.epfl.rechor.timetable.TimeTable;
+import ch.epfl.rechor.timetable.TripDelay;
 import ch.epfl.rechor.timetable.mapped.FileTimeTable;
 import org.junit.jupiter.api.Test;
 
@@ -10,7 +14,11 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -46,4 +54,260 @@ class MyRouterTest {
         double elapsed = (System.nanoTime() - tStart) * 1e-9;
         System.out.printf("Temps écoulé : %.3f s%n", elapsed);
     }
-}
\ No newline at end of file
+
+    @Test
+    void windowedProfileMatchesFilteredFullProfile() throws IOException {
+        TimeTable timeTable =
+                new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        LocalDate date = LocalDate.of(2025, Month.APRIL, 1);
+        int arrStationId = stationId(stations, "Gruyères");
+        Router router = new Router(timeTable);
+
+        int minDepMins = 7 * 60;
+        int maxArrMins = 10 * 60;
+        Profile full = router.profile(date, arrStationId);
+        Profile windowed = router.profile(date, arrStationId, minDepMins, maxArrMins);
+
+        // Les voyages du profil restreint doivent être exactement ceux du profil complet
+        // qui partent et arrivent dans la fenêtre (à la charge utile près)
+        for (int s = 0; s < stations.size(); s += 1) {
+            List<Long> expected = new ArrayList<>();
+            full.forStation(s).forEach(t -> {
+                if (PackedCriteria.depMins(t) >= minDepMins && PackedCriteria.arrMins(t) <= maxArrMins)
+                    expected.add(PackedCriteria.withPayload(t, 0));
+            });
+            List<Long> actual = new ArrayList<>();
+            windowed.forStation(s).forEach(t -> actual.add(PackedCriteria.withPayload(t, 0)));
+            assertEquals(expected, actual);
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> router.profile(date, arrStationId, maxArrMins, minDepMins));
+    }
+
+    @Test
+    void parallelProfilesMatchSequentialProfiles() throws IOException {
+        TimeTable timeTable =
+                new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        LocalDate date = LocalDate.of(2025, Month.APRIL, 1);
+        Set<Integer> arrStationIds = Set.of(
+                stationId(stations, "Gruyères"),
+                stationId(stations, "Lausanne"),
+                stationId(stations, "Ecublens VD, EPFL"));
+        Router router = new Router(timeTable);
+
+        Map<Integer, Router.TimedProfile> profiles = router.profiles(date, arrStationIds);
+        assertEquals(arrStationIds, profiles.keySet());
+
+        for (int arrStationId : arrStationIds) {
+            Profile expected = router.profile(date, arrStationId);
+            Router.TimedProfile actual = profiles.get(arrStationId);
+            assertFalse(actual.duration().isNegative());
+            for (int s = 0; s < stations.size(); s += 1) {
+                List<Long> expectedTuples = new ArrayList<>();
+                expected.forStation(s).forEach(expectedTuples::add);
+                List<Long> actualTuples = new ArrayList<>();
+                actual.profile().forStation(s).forEach(actualTuples::add);
+                assertEquals(expectedTuples, actualTuples);
+            }
+        }
+    }
+
+    @Test
+    void batchProfilesMatchSeparateProfiles() {
+        // Quatre gares reliées par quatre courses, avec un changement de 2 minutes dans chaque gare
+        TimeTable timeTable = new InMemoryTimeTable.Builder(4)
+                .routes(Vehicle.TRAIN, Vehicle.BUS)
+                .trips(0, 1, 1, 0)
+                .transfersWithinStations(2)
+                .connections(new int[][] {
+                        {3, 540, 0, 570, 3, 0, 0},
+                        {2, 502, 3, 510, 0, 2, 1},
+                        {1, 495, 3, 520, 1, 0, 2},
+                        {1, 492, 2, 500, 0, 1, 1},
+                        {0, 480, 1, 490, 0, 0, 3},
+                        {0, 470, 2, 498, 2, 0, 5}})
+                .build();
+        LocalDate date = LocalDate.of(2025, Month.APRIL, 1);
+        Set<Integer> arrStationIds = Set.of(0, 2, 3);
+        Router router = new Router(timeTable);
+
+        Map<Integer, Profile> profiles = router.batchProfiles(date, arrStationIds);
+        assertEquals(arrStationIds, profiles.keySet());
+        assertEquals(2, profiles.get(3).forStation(1).size());
+
+        for (int arrStationId : arrStationIds) {
+            Profile expected = router.profile(date, arrStationId);
+            Profile actual = profiles.get(arrStationId);
+            assertEquals(arrStationId, actual.arrStationId());
+            for (int s = 0; s < 4; s += 1) {
+                List<Long> expectedTuples = new ArrayList<>();
+                expected.forStation(s).forEach(expectedTuples::add);
+                List<Long> actualTuples = new ArrayList<>();
+                actual.forStation(s).forEach(actualTuples::add);
+                assertEquals(expectedTuples, actualTuples);
+            }
+        }
+
+        assertEquals(Map.of(), router.batchProfiles(date, Set.of()));
+        assertThrows(IndexOutOfBoundsException.class, () -> router.batchProfiles(date, Set.of(4)));
+    }
+
+    @Test
+    void progressiveSlicesMatchFilteredFinalProfile() throws IOException {
+        TimeTable timeTable =
+                new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        LocalDate date = LocalDate.of(2025, Month.APRIL, 1);
+        int arrStationId = stationId(stations, "Gruyères");
+        Router router = new Router(timeTable);
+
+        List<Profile> slices = new ArrayList<>();
+        List<Integer> slicesMinDepMins = new ArrayList<>();
+        Profile progressive = router.profile(date, arrStationId, 60, (partialProfile, minDepMins) -> {
+            slices.add(partialProfile);
+            slicesMinDepMins.add(minDepMins);
+        });
+        Profile full = router.profile(date, arrStationId);
+        assertFalse(slices.isEmpty());
+
+        for (int i = 0; i < slices.size(); i += 1) {
+            int minDepMins = slicesMinDepMins.get(i);
+            if (i > 0) assertTrue(minDepMins < slicesMinDepMins.get(i - 1));
+
+            // Chaque tranche contient exactement les tuples définitifs qui partent au plus tôt à minDepMins
+            for (int s = 0; s < stations.size(); s += 1) {
+                List<Long> expected = new ArrayList<>();
+                full.forStation(s).forEach(t -> {
+                    if (PackedCriteria.depMins(t) >= minDepMins) expected.add(t);
+                });
+                List<Long> actual = new ArrayList<>();
+                slices.get(i).forStation(s).forEach(actual::add);
+                assertEquals(expected, actual);
+            }
+        }
+
+        for (int s = 0; s < stations.size(); s += 1) {
+            List<Long> expected = new ArrayList<>();
+            full.forStation(s).forEach(expected::add);
+            List<Long> actual = new ArrayList<>();
+            progressive.forStation(s).forEach(actual::add);
+            assertEquals(expected, actual);
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> router.profile(date, arrStationId, 0, (partialProfile, minDepMins) -> {}));
+    }
+
+    @Test
+    void failingSliceListenerDoesNotAbortProfile() throws IOException {
+        TimeTable timeTable =
+                new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        LocalDate date = LocalDate.of(2025, Month.APRIL, 1);
+        int arrStationId = stationId(stations, "Gruyères");
+        Router router = new Router(timeTable);
+
+        int[] calls = new int[1];
+        Profile progressive = router.profile(date, arrStationId, 60, (partialProfile, minDepMins) -> {
+            calls[0] += 1;
+            throw new IllegalStateException();
+        });
+        Profile full = router.profile(date, arrStationId);
+
+        // L'auditeur n'est plus informé après son échec, mais le profil est complet
+        assertEquals(1, calls[0]);
+        for (int s = 0; s < stations.size(); s += 1) {
+            List<Long> expected = new ArrayList<>();
+            full.forStation(s).forEach(expected::add);
+            List<Long> actual = new ArrayList<>();
+            progressive.forStation(s).forEach(actual::add);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void cappedProfileKeepsOnlyJourneysWithFewChanges() throws IOException {
+        TimeTable timeTable =
+                new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        LocalDate date = LocalDate.of(2025, Month.APRIL, 1);
+        int arrStationId = stationId(stations, "Gruyères");
+        int depStationId = stationId(stations, "Ecublens VD, EPFL");
+        Router router = new Router(timeTable);
+
+        // Un voyage ne peut être dominé que par un voyage ayant au plus autant de changements : chaque frontière
+        // limitée est donc celle du profil complet, privée des voyages ayant trop de changements
+        Profile full = router.profile(date, arrStationId);
+        for (int maxChanges = 0; maxChanges <= 3; maxChanges += 1) {
+            int cap = maxChanges;
+            Profile capped = router.profile(date, arrStationId, maxChanges);
+            for (int s = 0; s < stations.size(); s += 1) {
+                List<Long> expected = new ArrayList<>();
+                full.forStation(s).forEach(t -> {
+                    if (PackedCriteria.changes(t) <= cap) expected.add(PackedCriteria.withPayload(t, 0));
+                });
+                List<Long> actual = new ArrayList<>();
+                capped.forStation(s).forEach(t -> actual.add(PackedCriteria.withPayload(t, 0)));
+                assertEquals(expected, actual);
+            }
+        }
+
+        // Certains voyages de la gare de départ comportent des changements, et aucun n'en comporte plus de 127
+        assertTrue(router.profile(date, arrStationId, 0).forStation(depStationId).size()
+                < full.forStation(depStationId).size());
+        Profile uncapped = router.profile(date, arrStationId, 127);
+        for (int s = 0; s < stations.size(); s += 1) {
+            List<Long> expected = new ArrayList<>();
+            full.forStation(s).forEach(expected::add);
+            List<Long> actual = new ArrayList<>();
+            uncapped.forStation(s).forEach(actual::add);
+            assertEquals(expected, actual);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> router.profile(date, arrStationId, -1));
+        assertThrows(IllegalArgumentException.class, () -> router.profile(date, arrStationId, 128));
+    }
+
+    @Test
+    void repairedProfileMatchesRecomputedProfile() throws IOException {
+        TimeTable timeTable =
+                new CachedTimeTable(FileTimeTable.in(Path.of("timetable")));
+        Stations stations = timeTable.stations();
+        LocalDate date = LocalDate.of(2025, Month.APRIL, 1);
+        int arrStationId = stationId(stations, "Gruyères");
+        Router router = new Router(timeTable);
+
+        int minDepMins = 8 * 60;
+        RepairableProfile repairable = router.repairableProfile(date, arrStationId, minDepMins, 11 * 60);
+
+        // Retard des courses de quelques liaisons partant entre 8h et 9h
+        Connections connections = timeTable.connectionsFor(date);
+        List<TripDelay> delays = new ArrayList<>();
+        for (int id = 0; id < connections.size(); id += 997) {
+            if (connections.depMins(id) >= minDepMins && connections.depMins(id) < 9 * 60)
+                delays.add(new TripDelay(connections.tripId(id), connections.tripPos(id), 12));
+        }
+        assertFalse(delays.isEmpty());
+
+        DelayedTimeTable delayed = new DelayedTimeTable(timeTable, date, delays);
+        DelayedTimeTable moreDelayed = delayed.withDelays(List.of(new TripDelay(delays.getFirst().tripId(), 0, 25)));
+        for (DelayedTimeTable delayedTimeTable : List.of(delayed, moreDelayed)) {
+            Profile repaired = router.repair(repairable, delayedTimeTable);
+            Profile expected = new Router(delayedTimeTable).profile(date, arrStationId, minDepMins, 2879);
+            assertSame(delayedTimeTable, repaired.timeTable());
+            for (int s = 0; s < stations.size(); s += 1) {
+                List<Long> expectedTuples = new ArrayList<>();
+                expected.forStation(s).forEach(expectedTuples::add);
+                List<Long> actualTuples = new ArrayList<>();
+                repaired.forStation(s).forEach(actualTuples::add);
+                assertEquals(expectedTuples, actualTuples);
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> router.repair(repairable, new DelayedTimeTable(timeTable, date.plusDays(1), List.of())));
+    }
+}
@@ -0,0 +1,132 @@
+package ch.epfl.rechor.journey;
+
+import ch.epfl.rechor.timetable.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyTravelTimeBoundsTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 18);
+    private static final int STATIONS_COUNT = 5;
+
+    // Seul changement de chaque gare : celui vers elle-même, de 2 minutes
+    private static final int TRANSFER_MINUTES = 2;
+
+    // Liaisons triées par heure de départ décroissante : arrêt de départ, heure de départ, arrêt d'arrivée,
+    // heure d'arrivée, course, position dans la course et liaison suivante ; les arrêts sont les gares
+    private static final int[][] CONNECTIONS = {
+            {1, 640, 2, 650, 4, 0, 0},
+            {2, 630, 4, 640, 2, 0, 1},
+            {1, 612, 2, 620, 0, 1, 4},
+            {1, 605, 2, 615, 3, 0, 3},
+            {0, 600, 1, 610, 0, 0, 2},
+            {3, 500, 1, 510, 1, 0, 5}
+    };
+    private static final int TRIPS_COUNT = 5;
+
+    private static TimeTable timeTable() {
+        return new InMemoryTimeTable.Builder(STATIONS_COUNT)
+                .transfersWithinStations(TRANSFER_MINUTES)
+                .trips(new int[TRIPS_COUNT])
+                .connections(CONNECTIONS)
+                .build();
+    }
+
+    // Durées minimales entre les gares, les liaisons de 1 à 2 prenant au moins 8 minutes
+    private static final int U = TravelTimeBounds.UNREACHABLE;
+    private static final int[][] MINUTES_BETWEEN = {
+            {0, 10, 18, U, 28},
+            {U, 0, 8, U, 18},
+            {U, U, 0, U, 10},
+            {U, 10, 18, 0, 28},
+            {U, U, U, U, 0}
+    };
+
+    private static void assertExactBounds(TravelTimeBounds bounds) {
+        for (int dep = 0; dep < STATIONS_COUNT; dep++) {
+            for (int arr = 0; arr < STATIONS_COUNT; arr++) {
+                assertEquals(MINUTES_BETWEEN[dep][arr], bounds.minutesBetween(dep, arr));
+            }
+        }
+    }
+
+    @Test
+    void boundsAreExactWhenEveryStationIsALandmark() {
+        TravelTimeBounds bounds = TravelTimeBounds.compute(timeTable(), DATE, STATIONS_COUNT);
+
+        assertEquals(DATE, bounds.date());
+        assertEquals(STATIONS_COUNT, bounds.landmarksCount());
+        assertExactBounds(bounds);
+        assertArrayEquals(new int[]{18, 8, 0, 18, U}, bounds.minutesTo(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> bounds.minutesBetween(0, STATIONS_COUNT));
+        assertThrows(IllegalArgumentException.class, () -> TravelTimeBounds.compute(timeTable(), DATE, 0));
+    }
+
+    @Test
+    void boundsNeverExceedProfileDurations() {
+        TimeTable timeTable = timeTable();
+        TravelTimeBounds bounds = TravelTimeBounds.compute(timeTable, DATE, 2);
+        assertEquals(2, bounds.landmarksCount());
+
+        for (int arr = 0; arr < STATIONS_COUNT; arr++) {
+            Profile profile = new Router(timeTable).profile(DATE, arr);
+            for (int dep = 0; dep < STATIONS_COUNT; dep++) {
+                int lowerBound = bounds.minutesBetween(dep, arr);
+                assertTrue(lowerBound <= MINUTES_BETWEEN[dep][arr]);
+                profile.forStation(dep).forEach(criteria -> {
+                    assertNotEquals(U, lowerBound);
+                    assertTrue(lowerBound <= PackedCriteria.arrMins(criteria) - PackedCriteria.depMins(criteria));
+                });
+            }
+        }
+    }
+
+    @Test
+    void boundsAreStoredNextToTimeTable(@TempDir Path directory) throws IOException {
+        TimeTable timeTable = timeTable();
+        Path file = directory.resolve(DATE.toString()).resolve("travel-time-bounds.bin");
+
+        assertExactBounds(TravelTimeBounds.forDay(timeTable, directory, DATE));
+        assertTrue(Files.exists(file));
+        assertExactBounds(TravelTimeBounds.forDay(timeTable, directory, DATE));
+
+        // Un fichier endommagé est ignoré et remplacé
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        assertExactBounds(TravelTimeBounds.forDay(timeTable, directory, DATE));
+        assertEquals(DATE.plusDays(1), TravelTimeBounds.forDay(timeTable, directory, DATE.plusDays(1)).date());
+    }
+
+    @Test
+    void boundsAreComputedWhenTheyCannotBeStored(@TempDir Path directory) throws IOException {
+        // Le dossier du jour ne peut pas être créé, car un fichier porte déjà son nom
+        Files.createFile(directory.resolve(DATE.toString()));
+
+        assertExactBounds(TravelTimeBounds.forDay(timeTable(), directory, DATE));
+        assertTrue(Files.isRegularFile(directory.resolve(DATE.toString())));
+    }
+
+    @Test
+    void boundedProfileIsUnchanged() {
+        TimeTable timeTable = timeTable();
+        TravelTimeBounds bounds = TravelTimeBounds.compute(timeTable, DATE, 2);
+        Router router = new Router(timeTable);
+
+        Profile expected = router.profile(DATE, 2, 590, 625);
+        Profile actual = router.profile(DATE, 2, 590, 625, bounds);
+        assertEquals(1, expected.forStation(0).size());
+        for (int station = 0; station < STATIONS_COUNT; station++) {
+            assertEquals(expected.forStation(station).toString(), actual.forStation(station).toString());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> router.profile(DATE.plusDays(1), 2, 590, 625, bounds));
+    }
+}
@@ -0,0 +1,246 @@
+package ch.epfl.rechor.timetable;
+
+import ch.epfl.rechor.PackedRange;
+import ch.epfl.rechor.journey.Vehicle;
+
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Horaire de test, entièrement en mémoire, dont la gare d'index i se nomme « Gare i ».
+ * Les parties non données au bâtisseur sont vides plutôt que nulles.
+ * @author Yoann Salamin (390522)
+ * @author Axel Verga (398787)
+ */
+public final class InMemoryTimeTable implements TimeTable {
+
+    private final Stations stations;
+    private final Platforms platforms;
+    private final Routes routes;
+    private final Transfers transfers;
+    private final Trips trips;
+    private final Function<LocalDate, Connections> connectionsLoader;
+
+    private InMemoryTimeTable(Builder builder) {
+        int stationsCount = builder.stationsCount;
+        int[] platformStations = builder.platformStations;
+        String[] platformNames = builder.platformNames;
+        Vehicle[] routeVehicles = builder.routeVehicles;
+        int[] tripRoutes = builder.tripRoutes;
+        int transferMinutes = builder.transferMinutes;
+
+        this.stations = new Stations() {
+            @Override public String name(int id) { return "Gare " + Objects.checkIndex(id, stationsCount); }
+            @Override public double longitude(int id) { return 0; }
+            @Override public double latitude(int id) { return 0; }
+            @Override public int size() { return stationsCount; }
+        };
+        this.platforms = new Platforms() {
+            @Override public String name(int id) { return platformNames[id]; }
+            @Override public int stationId(int id) { return platformStations[id]; }
+            @Override public int size() { return platformStations.length; }
+        };
+        this.routes = new Routes() {
+            @Override public Vehicle vehicle(int id) { return routeVehicles[id]; }
+            @Override public String name(int id) { return "L" + Objects.checkIndex(id, routeVehicles.length); }
+            @Override public int size() { return routeVehicles.length; }
+        };
+        // Seul changement possible, s'il y en a : celui de chaque gare vers elle-même
+        int transfersCount = transferMinutes < 0 ? 0 : stationsCount;
+        this.transfers = new Transfers() {
+            @Override public int depStationId(int id) { return Objects.checkIndex(id, transfersCount); }
+            @Override public int minutes(int id) {
+                Objects.checkIndex(id, transfersCount);
+                return transferMinutes;
+            }
+            @Override public int arrivingAt(int stationId) {
+                Objects.checkIndex(stationId, stationsCount);
+                return transfersCount == 0 ? PackedRange.pack(0, 0) : PackedRange.pack(stationId, stationId + 1);
+            }
+            @Override public int minutesBetween(int depStationId, int arrStationId) {
+                Objects.checkIndex(depStationId, stationsCount);
+                Objects.checkIndex(arrStationId, stationsCount);
+                if (transfersCount == 0 || depStationId != arrStationId) throw new NoSuchElementException();
+                return transferMinutes;
+            }
+            @Override public int size() { return transfersCount; }
+        };
+        this.trips = new Trips() {
+            @Override public int routeId(int id) { return tripRoutes[id]; }
+            @Override public String destination(int id) { return "Destination " + Objects.checkIndex(id, tripRoutes.length); }
+            @Override public int size() { return tripRoutes.length; }
+        };
+        this.connectionsLoader = builder.connectionsLoader;
+    }
+
+    /**
+     * Fonction qui retourne des liaisons dont chaque ligne du tableau donné contient, dans l'ordre,
+     * l'arrêt de départ, l'heure de départ, l'arrêt d'arrivée, l'heure d'arrivée, la course,
+     * la position dans la course et la liaison suivante. Chaque appel retourne une nouvelle instance.
+     * @param rows les liaisons, une par ligne
+     * @return les liaisons données
+     */
+    public static Connections connections(int[][] rows) {
+        return new Connections() {
+            @Override public int depStopId(int id) { return rows[id][0]; }
+            @Override public int depMins(int id) { return rows[id][1]; }
+            @Override public int arrStopId(int id) { return rows[id][2]; }
+            @Override public int arrMins(int id) { return rows[id][3]; }
+            @Override public int tripId(int id) { return rows[id][4]; }
+            @Override public int tripPos(int id) { return rows[id][5]; }
+            @Override public int nextConnectionId(int id) { return rows[id][6]; }
+            @Override public int size() { return rows.length; }
+        };
+    }
+
+    @Override
+    public Stations stations() {
+        return stations;
+    }
+
+    @Override
+    public StationAliases stationAliases() {
+        return new StationAliases() {
+            @Override public String alias(int id) { throw new IndexOutOfBoundsException(); }
+            @Override public String stationName(int id) { throw new IndexOutOfBoundsException(); }
+            @Override public int size() { return 0; }
+        };
+    }
+
+    @Override
+    public Platforms platforms() {
+        return platforms;
+    }
+
+    @Override
+    public Routes routes() {
+        return routes;
+    }
+
+    @Override
+    public Transfers transfers() {
+        return transfers;
+    }
+
+    @Override
+    public Trips tripsFor(LocalDate date) {
+        return trips;
+    }
+
+    @Override
+    public Connections connectionsFor(LocalDate date) {
+        return connectionsLoader.apply(date);
+    }
+
+    /**
+     * Bâtisseur d'horaire en mémoire
+     */
+    public static final class Builder {
+        private final int stationsCount;
+        private int[] platformStations = new int[0];
+        private String[] platformNames = new String[0];
+        private Vehicle[] routeVehicles = new Vehicle[0];
+        private int[] tripRoutes = new int[0];
+        private int transferMinutes = -1;
+        private Function<LocalDate, Connections> connectionsLoader = date -> InMemoryTimeTable.connections(new int[0][]);
+
+        /**
+         * Constructeur d'un bâtisseur d'horaire sans voie, ligne, course, changement ni liaison
+         * @param stationsCount le nombre de gares
+         */
+        public Builder(int stationsCount) {
+            this.stationsCount = stationsCount;
+        }
+
+        /**
+         * Méthode qui définit les voies, nommées d'après leur index
+         * @param stationIds la gare de chaque voie
+         * @return ce bâtisseur
+         */
+        public Builder platforms(int... stationIds) {
+            String[] names = new String[stationIds.length];
+            for (int id = 0; id < names.length; id++) names[id] = "" + id;
+            return platforms(stationIds, names);
+        }
+
+        /**
+         * Méthode qui définit les voies
+         * @param stationIds la gare de chaque voie
+         * @param names le nom de chaque voie
+         * @return ce bâtisseur
+         */
+        public Builder platforms(int[] stationIds, String[] names) {
+            this.platformStations = stationIds.clone();
+            this.platformNames = names.clone();
+            return this;
+        }
+
+        /**
+         * Méthode qui définit les lignes, nommées « L » suivi de leur index
+         * @param vehicles le véhicule de chaque ligne
+         * @return ce bâtisseur
+         */
+        public Builder routes(Vehicle... vehicles) {
+            this.routeVehicles = vehicles.clone();
+            return this;
+        }
+
+        /**
+         * Méthode qui définit les courses, de tous les jours
+         * @param routeIds la ligne de chaque course
+         * @return ce bâtisseur
+         */
+        public Builder trips(int... routeIds) {
+            this.tripRoutes = routeIds.clone();
+            return this;
+        }
+
+        /**
+         * Méthode qui ajoute, à chaque gare, un changement vers elle-même de la durée donnée
+         * @param minutes la durée de chaque changement
+         * @return ce bâtisseur
+         */
+        public Builder transfersWithinStations(int minutes) {
+            this.transferMinutes = minutes;
+            return this;
+        }
+
+        /**
+         * Méthode qui définit les liaisons de tous les jours, au format de connections(int[][])
+         * @param rows les liaisons, une par ligne
+         * @return ce bâtisseur
+         */
+        public Builder connections(int[][] rows) {
+            return connectionsFor(date -> InMemoryTimeTable.connections(rows));
+        }
+
+        /**
+         * Méthode qui définit les liaisons de tous les jours
+         * @param connections les liaisons
+         * @return ce bâtisseur
+         */
+        public Builder connections(Connections connections) {
+            return connectionsFor(date -> connections);
+        }
+
+        /**
+         * Méthode qui définit la fonction appelée à chaque demande des liaisons d'un jour
+         * @param loader la fonction retournant les liaisons du jour donné
+         * @return ce bâtisseur
+         */
+        public Builder connectionsFor(Function<LocalDate, Connections> loader) {
+            this.connectionsLoader = Objects.requireNonNull(loader);
+            return this;
+        }
+
+        /**
+         * Méthode qui construit l'horaire
+         * @return l'horaire défini par ce bâtisseur
+         */
+        public InMemoryTimeTable build() {
+            return new InMemoryTimeTable(this);
+        }
+    }
+}
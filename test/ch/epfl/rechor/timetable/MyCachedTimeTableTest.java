@@ -0,0 +1,69 @@
+package ch.epfl.rechor.timetable;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyCachedTimeTableTest {
+
+    // 4 gares (arrêts 0 à 3) et 3 voies (arrêts 4 à 6)
+    private static final int[] PLATFORM_STATIONS = {2, 0, 2};
+    private static final String[] PLATFORM_NAMES = {"1", "A", ""};
+
+    private final TimeTable underlying = new InMemoryTimeTable.Builder(4)
+            .platforms(PLATFORM_STATIONS, PLATFORM_NAMES)
+            .build();
+
+    @Test
+    void cachedStopLookupsMatchUnderlyingTimeTable() {
+        TimeTable cached = new CachedTimeTable(underlying);
+
+        for (int stopId = 0; stopId < 7; stopId++) {
+            assertEquals(underlying.isStationId(stopId), cached.isStationId(stopId));
+            assertEquals(underlying.isPlatformId(stopId), cached.isPlatformId(stopId));
+            assertEquals(underlying.stationId(stopId), cached.stationId(stopId));
+            assertEquals(underlying.platformName(stopId), cached.platformName(stopId));
+        }
+    }
+
+    @Test
+    void cachedStopLookupsHandleStationsAndPlatforms() {
+        TimeTable cached = new CachedTimeTable(underlying);
+
+        assertEquals(3, cached.stationId(3));
+        assertNull(cached.platformName(3));
+        assertEquals(0, cached.stationId(5));
+        assertEquals("A", cached.platformName(5));
+        assertEquals("", cached.platformName(6));
+        assertThrows(IndexOutOfBoundsException.class, () -> cached.stationId(7));
+    }
+
+    @Test
+    void cachedTimeTableKeepsTwoMostRecentlyUsedDays() {
+        LocalDate today = LocalDate.of(2025, 3, 18);
+        LocalDate tomorrow = today.plusDays(1);
+        int[] loadsCount = new int[1];
+        TimeTable cached = new CachedTimeTable(new InMemoryTimeTable.Builder(4)
+                .connectionsFor(date -> {
+                    loadsCount[0] += 1;
+                    return InMemoryTimeTable.connections(new int[0][]);
+                })
+                .build());
+
+        // Des demandes alternées pour deux jours ne rechargent pas leurs données
+        Connections todayConnections = cached.connectionsFor(today);
+        Connections tomorrowConnections = cached.connectionsFor(tomorrow);
+        assertSame(todayConnections, cached.connectionsFor(today));
+        assertSame(tomorrowConnections, cached.connectionsFor(tomorrow));
+        assertEquals(2, loadsCount[0]);
+
+        // Un troisième jour évince celui qui a été utilisé le moins récemment
+        cached.connectionsFor(today.plusDays(2));
+        assertSame(tomorrowConnections, cached.connectionsFor(tomorrow));
+        assertEquals(3, loadsCount[0]);
+        assertNotSame(todayConnections, cached.connectionsFor(today));
+        assertEquals(4, loadsCount[0]);
+    }
+}
@@ -0,0 +1,74 @@
+package ch.epfl.rechor.timetable;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyColumnarConnectionsTest {
+
+    // 3 gares (0 à 2) et 2 voies (arrêts 3 et 4) appartenant aux gares 1 et 2
+    private static final int[] PLATFORM_STATIONS = {1, 2};
+
+    private final int[] depStopIds    = {0, 3, 1, 4, 2};
+    private final int[] depMinsArr    = {900, 800, 700, 600, 500};
+    private final int[] arrStopIds    = {4, 1, 3, 0, 2};
+    private final int[] arrMinsArr    = {920, 810, 750, 65535, 501};
+    private final int[] tripIds       = {0, 0, (1 << 24) - 1, 2, 2};
+    private final int[] tripPositions = {1, 0, 255, 1, 0};
+    private final int[] nextConn      = {1, 0, 2, 4, 3};
+
+    private final Connections connections = new Connections() {
+        @Override public int size() { return depStopIds.length; }
+        @Override public int depStopId(int id) { return depStopIds[id]; }
+        @Override public int depMins(int id) { return depMinsArr[id]; }
+        @Override public int arrStopId(int id) { return arrStopIds[id]; }
+        @Override public int arrMins(int id) { return arrMinsArr[id]; }
+        @Override public int tripId(int id) { return tripIds[id]; }
+        @Override public int tripPos(int id) { return tripPositions[id]; }
+        @Override public int nextConnectionId(int id) { return nextConn[id]; }
+    };
+
+    private final TimeTable timeTable = new InMemoryTimeTable.Builder(3)
+            .platforms(PLATFORM_STATIONS)
+            .connections(connections)
+            .build();
+
+    @Test
+    void columnarConnectionsMatchDecodedConnections() {
+        ColumnarConnections columnar = new ColumnarConnections(connections, timeTable);
+
+        assertEquals(connections.size(), columnar.size());
+        for (int id = 0; id < connections.size(); id++) {
+            assertEquals(connections.depStopId(id), columnar.depStopId(id));
+            assertEquals(connections.depMins(id), columnar.depMins(id));
+            assertEquals(connections.arrStopId(id), columnar.arrStopId(id));
+            assertEquals(connections.arrMins(id), columnar.arrMins(id));
+            assertEquals(connections.tripId(id), columnar.tripId(id));
+            assertEquals(connections.tripPos(id), columnar.tripPos(id));
+            assertEquals(connections.nextConnectionId(id), columnar.nextConnectionId(id));
+        }
+    }
+
+    @Test
+    void columnarConnectionsResolveStations() {
+        ColumnarConnections columnar = new ColumnarConnections(connections, timeTable);
+
+        for (int id = 0; id < connections.size(); id++) {
+            assertEquals(timeTable.stationId(connections.depStopId(id)), columnar.depStationId(id));
+            assertEquals(timeTable.stationId(connections.arrStopId(id)), columnar.arrStationId(id));
+        }
+        assertEquals(2, columnar.depStationId(3));
+        assertEquals(1, columnar.arrStationId(1));
+    }
+
+    @Test
+    void columnarConnectionsThrowOnInvalidIndex() {
+        ColumnarConnections columnar = new ColumnarConnections(connections, timeTable);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> columnar.depStopId(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> columnar.tripPos(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> columnar.arrStationId(5));
+    }
+}
@@ -0,0 +1,114 @@
+package ch.epfl.rechor.timetable;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyDelayedConnectionsTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 18);
+
+    // Course 0 : liaisons aux positions 0 à 2, course 1 : liaisons aux positions 0 et 1,
+    // triées par heure de départ décroissante
+    private final int[] depStopIds    = {1, 2, 0, 1, 0};
+    private final int[] depMinsArr    = {900, 630, 620, 615, 600};
+    private final int[] arrStopIds    = {2, 0, 1, 2, 1};
+    private final int[] arrMinsArr    = {910, 640, 630, 625, 610};
+    private final int[] tripIds       = {1, 0, 1, 0, 0};
+    private final int[] tripPositions = {1, 2, 0, 1, 0};
+    private final int[] nextConn      = {2, 4, 0, 1, 3};
+
+    @TempDir
+    Path tempDir;
+
+    private final Connections connections = new Connections() {
+        @Override public int size() { return depStopIds.length; }
+        @Override public int depStopId(int id) { return depStopIds[id]; }
+        @Override public int depMins(int id) { return depMinsArr[id]; }
+        @Override public int arrStopId(int id) { return arrStopIds[id]; }
+        @Override public int arrMins(int id) { return arrMinsArr[id]; }
+        @Override public int tripId(int id) { return tripIds[id]; }
+        @Override public int tripPos(int id) { return tripPositions[id]; }
+        @Override public int nextConnectionId(int id) { return nextConn[id]; }
+    };
+
+    private final TimeTable timeTable = new InMemoryTimeTable.Builder(3).connections(connections).build();
+
+    @Test
+    void connectionsWithoutDelayAreUnchanged() {
+        DelayedConnections delayed = new DelayedConnections(connections, List.of());
+
+        assertEquals(connections.size(), delayed.unchangedCount());
+        assertEquals(Integer.MIN_VALUE, delayed.latestDelayedDepMins());
+        for (int id = 0; id < connections.size(); id++) {
+            assertEquals(connections.depMins(id), delayed.depMins(id));
+            assertEquals(connections.arrMins(id), delayed.arrMins(id));
+            assertEquals(connections.nextConnectionId(id), delayed.nextConnectionId(id));
+        }
+    }
+
+    @Test
+    void delayedConnectionsAreSortedAgainAfterLastUnchangedOne() {
+        DelayedConnections delayed = new DelayedConnections(connections, List.of(new TripDelay(0, 1, 10)));
+
+        assertEquals(1, delayed.unchangedCount());
+        assertEquals(640, delayed.latestDelayedDepMins());
+
+        int[] expectedDepMins = {900, 640, 625, 620, 600};
+        int[] expectedArrMins = {910, 650, 635, 630, 610};
+        int[] expectedTripPositions = {1, 2, 1, 0, 0};
+        int[] expectedNext = {3, 4, 1, 0, 2};
+        for (int id = 0; id < connections.size(); id++) {
+            assertEquals(expectedDepMins[id], delayed.depMins(id));
+            assertEquals(expectedArrMins[id], delayed.arrMins(id));
+            assertEquals(expectedTripPositions[id], delayed.tripPos(id));
+            assertEquals(expectedNext[id], delayed.nextConnectionId(id));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> delayed.depMins(connections.size()));
+    }
+
+    @Test
+    void newDelaysReplaceThoseOfSameTrip() {
+        DelayedTimeTable delayed = new DelayedTimeTable(timeTable, DATE, List.of(new TripDelay(0, 1, 10)))
+                .withDelays(List.of(new TripDelay(0, 2, 5), new TripDelay(1, 0, 3)));
+
+        assertSame(timeTable, delayed.base());
+        assertEquals(2, delayed.tripDelays().size());
+        assertTrue(delayed.tripDelays().contains(new TripDelay(0, 2, 5)));
+        assertEquals(903, delayed.delayedConnections().latestDelayedDepMins());
+        assertEquals(903, delayed.connectionsFor(DATE).depMins(0));
+        assertSame(connections, delayed.connectionsFor(DATE.plusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> new TripDelay(0, 0, -1));
+    }
+
+    @Test
+    void delaysBeyondRepresentableTimesAreRejected() {
+        // La dernière liaison de la course 1 arrive à 910, elle peut arriver au plus tard à 2879
+        assertEquals(2879, new DelayedConnections(connections, List.of(new TripDelay(1, 1, 1969))).arrMins(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DelayedConnections(connections, List.of(new TripDelay(1, 1, 1970))));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DelayedTimeTable(timeTable, DATE, List.of(new TripDelay(0, 0, 2300))));
+        assertThrows(IllegalArgumentException.class, () -> new TripDelay(0, 0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void delayFeedReadsDelaysOfFile() throws IOException {
+        Path file = tempDir.resolve("delays.txt");
+        Files.writeString(file, "# course;position;retard\n12;3;7\n\n 4 ; 0 ; 15 \n");
+
+        assertEquals(List.of(new TripDelay(12, 3, 7), new TripDelay(4, 0, 15)), DelayFeed.read(file));
+
+        Files.writeString(file, "12;3\n");
+        assertThrows(IllegalArgumentException.class, () -> DelayFeed.read(file));
+        assertThrows(UncheckedIOException.class, () -> DelayFeed.read(tempDir.resolve("absent.txt")));
+    }
+}
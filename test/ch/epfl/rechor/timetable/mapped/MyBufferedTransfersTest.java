@@ -5,6 +5,7 @@ import ch.epfl.rechor.timetable.Transfers;
 import org.junit.jupiter.api.Test;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -159,4 +160,63 @@ class MyBufferedTransfersTest {
             transfers.minutesBetween(10, -1);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void minutesBetweenOrDefaultDoesNotThrowWhenNoTransfer() {
+        ByteBuffer buffer = createTestTransfersBuffer();
+        Transfers transfers = new BufferedTransfers(buffer);
+
+        assertEquals(5, transfers.minutesBetweenOrDefault(10, 20, -1));
+        assertEquals(9, transfers.minutesBetweenOrDefault(12, 20, -1));
+        assertEquals(2, transfers.minutesBetweenOrDefault(15, 16, -1));
+        assertEquals(-1, transfers.minutesBetweenOrDefault(10, 16, -1));
+        assertEquals(42, transfers.minutesBetweenOrDefault(11, 20, 42));
+        assertThrows(IndexOutOfBoundsException.class, () -> {
+            transfers.minutesBetweenOrDefault(-1, 20, -1);
+        });
+    }
+
+    @Test
+    public void minutesBetweenFindsUnsortedDepartureStations() {
+        // Les changements arrivant à la gare 3 ne sont pas triés par gare de départ
+        byte[] bytes = new byte[] {
+                0x00, 0x04, 0x00, 0x03, 0x04,
+                0x00, 0x03, 0x00, 0x03, 0x00,
+                0x00, 0x01, 0x00, 0x03, (byte) 0xC8,
+                0x00, 0x05, 0x00, 0x03, 0x0B,
+                0x00, 0x03, 0x00, 0x05, 0x06
+        };
+        Transfers transfers = new BufferedTransfers(ByteBuffer.wrap(bytes));
+
+        assertEquals(4, transfers.minutesBetween(4, 3));
+        assertEquals(0, transfers.minutesBetween(3, 3));
+        assertEquals(200, transfers.minutesBetween(1, 3));
+        assertEquals(11, transfers.minutesBetween(5, 3));
+        assertEquals(6, transfers.minutesBetween(3, 5));
+        assertThrows(NoSuchElementException.class, () -> transfers.minutesBetween(2, 3));
+        assertThrows(NoSuchElementException.class, () -> transfers.minutesBetween(5, 5));
+
+        // Les index de changements restent ceux du buffer
+        assertEquals(4, transfers.depStationId(0));
+        assertEquals(200, transfers.minutes(2));
+    }
+
+    @Test
+    public void fillMinutesToOnlyWritesTransfersArrivingAtStation() {
+        ByteBuffer buffer = createTestTransfersBuffer();
+        Transfers transfers = new BufferedTransfers(buffer);
+
+        int[] minutes = new int[21];
+        Arrays.fill(minutes, -1);
+        transfers.fillMinutesTo(20, minutes);
+
+        for (int stationId = 0; stationId < minutes.length; stationId++) {
+            int expected = switch (stationId) {
+                case 10 -> 5;
+                case 12 -> 9;
+                default -> -1;
+            };
+            assertEquals(expected, minutes[stationId]);
+        }
+    }
+}